@@ -0,0 +1,90 @@
+package discpative.benchmark;
+
+import discpative.io.Out;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares a JMH run with the recorded baseline.
+ *
+ * Both files are JMH results in CSV format (-rf csv). A score counts as regression if it is worse
+ * than the baseline by more than the tolerance, lower for throughput and higher for the time modes,
+ * and the 99.9% confidence intervals of both scores do not overlap. A change within the noise of
+ * either run is never a regression, however large. Scores whose error is larger than the tolerance
+ * are marked as noisy, rerun them with more forks or iterations before trusting them.
+ * Exits with status 1 if there is a regression.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class BaselineCheck {
+
+    /**
+     * Reads the scores of a JMH result file
+     * @param fileName path of the CSV file
+     * @return score and its error per benchmark, mode and parameters, in file order
+     * @throws IOException if the file cannot be read
+     */
+    static Map<String, double[]> readScores(String fileName) throws IOException {
+        Map<String, double[]> scores = new LinkedHashMap<>();
+        List<String> lines = Files.readAllLines(Paths.get(fileName));
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split(",");
+            if (fields.length < 7)
+                continue;
+            StringBuilder key = new StringBuilder(unquote(fields[0])).append(' ').append(unquote(fields[1]));
+            for (int i = 7; i < fields.length; i++)
+                key.append(' ').append(unquote(fields[i]));
+            String error = unquote(fields[5]);
+            scores.put(key.toString(), new double[]{Double.parseDouble(unquote(fields[4])),
+                    error.equals("NaN") ? 0 : Double.parseDouble(error)});
+        }
+        return scores;
+    }
+
+    private static String unquote(String field) {
+        return field.startsWith("\"") ? field.substring(1, field.length() - 1) : field;
+    }
+
+    /**
+     * Starts the comparison.
+     * @param args baseline file, result file and optional tolerance in percent (default 10)
+     * @throws IOException if a file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            Out.println("usage: BaselineCheck <baseline.csv> <result.csv> [tolerance %]");
+            return;
+        }
+        Map<String, double[]> baseline = readScores(args[0]);
+        Map<String, double[]> result = readScores(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.10;
+        int regressions = 0;
+        for (Map.Entry<String, double[]> entry : result.entrySet()) {
+            double[] before = baseline.get(entry.getKey());
+            if (before == null || before[0] == 0)
+                continue;
+            double[] after = entry.getValue();
+            double change = after[0] / before[0] - 1;
+            boolean higherIsBetter = entry.getKey().contains(" thrpt");
+            boolean separated = higherIsBetter ? after[0] + after[1] < before[0] - before[1]
+                    : after[0] - after[1] > before[0] + before[1]; //the confidence intervals do not overlap
+            boolean regression = separated && (higherIsBetter ? change < -tolerance : change > tolerance);
+            boolean noisy = Math.max(before[1] / before[0], after[1] / after[0]) > tolerance;
+            if (regression)
+                regressions++;
+            Out.printf("%-60s %14.3f +- %-10.3f %14.3f +- %-10.3f %+7.1f%%%s%n", entry.getKey(), before[0],
+                    before[1], after[0], after[1], change * 100,
+                    regression ? "  REGRESSION" : noisy ? "  noisy" : "");
+        }
+        if (regressions > 0) {
+            Out.println(regressions + " regressions");
+            System.exit(1);
+        }
+    }
+}
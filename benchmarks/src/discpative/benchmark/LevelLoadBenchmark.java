@@ -0,0 +1,69 @@
+package discpative.benchmark;
+
+import discpative.model.Level;
+import discpative.model.LevelCache;
+import discpative.model.LevelTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading of every map in resources/levels.
+ *
+ * {@link #parse()} reads the file and builds the template and the level like {@link Level#Level(int)},
+ * {@link #fromTemplate()} only builds a new level from an already parsed template.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class LevelLoadBenchmark {
+    @Param({"0", "1", "2", "3", "4", "5", "10", "20", "21", "22", "23", "24", "25", "26", "27", "28",
+            "30", "31", "32", "33", "99"})
+    private int levelNumber; //the loaded map
+
+    private LevelTemplate template; //parsed map
+
+    /**
+     * Parses the map once for {@link #fromTemplate()}
+     * @throws IOException never, the levels are read from resources/levels
+     */
+    @Setup
+    public void setUp() throws IOException {
+        template = new LevelCache(1).get(levelNumber);
+    }
+
+    /**
+     * Reads and parses the map and builds the level
+     * @return the level
+     */
+    @Benchmark
+    public Level parse() {
+        return new Level(levelNumber);
+    }
+
+    /**
+     * Builds the level from the parsed map
+     * @return the level
+     */
+    @Benchmark
+    public Level fromTemplate() {
+        return template.newLevel();
+    }
+}
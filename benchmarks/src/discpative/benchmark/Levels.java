@@ -0,0 +1,40 @@
+package discpative.benchmark;
+
+import discpative.controller.Direction;
+import discpative.io.TextWriter;
+import discpative.model.CompactLevel;
+import discpative.model.Level;
+import discpative.solver.AStarSolver;
+
+/**
+ * Shared setup of the benchmarks.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+final class Levels {
+    private Levels() {
+    }
+
+    /**
+     * Finds the shortest solution of a level
+     * @param levelNumber the number of the level
+     * @return the moves of the solution
+     */
+    static Direction[] solve(int levelNumber) {
+        Direction[] moves = new AStarSolver(new CompactLevel(levelNumber)).solve().getMoves();
+        if (moves == null)
+            throw new IllegalStateException("Level" + levelNumber + " cannot be solved");
+        return moves;
+    }
+
+    /**
+     * Silences a level
+     * @param level the level
+     * @return the level
+     */
+    static Level silent(Level level) {
+        level.setOutput(TextWriter.discard());
+        return level;
+    }
+}
@@ -0,0 +1,74 @@
+package discpative.benchmark;
+
+import discpative.controller.Direction;
+import discpative.controller.LevelController;
+import discpative.model.Level;
+import discpative.model.LevelCache;
+import discpative.replay.Replay;
+import discpative.replay.ReplayPlayer;
+import discpative.replay.ReplayRecorder;
+import discpative.replay.ReplayResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the headless {@link ReplayPlayer}.
+ *
+ * The replay is the shortest solution, recorded through a {@link LevelController}.
+ * One operation is a whole replay including the new level and all checksums.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class ReplayBenchmark {
+    @Param({"0", "10", "31"})
+    private int levelNumber; //the replayed level
+
+    private ReplayPlayer player; //plays the replay
+    private Replay replay; //recorded solution
+
+    /**
+     * Records the solution of the level
+     * @throws IOException never, the levels are read from resources/levels
+     */
+    @Setup
+    public void setUp() throws IOException {
+        LevelCache levels = new LevelCache(1);
+        Level level = Levels.silent(levels.newLevel(levelNumber));
+        LevelController controller = new LevelController(level);
+        ReplayRecorder recorder = new ReplayRecorder(levelNumber, level);
+        controller.setRecorder(recorder);
+        for (Direction direction : Levels.solve(levelNumber))
+            controller.handleMove(null, direction);
+        replay = recorder.toReplay();
+        player = new ReplayPlayer(levels);
+    }
+
+    /**
+     * Plays the whole replay
+     * @return the result
+     * @throws IOException never, the level is cached
+     */
+    @Benchmark
+    public ReplayResult play() throws IOException {
+        return player.play(replay);
+    }
+}
@@ -0,0 +1,80 @@
+package discpative.benchmark;
+
+import discpative.controller.Direction;
+import discpative.model.Level;
+import discpative.model.LevelCache;
+import discpative.model.LevelTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a single turn on the levels with the most guards.
+ *
+ * Every invocation plays the next move of the shortest solution: the collision check of the player,
+ * the move with its pushes, the moves of all guards and their lines of sight.
+ * The level is rebuilt outside of the measurement once the solution is played.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class TurnBenchmark {
+    @Param({"0", "31"})
+    private int levelNumber; //level with many guards, the solution of 32 overflows the stack in Level
+
+    private LevelTemplate template; //parsed level
+    private Direction[] moves; //shortest solution
+    private Level level; //the played level
+    private int next; //index of the next move
+
+    /**
+     * Parses and solves the level
+     * @throws IOException never, the levels are read from resources/levels
+     */
+    @Setup
+    public void setUp() throws IOException {
+        template = new LevelCache(1).get(levelNumber);
+        moves = Levels.solve(levelNumber);
+        next = moves.length;
+    }
+
+    /**
+     * Starts the level again after the last move of the solution
+     */
+    @Setup(org.openjdk.jmh.annotations.Level.Invocation)
+    public void restartIfSolved() {
+        if (next == moves.length) {
+            level = Levels.silent(template.newLevel());
+            next = 0;
+        }
+    }
+
+    /**
+     * Plays one turn
+     * @return the move count, so the turn is not optimized away
+     */
+    @Benchmark
+    public int turn() {
+        Direction direction = moves[next++];
+        if (level.canPlayerMoveTo(direction))
+            level.movePlayerTo(direction);
+        return level.getMoveCount();
+    }
+}
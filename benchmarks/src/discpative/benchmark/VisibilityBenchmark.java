@@ -0,0 +1,72 @@
+package discpative.benchmark;
+
+import discpative.model.CompactLevel;
+import discpative.model.Level;
+import discpative.model.LevelCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Line of sight checks of all guards, without any view registered.
+ *
+ * Checks the start state of levels with many guards, on the {@link Level} and on the {@link CompactLevel}.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class VisibilityBenchmark {
+    @Param({"0", "31", "32"})
+    private int levelNumber; //level with many guards
+
+    private Level level; //level in its start state
+    private CompactLevel compact; //packed level in its start state
+
+    /**
+     * Loads the level
+     * @throws IOException never, the levels are read from resources/levels
+     */
+    @Setup
+    public void setUp() throws IOException {
+        LevelCache levels = new LevelCache(1);
+        level = Levels.silent(levels.newLevel(levelNumber));
+        compact = levels.newCompactLevel(levelNumber);
+    }
+
+    /**
+     * Lets every guard of the level look for the player
+     * @return true if a guard saw the player
+     */
+    @Benchmark
+    public boolean level() {
+        level.isPlayerVisible();
+        return level.isLost();
+    }
+
+    /**
+     * Lets every guard of the packed level look for the player
+     * @return true if a guard saw the player
+     */
+    @Benchmark
+    public boolean compactLevel() {
+        compact.isPlayerVisible();
+        return compact.isLost();
+    }
+}
@@ -1,26 +1,52 @@
 package discpative;
 
+import discpative.controller.AsyncLevelController;
 import discpative.controller.LevelController;
 import discpative.model.Level;
+import discpative.replay.ReplayRecorder;
+import discpative.view.CanvasView;
 import discpative.view.View;
 import javafx.application.Application;
 import javafx.scene.Scene;
+import javafx.scene.layout.Region;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
 /**
  * Starter class for the game
  *
  * @author jpaus, Matr.Nr.: 2794407, Full Name: Jonas Paus
  */
 public class Discaptive extends Application {
+    private static final int LEVEL_NUMBER = 23; //the played level
+    private ReplayRecorder recorder; //records the game if started with --record, otherwise null
+
     /**
      * the starter for the level
+     * Start with --view=canvas to draw the level into a single canvas instead of one node per tile,
+     * run with -Djavafx.pulseLogger=true to compare the frame times of both views.
+     * Start with --sim=async to run the turns on a simulation thread instead of the JavaFX application thread.
+     * Start with --record=file to save every input as a {@link discpative.replay.Replay} when the window closes.
      * @param primaryStage the stage window
      */
     public void start(Stage primaryStage) {
-        Level level = new Level(23);
-        LevelController controller = new LevelController(level);
-        View view = new View(level, controller);
+        Level level = new Level(LEVEL_NUMBER);
+        LevelController controller;
+        if ("async".equals(getParameters().getNamed().get("sim")))
+            controller = new AsyncLevelController(level);
+        else
+            controller = new LevelController(level);
+        if (getParameters().getNamed().containsKey("record")) {
+            recorder = new ReplayRecorder(LEVEL_NUMBER, level);
+            controller.setRecorder(recorder);
+        }
+        Region view;
+        if ("canvas".equals(getParameters().getNamed().get("view")))
+            view = new CanvasView(level, controller);
+        else
+            view = new View(level, controller);
 
         Scene scene = new Scene(view);
         primaryStage.setTitle("DisCaptive");
@@ -30,6 +56,16 @@ public class Discaptive extends Application {
         view.requestFocus();
     }
 
+    /**
+     * Saves the recorded game
+     * @throws IOException if the replay file cannot be written
+     */
+    @Override
+    public void stop() throws IOException {
+        if (recorder != null)
+            recorder.toReplay().write(Paths.get(getParameters().getNamed().get("record")));
+    }
+
     /**
      * Mehtod that gets called on startup.
      * @param args command line arguments
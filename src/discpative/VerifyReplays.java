@@ -0,0 +1,215 @@
+package discpative;
+
+import discpative.io.Out;
+import discpative.io.TextWriter;
+import discpative.model.LevelCache;
+import discpative.replay.Replay;
+import discpative.replay.ReplayPlayer;
+import discpative.replay.ReplayResult;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Verifies many replays at once.
+ *
+ * Reads the replays from a directory of {@link Replay#EXTENSION} files or from a stream of
+ * concatenated replays and plays them on a fixed pool of worker threads. All workers share one
+ * {@link LevelCache}, so every level is parsed once. At most a few replays per worker wait in the queue,
+ * the reading thread plays a replay itself when the queue is full.
+ * Writes one line per replay and a summary with the throughput and latency percentiles to the results file.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class VerifyReplays {
+    private static final int QUEUE_PER_WORKER = 4; //replays waiting per worker before the reader has to help
+
+    private final ReplayPlayer player; //plays the replays, shared by all workers
+    private final LevelCache levels; //parsed levels, shared by all workers
+    private final TextWriter results; //receives a line per replay
+    private final ThreadPoolExecutor workers; //bounded pool that plays the replays
+    private final AtomicInteger valid = new AtomicInteger(); //replays whose checksums all matched
+    private final AtomicInteger invalid = new AtomicInteger(); //replays that diverged or could not be played
+    private final AtomicLong inputs = new AtomicLong(); //inputs of all played replays
+    private long[] latencyBuffer = new long[1024]; //nanoseconds from queueing to verifying of every replay, guarded by this
+    private int latencyCount; //number of stored latencies, guarded by this
+
+    /**
+     * Constructor.
+     * @param results receives a line per replay
+     * @param threads number of worker threads
+     */
+    public VerifyReplays(TextWriter results, int threads) {
+        this.results = results;
+        levels = new LevelCache(256);
+        player = new ReplayPlayer(levels);
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_PER_WORKER), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Queues a replay for verification
+     * @param name name of the replay in the results
+     * @param replay the replay
+     */
+    public void submit(String name, Replay replay) {
+        long queued = System.nanoTime();
+        workers.execute(() -> verify(name, replay, queued));
+    }
+
+    /**
+     * Verifies the replays of all files with the replay extension in a directory, in the order of their names
+     * @param directory the directory
+     * @throws IOException if the directory cannot be listed
+     */
+    public void submitDirectory(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(file -> file.getFileName().toString().endsWith(Replay.EXTENSION))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            try {
+                submit(file.getFileName().toString(), Replay.read(file));
+            } catch (IOException e) {
+                fail(file.getFileName().toString(), e);
+            }
+        }
+    }
+
+    /**
+     * Verifies concatenated replays until the end of a stream.
+     * A broken replay is reported as invalid and ends the stream, the following replays cannot be found.
+     * @param in the stream, is not closed
+     * @throws IOException if the stream cannot be read
+     */
+    public void submitStream(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        for (int index = 0;; index++) {
+            buffered.mark(1);
+            if (buffered.read() < 0)
+                return;
+            buffered.reset();
+            Replay replay;
+            try {
+                replay = Replay.read(buffered);
+            } catch (IOException e) {
+                fail("#" + index, e);
+                return;
+            }
+            submit("#" + index, replay);
+        }
+    }
+
+    /**
+     * Waits until all queued replays are verified and writes the summary
+     * @param elapsed nanoseconds since the first replay was queued
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public void finish(long elapsed) throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(latencyBuffer, latencyCount);
+        }
+        Arrays.sort(sorted);
+        int count = valid.get() + invalid.get();
+        results.println(String.format("replays=%d valid=%d invalid=%d threads=%d time=%.1fms",
+                count, valid.get(), invalid.get(), workers.getMaximumPoolSize(), elapsed / 1e6));
+        results.println(String.format("throughput %.1f replays/s %.0f inputs/s",
+                count * 1e9 / elapsed, inputs.get() * 1e9 / elapsed));
+        results.println(String.format("latency p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms",
+                percentile(sorted, 50) / 1e6, percentile(sorted, 90) / 1e6,
+                percentile(sorted, 99) / 1e6, percentile(sorted, 100) / 1e6));
+        results.println(String.format("levels parsed=%d reused=%d", levels.getMisses(), levels.getHits()));
+    }
+
+    /**
+     * Plays a replay on a worker thread and writes its result
+     * @param name name of the replay in the results
+     * @param replay the replay
+     * @param queued time the replay was queued, from {@link System#nanoTime()}
+     */
+    private void verify(String name, Replay replay, long queued) {
+        try {
+            ReplayResult result = player.play(replay);
+            inputs.addAndGet(result.getInputCount());
+            (result.isValid() ? valid : invalid).incrementAndGet();
+            results.println(name + ": " + result);
+        } catch (IOException | RuntimeException | StackOverflowError e) {
+            fail(name, e); //a broken replay must not take a worker down
+        }
+        addLatency(System.nanoTime() - queued);
+    }
+
+    /**
+     * Writes a replay that could not be played
+     * @param name name of the replay in the results
+     * @param e the cause
+     */
+    private void fail(String name, Throwable e) {
+        invalid.incrementAndGet();
+        results.println(name + ": error " + e);
+    }
+
+    private synchronized void addLatency(long latency) {
+        if (latencyCount == latencyBuffer.length)
+            latencyBuffer = Arrays.copyOf(latencyBuffer, latencyCount * 2);
+        latencyBuffer[latencyCount++] = latency;
+    }
+
+    /**
+     * Nearest rank percentile
+     * @param sorted values in ascending order
+     * @param percent the percentile, 100 for the maximum
+     * @return the value, 0 if there are no values
+     */
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0)
+            return 0;
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * Starts the verification.
+     * @param args directory of replay files or - for concatenated replays on standard input,
+     *             optional results file (default results.txt) and number of worker threads
+     * @throws IOException if the replays cannot be read or the results file cannot be written
+     * @throws InterruptedException if the main thread is interrupted while waiting for the workers
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            Out.println("usage: VerifyReplays <directory|-> [results file] [threads]");
+            return;
+        }
+        String resultsFile = args.length > 1 ? args[1] : "results.txt";
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        try (TextWriter results = new TextWriter(resultsFile)) {
+            VerifyReplays verifier = new VerifyReplays(results, threads);
+            long start = System.nanoTime();
+            if ("-".equals(args[0]))
+                verifier.submitStream(System.in);
+            else
+                verifier.submitDirectory(Paths.get(args[0]));
+            verifier.finish(System.nanoTime() - start);
+        }
+        Out.println("results written to " + resultsFile);
+    }
+}
@@ -0,0 +1,128 @@
+package discpative.controller;
+
+import discpative.model.LevelInterface;
+import discpative.view.ViewInterface;
+import javafx.application.Platform;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Level Controller that runs the turns on a simulation thread.
+ *
+ * Input handlers on the JavaFX application thread only queue the input and return at once.
+ * The simulation thread runs the turn, the views get the resulting {@link discpative.model.ChangeSet}
+ * through {@link Platform#runLater(Runnable)}. The next turn starts only after the views applied the
+ * changes, so views never read the model while a turn is running.
+ *
+ * Key repeats are coalesced: a move is dropped if {@link #MAX_PENDING} inputs already wait and the last of them
+ * is the same move, so a burst of key repeats never piles up behind a slow turn.
+ * Clicks, undos, redos and other moves are never dropped, the game and a recorded replay see every one of them.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class AsyncLevelController extends LevelController {
+    private static final int MAX_PENDING = 2; //waiting inputs from which on a repeated move is dropped
+
+    private final ArrayDeque<Runnable> pending = new ArrayDeque<>(); //waiting inputs, guarded by this
+    private Direction lastPendingMove; //direction if the last waiting input is a move, else null, guarded by this
+    private final ExecutorService simulation; //runs the turns one after another
+    private boolean draining; //the simulation thread is working on the waiting inputs, guarded by this
+
+    /**
+     * Constructor.
+     *
+     * @param level model of the level
+     */
+    public AsyncLevelController(LevelInterface level) {
+        super(level);
+        simulation = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "simulation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void handleMove(ViewInterface view, Direction direction) {
+        submit(() -> super.handleMove(view, direction), direction);
+    }
+
+    @Override
+    public void handleClick(ViewInterface view, int row, int col) {
+        submit(() -> super.handleClick(view, row, col), null);
+    }
+
+    @Override
+    public void handleUndo(ViewInterface view) {
+        submit(() -> super.handleUndo(view), null);
+    }
+
+    @Override
+    public void handleRedo(ViewInterface view) {
+        submit(() -> super.handleRedo(view), null);
+    }
+
+    /**
+     * Stops the simulation thread, waiting inputs are dropped
+     */
+    public void shutdown() {
+        simulation.shutdownNow();
+    }
+
+    /**
+     * Queues an input, drops a key repeat of the last waiting move if enough inputs wait
+     * @param turn the turn to run for the input
+     * @param move direction if the input is a move, null for any other input
+     */
+    private synchronized void submit(Runnable turn, Direction move) {
+        if (move != null && move == lastPendingMove && pending.size() >= MAX_PENDING)
+            return;
+        pending.addLast(turn);
+        lastPendingMove = move;
+        if (!draining && !simulation.isShutdown()) {
+            draining = true;
+            simulation.execute(this::drain);
+        }
+    }
+
+    /**
+     * Runs the waiting inputs on the simulation thread until there are none left
+     */
+    private void drain() {
+        while (true) {
+            Runnable turn;
+            synchronized (this) {
+                turn = pending.pollFirst();
+                if (pending.isEmpty())
+                    lastPendingMove = null;
+                if (turn == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            turn.run();
+            if (!awaitViews())
+                return;
+        }
+    }
+
+    /**
+     * Waits until the JavaFX application thread ran everything published so far
+     * @return false if the simulation thread was interrupted
+     */
+    private boolean awaitViews() {
+        CountDownLatch applied = new CountDownLatch(1);
+        Platform.runLater(applied::countDown);
+        try {
+            applied.await();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
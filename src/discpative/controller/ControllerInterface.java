@@ -30,4 +30,16 @@ public interface ControllerInterface {
      * @param view the active {@link discpative.view.View} where the announcement should be handled on
      */
     void handleComplete (ViewInterface view);
+
+    /**
+     * takes back the last turn
+     * @param view the active {@link discpative.view.View} where the undo should be handled on
+     */
+    void handleUndo(ViewInterface view);
+
+    /**
+     * repeats the last turn taken back
+     * @param view the active {@link discpative.view.View} where the redo should be handled on
+     */
+    void handleRedo(ViewInterface view);
 }
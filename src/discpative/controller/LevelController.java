@@ -1,43 +1,136 @@
 package discpative.controller;
 
-import discpative.io.Out;
-import discpative.model.Level;
+import discpative.io.TextWriter;
+import discpative.model.LevelInterface;
+import discpative.replay.Replay;
+import discpative.replay.ReplayRecorder;
+import discpative.tools.Tools;
 import discpative.view.ViewInterface;
 
 /**
  * Level Controller.
  *
- * Look up {@link ControllerInterface} or {@link #LevelController(Level)} for more information.
+ * Look up {@link ControllerInterface} or {@link #LevelController(LevelInterface)} for more information.
  */
 public class LevelController implements ControllerInterface{
-    private Level level; //model of the level
-    private boolean active; //status of the level
+    private LevelInterface level; //model of the level
+    private volatile boolean active; //status of the level, also read by the simulation thread
+    private boolean stuck; //the level can no longer be won
+    private ReplayRecorder recorder; //records every input, null if the game is not recorded
+    private TextWriter out = TextWriter.console(); //receives the status messages
+    private boolean deadlockCheck = true; //tell the player once the level can no longer be won
 
     /**
      * Constructor.
      *
      * @param level model of the level
      */
-    public LevelController(Level level) {
+    public LevelController(LevelInterface level) {
         this.level = level;
         active = true;
     }
 
+    /**
+     * Setter.
+     * @param recorder records every following input, null to stop recording
+     */
+    public void setRecorder(ReplayRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Setter.
+     * @param out writer for the status messages, e.g. one per session
+     */
+    public void setOutput(TextWriter out) {
+        this.out = out;
+    }
+
+    /**
+     * Setter.
+     * Without the check no dead squares are computed for the level, which saves memory and time per turn.
+     * @param deadlockCheck true to tell the player once the level can no longer be won
+     */
+    public void setDeadlockCheck(boolean deadlockCheck) {
+        this.deadlockCheck = deadlockCheck;
+    }
+
     @Override
     public void handleMove(ViewInterface view, Direction direction) {
-        if (active && level.canPlayerMoveTo(direction))
-            level.movePlayerTo(direction);
+        if (active)
+            move(direction);
     }
 
     @Override
     public void handleClick(ViewInterface view, int row, int col) {
-        if(active && level.canplayerMoveTo(row, col))
-        level.movePlayerTo(row, col);
+        if (!active)
+            return;
+        Direction direction = clickDirection(row, col);
+        if (direction != null)
+            move(direction);
     }
 
     @Override
     public void handleComplete(ViewInterface view) {
         active ^= true;
-        Out.println("Level done!");
+        out.println("Level done!");
+    }
+
+    @Override
+    public void handleUndo(ViewInterface view) {
+        if (level.undo()) {
+            active = true;
+            stuck = deadlockCheck && !level.isLost() && level.isUnwinnable();
+        }
+        if (recorder != null)
+            recorder.record(Replay.UNDO);
+    }
+
+    @Override
+    public void handleRedo(ViewInterface view) {
+        if (level.redo())
+            checkDeadlock();
+        if (recorder != null)
+            recorder.record(Replay.REDO);
+    }
+
+    /**
+     * Moves the player if possible, a blocked move is recorded as well because it may push guards
+     * @param direction direction of the move
+     */
+    private void move(Direction direction) {
+        if (level.canPlayerMoveTo(direction)) {
+            level.movePlayerTo(direction);
+            checkDeadlock();
+        }
+        if (recorder != null)
+            recorder.record(direction);
+    }
+
+    /**
+     * Finds the move that reaches a clicked cell
+     * @param row row of the clicked cell
+     * @param col column of the clicked cell
+     * @return the direction of the move, null if the player is not next to the cell
+     */
+    private Direction clickDirection(int row, int col) {
+        for (Direction direction : Direction.values()) {
+            int fromRow = row - Tools.dir2row(direction);
+            int fromCol = col - Tools.dir2col(direction);
+            if (0 <= fromRow && fromRow < level.getRowCount() && 0 <= fromCol && fromCol < level.getColCount()
+                    && level.isPlayerAt(fromRow, fromCol))
+                return direction;
+        }
+        return null;
+    }
+
+    /**
+     * Tells the player once if the level can no longer be won
+     */
+    private void checkDeadlock() {
+        if (deadlockCheck && !stuck && !level.isLost() && level.isUnwinnable()) {
+            stuck = true;
+            out.println("The level can no longer be won.");
+        }
     }
 }
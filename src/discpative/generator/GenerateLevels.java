@@ -0,0 +1,319 @@
+package discpative.generator;
+
+import discpative.controller.Direction;
+import discpative.io.Out;
+import discpative.io.TextWriter;
+import discpative.model.CellCodec;
+import discpative.model.CompactLevel;
+import discpative.model.Level;
+import discpative.model.LevelTemplate;
+import discpative.solver.AStarSolver;
+import discpative.solver.Heuristic;
+import discpative.solver.Solution;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Generates levels that can be won and are not too easy.
+ *
+ * Every worker thread builds maps with a {@link LevelGenerator}, one seed per attempt, and checks them on its own:
+ * an {@link AStarSolver} finds the shortest solution, which is then played on a {@link Level} to make sure the
+ * game agrees. A map is kept if it is new, its solution has at least the minimum number of moves and is at least
+ * {@link #MIN_DETOUR} moves longer than the walk to the nearest objective, so something has to be done on the way.
+ * The search only plays the moves of its solution, so every map is also played from up to {@link #EXPLORE_STATES}
+ * reachable states and by random games with undo, a map the game crashes on is dropped. This is a sample, not
+ * a proof: the state hash leaves out some state of the game, e.g. the axis a pushed guard was checked on.
+ * Kept maps are written as Level&lt;number&gt;.txt in the text format of resources/levels,
+ * their seed and difficulty go to levels.csv in the same directory.
+ * Every attempt is checked the same way for a given seed, but with more than one worker the set of kept maps
+ * and their numbers depend on the timing of the threads: which attempts finish before the count is reached
+ * and which of two equal maps is kept first. Use one thread for a reproducible set.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class GenerateLevels {
+    private static final int MIN_DETOUR = 4; //moves the solution needs beyond the plain walk to the objective
+    private static final int MAX_STATES = 200_000; //the search of a map gives up after storing this many states
+    private static final int EXPLORE_STATES = 20_000; //reachable states every move is tried from
+    private static final int EXPLORE_DEPTH = 500; //longest path of moves the exploration follows
+    private static final int RANDOM_GAMES = 256; //random games with undo and redo played on every map
+    private static final int RANDOM_INPUTS = 400; //inputs of a random game
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final LevelGenerator generator; //builds the maps
+    private final Path directory; //receives the level files
+    private final int count; //number of levels to generate
+    private final long seed; //seed of the first attempt
+    private final int minMoves; //moves the solution needs at least
+    private final TextWriter index; //one line per kept level
+    private final Set<String> seen = ConcurrentHashMap.newKeySet(); //every kept map
+    private final AtomicLong attempts = new AtomicLong(); //number of the next attempt
+    private final AtomicInteger kept = new AtomicInteger(); //number of the next kept level
+    private final AtomicLong duplicates = new AtomicLong(); //maps generated before
+    private final AtomicLong incomplete = new AtomicLong(); //maps without room for every kind of tile
+    private final AtomicLong unsolved = new AtomicLong(); //maps the search could not win
+    private final AtomicLong easy = new AtomicLong(); //maps won too quickly
+    private final AtomicLong diverged = new AtomicLong(); //maps where the game does not win with the solution
+    private final AtomicLong crashed = new AtomicLong(); //maps the game crashes on in normal play
+
+    /**
+     * Constructor.
+     * @param generator builds the maps
+     * @param directory receives the level files, must exist
+     * @param count number of levels to generate
+     * @param seed seed of the first attempt, attempt n uses seed + n
+     * @param minMoves moves the solution needs at least
+     * @throws IOException if the index cannot be created
+     */
+    public GenerateLevels(LevelGenerator generator, Path directory, int count, long seed, int minMoves)
+            throws IOException {
+        this.generator = generator;
+        this.directory = directory;
+        this.count = count;
+        this.seed = seed;
+        this.minMoves = minMoves;
+        index = new TextWriter(directory.resolve("levels.csv").toString());
+        index.println("level,seed,rows,cols,moves,detour,expanded");
+    }
+
+    /**
+     * Generates the levels on a fixed number of worker threads
+     * @param threads number of worker threads
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public void run(int threads) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++)
+            workers.execute(this::work);
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        index.close();
+    }
+
+    /**
+     * Tries maps until enough levels are kept
+     */
+    private void work() {
+        while (kept.get() < count) {
+            long attemptSeed = seed + attempts.getAndIncrement();
+            char[][] map = generator.generate(attemptSeed);
+            if (!LevelGenerator.isComplete(map)) {
+                incomplete.incrementAndGet();
+                continue;
+            }
+            CompactLevel level = new CompactLevel(map);
+            int walk = new Heuristic(level).estimate(level);
+            if (walk == Heuristic.INFINITE) {
+                unsolved.incrementAndGet();
+                continue;
+            }
+            AStarSolver solver = new AStarSolver(level);
+            solver.setMaxStates(MAX_STATES);
+            Solution solution = solver.solve();
+            if (!solution.isSolved()) {
+                unsolved.incrementAndGet();
+                continue;
+            }
+            if (solution.getMoveCount() < minMoves || solution.getMoveCount() - walk < MIN_DETOUR) {
+                easy.incrementAndGet();
+                continue;
+            }
+            if (!winsInGame(map, solution.getMoves())) {
+                diverged.incrementAndGet();
+                continue;
+            }
+            if (crashesInGame(map, attemptSeed)) {
+                crashed.incrementAndGet();
+                continue;
+            }
+            if (!seen.add(toText(map))) {
+                duplicates.incrementAndGet();
+                continue;
+            }
+            keep(map, attemptSeed, solution, solution.getMoveCount() - walk);
+        }
+    }
+
+    /**
+     * Plays a solution on the model of the game
+     * @param map the map
+     * @param moves the moves of the solution
+     * @return true if the game is won after the last move
+     */
+    private static boolean winsInGame(char[][] map, Direction[] moves) {
+        try {
+            Level level = new Level(new LevelTemplate(map));
+            level.setOutput(TextWriter.discard());
+            for (Direction move : moves) {
+                if (!level.canPlayerMoveTo(move))
+                    return false;
+                level.movePlayerTo(move);
+            }
+            return level.isWon();
+        } catch (RuntimeException | StackOverflowError e) {
+            return false; //a map the game cannot handle is no level
+        }
+    }
+
+    /**
+     * Plays a map the way a player might, every move from every reachable state and random games with undo.
+     * The reachable states are searched depth first on one {@link Level}, each move is taken back with undo.
+     * Besides exceptions, a game that loses the player, a guard or a crate without filling a pitfall counts
+     * as crashed, the model breaks that way before it throws.
+     * @param map the map
+     * @param attemptSeed seed of the random games
+     * @return true if the game crashed
+     */
+    private static boolean crashesInGame(char[][] map, long attemptSeed) {
+        try {
+            Level level = new Level(new LevelTemplate(map));
+            level.setOutput(TextWriter.discard());
+            int movables = countMovables(level);
+            Set<Long> visited = new HashSet<>();
+            visited.add(level.getStateHash());
+            int[] next = new int[EXPLORE_DEPTH + 1]; //next direction to try on every level of the search
+            int depth = 0;
+            while (depth >= 0) {
+                if (next[depth] == DIRECTIONS.length || level.isWon() || level.isLost()) {
+                    if (depth-- > 0)
+                        level.undo();
+                    continue;
+                }
+                Direction move = DIRECTIONS[next[depth]++];
+                long before = level.getStateHash();
+                int moves = level.getMoveCount();
+                if (level.canPlayerMoveTo(move))
+                    level.movePlayerTo(move);
+                if (level.getStateHash() == before) {
+                    if (level.getMoveCount() != moves)
+                        level.undo(); //a move back to the same state, take it back to keep the search in step
+                    continue;
+                }
+                if (countMovables(level) != movables)
+                    return true;
+                if (depth == EXPLORE_DEPTH || visited.size() >= EXPLORE_STATES || !visited.add(level.getStateHash()))
+                    level.undo();
+                else
+                    next[++depth] = 0;
+            }
+            Random random = new Random(attemptSeed);
+            for (int game = 0; game < RANDOM_GAMES; game++) {
+                level.reset();
+                for (int input = 0; input < RANDOM_INPUTS; input++) {
+                    int pick = random.nextInt(DIRECTIONS.length + 2);
+                    if (pick == DIRECTIONS.length)
+                        level.undo();
+                    else if (pick > DIRECTIONS.length)
+                        level.redo();
+                    else if (level.canPlayerMoveTo(DIRECTIONS[pick]))
+                        level.movePlayerTo(DIRECTIONS[pick]);
+                }
+                if (countMovables(level) != movables)
+                    return true;
+            }
+            return false;
+        } catch (RuntimeException | StackOverflowError e) {
+            return true;
+        }
+    }
+
+    /**
+     * Counts the movables of a level, a crate that filled a pitfall still counts
+     * @param level the level
+     * @return players, guards and crates in one number, one digit of base 256 each
+     */
+    private static int countMovables(Level level) {
+        int count = 0;
+        for (int row = 0; row < level.getRowCount(); row++)
+            for (int col = 0; col < level.getColCount(); col++) {
+                int state = CellCodec.encode(level, row, col);
+                int occupant = CellCodec.occupant(state);
+                if (occupant != CompactLevel.NONE)
+                    count += 1 << 8 * (occupant - 1);
+                else if (CellCodec.isFilled(state))
+                    count += 1 << 8 * (CompactLevel.CRATE - 1);
+            }
+        return count;
+    }
+
+    /**
+     * Writes a level file and its line in the index
+     * @param map the map
+     * @param attemptSeed seed the map was built from
+     * @param solution shortest solution of the map
+     * @param detour moves beyond the plain walk to the objective
+     */
+    private void keep(char[][] map, long attemptSeed, Solution solution, int detour) {
+        int number = kept.getAndIncrement();
+        if (number >= count)
+            return; //another worker kept the last level first
+        try {
+            Files.writeString(directory.resolve("Level" + number + ".txt"), toText(map));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        synchronized (index) {
+            index.println(number + "," + attemptSeed + "," + map.length + "," + map[0].length + ","
+                    + solution.getMoveCount() + "," + detour + "," + solution.getStatesExpanded());
+        }
+        Out.println("Level" + number + ": " + map.length + "x" + map[0].length + " moves="
+                + solution.getMoveCount() + " detour=" + detour + " expanded=" + solution.getStatesExpanded());
+    }
+
+    private static String toText(char[][] map) {
+        return Arrays.stream(map).map(String::new).collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Getter.
+     * @return a line with the number of tried maps and why they were dropped
+     */
+    public String summary() {
+        return String.format("attempts=%d kept=%d incomplete=%d duplicates=%d unsolved=%d easy=%d diverged=%d"
+                        + " crashed=%d", attempts.get(), Math.min(kept.get(), count), incomplete.get(),
+                duplicates.get(), unsolved.get(), easy.get(), diverged.get(), crashed.get());
+    }
+
+    /**
+     * Starts the generator.
+     * @param args number of levels, optional output directory (default generated), number of worker threads,
+     *             seed of the first attempt and moves the solution needs at least
+     * @throws IOException if the directory or a level file cannot be written
+     * @throws InterruptedException if the main thread is interrupted while waiting for the workers
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            Out.println("usage: GenerateLevels <count> [directory] [threads] [seed] [min moves]");
+            return;
+        }
+        int count = Integer.parseInt(args[0]);
+        Path directory = Paths.get(args.length > 1 ? args[1] : "generated");
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        int minMoves = args.length > 4 ? Integer.parseInt(args[4]) : 12;
+        Files.createDirectories(directory);
+        GenerateLevels levels = new GenerateLevels(new LevelGenerator(), directory, count, seed, minMoves);
+        long start = System.nanoTime();
+        levels.run(threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Out.println(levels.summary());
+        Out.println(String.format("%d levels in %.1fs on %d threads, %.0f maps/s",
+                count, seconds, threads, levels.attempts.get() / seconds));
+    }
+}
@@ -0,0 +1,236 @@
+package discpative.generator;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Builds random maps in the text format of the levels.
+ *
+ * A map is a room surrounded by walls with some walls inside. It always holds the player, an objective
+ * far from the player and at least one of every other kind of tile: pitfalls and crates to fill them,
+ * guards facing in a random direction, rotation passages, a run of icy tiles and a curved icy tile
+ * at the end of the run that turns the slide. The game cannot handle a curved icy tile entered through
+ * one of its closed sides, so both are walled up. The same seed always gives the same map.
+ * Whether a map can be won is up to the caller, see {@link GenerateLevels}. Thread safe once configured.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class LevelGenerator {
+    private static final int[] ROW_STEP = {-1, 0, 0, 1}; //row offset per direction ordinal
+    private static final int[] COL_STEP = {0, 1, -1, 0}; //column offset per direction ordinal
+    private static final String GUARDS = "NOWS"; //guards facing up, right, left, down
+    //curved icy tiles open to the side a slide enters from, indexed by the direction ordinal of that side
+    private static final String[] CURVED = {"nw", "no", "sw", "os"};
+    //direction ordinals of the closed sides of the curved icy tiles n, o, s and w
+    private static final int[][] CLOSED = {{2, 3}, {0, 2}, {0, 1}, {1, 3}};
+    private static final int TRIES = 200; //attempts to find a free cell
+
+    private int minRows = 6; //fewest rows of a map, including the border
+    private int maxRows = 10; //most rows of a map, including the border
+    private int minCols = 8; //fewest columns of a map, including the border
+    private int maxCols = 14; //most columns of a map, including the border
+    private double wallDensity = 0.12; //share of the inner cells that become walls
+    private int maxGuards = 2; //most guards per map
+    private int maxPitfalls = 2; //most pitfalls per map
+    private int maxIcyRun = 4; //longest run of icy tiles
+
+    /**
+     * Setter.
+     * @param minRows fewest rows of a map, including the border, at least 5
+     * @param maxRows most rows of a map, including the border
+     */
+    public void setRows(int minRows, int maxRows) {
+        if (minRows < 5 || maxRows < minRows)
+            throw new IllegalArgumentException("rows " + minRows + ".." + maxRows);
+        this.minRows = minRows;
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Setter.
+     * @param minCols fewest columns of a map, including the border, at least 5
+     * @param maxCols most columns of a map, including the border
+     */
+    public void setCols(int minCols, int maxCols) {
+        if (minCols < 5 || maxCols < minCols)
+            throw new IllegalArgumentException("columns " + minCols + ".." + maxCols);
+        this.minCols = minCols;
+        this.maxCols = maxCols;
+    }
+
+    /**
+     * Setter.
+     * @param wallDensity share of the inner cells that become walls, between 0 and 0.5
+     */
+    public void setWallDensity(double wallDensity) {
+        this.wallDensity = wallDensity;
+    }
+
+    /**
+     * Setter.
+     * @param maxGuards most guards per map, at least 1
+     */
+    public void setMaxGuards(int maxGuards) {
+        this.maxGuards = Math.max(maxGuards, 1);
+    }
+
+    /**
+     * Setter.
+     * @param maxPitfalls most pitfalls per map, at least 1
+     */
+    public void setMaxPitfalls(int maxPitfalls) {
+        this.maxPitfalls = Math.max(maxPitfalls, 1);
+    }
+
+    /**
+     * Builds a map
+     * @param seed seed of the random choices
+     * @return the map as rectangular array of characters, as read by the levels
+     */
+    public char[][] generate(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int rows = random.nextInt(minRows, maxRows + 1);
+        int cols = random.nextInt(minCols, maxCols + 1);
+        char[][] map = new char[rows][cols];
+        for (int row = 0; row < rows; row++) {
+            Arrays.fill(map[row], ' ');
+            map[row][0] = '#';
+            map[row][cols - 1] = '#';
+        }
+        Arrays.fill(map[0], '#');
+        Arrays.fill(map[rows - 1], '#');
+        for (int row = 1; row < rows - 1; row++)
+            for (int col = 1; col < cols - 1; col++)
+                if (random.nextDouble() < wallDensity)
+                    map[row][col] = '#';
+
+        int player = place(map, random, '@');
+        placeObjective(map, random, player);
+        placeIcyRun(map, random);
+        int pitfalls = random.nextInt(1, maxPitfalls + 1);
+        for (int i = 0; i < pitfalls; i++)
+            place(map, random, '!');
+        int crates = pitfalls + random.nextInt(2);
+        for (int i = 0; i < crates; i++)
+            place(map, random, '$');
+        int rotations = random.nextInt(1, 3);
+        for (int i = 0; i < rotations; i++)
+            place(map, random, random.nextBoolean() ? 'L' : 'R');
+        int guards = random.nextInt(1, maxGuards + 1);
+        for (int i = 0; i < guards; i++)
+            place(map, random, GUARDS.charAt(random.nextInt(4)));
+        return map;
+    }
+
+    /**
+     * Checks if a map holds the player, an objective and every other kind of tile,
+     * a crowded map may run out of free cells before all are placed
+     * @param map the map
+     * @return true if nothing is missing
+     */
+    public static boolean isComplete(char[][] map) {
+        String[] kinds = {"@", ".", "!", "$", GUARDS, "LR", "=", "nosw"};
+        for (String kind : kinds) {
+            boolean found = false;
+            for (int row = 0; row < map.length && !found; row++)
+                for (char c : map[row])
+                    if (kind.indexOf(c) >= 0) {
+                        found = true;
+                        break;
+                    }
+            if (!found)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Puts a tile on a random free cell
+     * @param map the map
+     * @param random source of the random choices
+     * @param symbol character of the tile
+     * @return row * colCount + col of the cell, -1 if no free cell was found
+     */
+    private static int place(char[][] map, SplittableRandom random, char symbol) {
+        int cell = freeCell(map, random);
+        if (cell >= 0)
+            map[cell / map[0].length][cell % map[0].length] = symbol;
+        return cell;
+    }
+
+    /**
+     * Finds a random free inner cell
+     * @param map the map
+     * @param random source of the random choices
+     * @return row * colCount + col of the cell, -1 if none was found
+     */
+    private static int freeCell(char[][] map, SplittableRandom random) {
+        int cols = map[0].length;
+        for (int i = 0; i < TRIES; i++) {
+            int row = random.nextInt(1, map.length - 1);
+            int col = random.nextInt(1, cols - 1);
+            if (map[row][col] == ' ')
+                return row * cols + col;
+        }
+        return -1;
+    }
+
+    /**
+     * Puts the objective on the free cell farthest from the player out of a few random ones
+     * @param map the map
+     * @param random source of the random choices
+     * @param player cell of the player
+     */
+    private static void placeObjective(char[][] map, SplittableRandom random, int player) {
+        int cols = map[0].length;
+        int best = -1;
+        int bestDistance = -1;
+        for (int i = 0; i < 8; i++) {
+            int cell = freeCell(map, random);
+            if (cell < 0)
+                continue;
+            int distance = Math.abs(cell / cols - player / cols) + Math.abs(cell % cols - player % cols);
+            if (distance > bestDistance) {
+                best = cell;
+                bestDistance = distance;
+            }
+        }
+        if (best >= 0)
+            map[best / cols][best % cols] = '.';
+    }
+
+    /**
+     * Lays a straight run of icy tiles in a random direction, ended by a curved icy tile if there is room.
+     * Without room for the curved icy tile or its walls the map stays incomplete
+     * @param map the map
+     * @param random source of the random choices
+     */
+    private void placeIcyRun(char[][] map, SplittableRandom random) {
+        int cols = map[0].length;
+        int cell = freeCell(map, random);
+        if (cell < 0)
+            return;
+        int direction = random.nextInt(4);
+        int row = cell / cols;
+        int col = cell % cols;
+        int length = random.nextInt(1, maxIcyRun + 1);
+        for (int i = 0; i < length && map[row][col] == ' '; i++) {
+            map[row][col] = '=';
+            row += ROW_STEP[direction];
+            col += COL_STEP[direction];
+        }
+        if (map[row][col] != ' ')
+            return;
+        char curved = CURVED[3 - direction].charAt(random.nextInt(2)); //the slide enters from the opposite side
+        int[] closed = CLOSED["nosw".indexOf(curved)];
+        for (int side : closed) {
+            char neighbour = map[row + ROW_STEP[side]][col + COL_STEP[side]];
+            if (neighbour != ' ' && neighbour != '#')
+                return;
+        }
+        map[row][col] = curved;
+        for (int side : closed)
+            map[row + ROW_STEP[side]][col + COL_STEP[side]] = '#';
+    }
+}
@@ -0,0 +1,131 @@
+package discpative.io;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Text input owned by a single caller.
+ *
+ * Unlike {@link In} all state lives in the instance, so every thread can read its own files.
+ * Characters are read from the underlying reader in blocks into a buffer.
+ * An instance itself is not thread safe.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class TextReader implements Closeable {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader; //source of the text
+    private final char[] buffer; //characters read ahead
+    private int position; //next character in the buffer
+    private int limit; //number of valid characters in the buffer
+    private boolean done; //was the recent operation successful
+
+    /**
+     * Constructor.
+     * @param reader source of the text, is closed together with this reader
+     */
+    public TextReader(Reader reader) {
+        this.reader = reader;
+        buffer = new char[BUFFER_SIZE];
+        done = true;
+    }
+
+    /**
+     * Opens a text file for reading
+     * @param fileName path of the file
+     * @throws FileNotFoundException if the file cannot be opened
+     */
+    public TextReader(String fileName) throws FileNotFoundException {
+        this(new FileReader(fileName));
+    }
+
+    /**
+     * Reads a single character
+     * @return the character, -1 at the end of the text
+     */
+    public int read() {
+        if (position == limit && !fill()) {
+            done = false;
+            return -1;
+        }
+        done = true;
+        return buffer[position++];
+    }
+
+    /**
+     * Reads the rest of the current line.
+     * Accepts \n, \r and \r\n as end of line.
+     * @return the line without the end of line, null at the end of the text
+     */
+    public String readLine() {
+        StringBuilder line = new StringBuilder();
+        while (true) {
+            if (position == limit && !fill()) {
+                done = line.length() > 0;
+                return done ? line.toString() : null;
+            }
+            int start = position;
+            while (position < limit && buffer[position] != '\n' && buffer[position] != '\r')
+                position++;
+            line.append(buffer, start, position - start);
+            if (position < limit) {
+                if (buffer[position++] == '\r' && (position < limit || fill()) && buffer[position] == '\n')
+                    position++;
+                done = true;
+                return line.toString();
+            }
+        }
+    }
+
+    /**
+     * Reads the rest of the text
+     * @return the text, empty at the end of the text
+     */
+    public String readFile() {
+        StringBuilder text = new StringBuilder();
+        do {
+            text.append(buffer, position, limit - position);
+            position = limit;
+        } while (fill());
+        done = true;
+        return text.toString();
+    }
+
+    /**
+     * Checks if the previous operation was successful
+     * @return false if the previous operation hit the end of the text or an error
+     */
+    public boolean done() {
+        return done;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Reads the next block of characters into the buffer
+     * @return false at the end of the text or on errors
+     */
+    private boolean fill() {
+        try {
+            int read;
+            do {
+                read = reader.read(buffer, 0, buffer.length);
+            } while (read == 0);
+            if (read < 0)
+                return false;
+            position = 0;
+            limit = read;
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
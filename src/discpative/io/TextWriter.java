@@ -0,0 +1,113 @@
+package discpative.io;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Text output owned by a single caller.
+ *
+ * Unlike {@link Out} there is no global current output, every caller writes to its own writer.
+ * Writers to the same stream can be used from several threads, lines do not interleave.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class TextWriter implements Closeable {
+    private static final TextWriter CONSOLE = new TextWriter(System.out); //shared writer to the console
+    private static final TextWriter DISCARD = new TextWriter(OutputStream.nullOutputStream()); //drops all text
+
+    private final PrintStream out; //destination of the text
+    private final boolean console; //writes to System.out, which is never closed
+
+    /**
+     * Getter.
+     * @return a writer to the console, shared by all callers
+     */
+    public static TextWriter console() {
+        return CONSOLE;
+    }
+
+    /**
+     * Getter.
+     * @return a writer that drops all text, shared by all callers, e.g. to silence headless games
+     */
+    public static TextWriter discard() {
+        return DISCARD;
+    }
+
+    /**
+     * Constructor.
+     * @param out destination of the text, is closed together with this writer
+     */
+    public TextWriter(OutputStream out) {
+        this.out = out instanceof PrintStream ? (PrintStream) out : new PrintStream(out, true);
+        console = out == System.out;
+    }
+
+    /**
+     * Opens a file for writing
+     * @param fileName path of the file, is overwritten
+     * @throws FileNotFoundException if the file cannot be created
+     */
+    public TextWriter(String fileName) throws FileNotFoundException {
+        this(new PrintStream(new FileOutputStream(fileName)));
+    }
+
+    /**
+     * Writes a text
+     * @param text the text
+     */
+    public void print(String text) {
+        out.print(text);
+    }
+
+    /**
+     * Writes a text and ends the line
+     * @param text the text
+     */
+    public void println(String text) {
+        out.println(text);
+    }
+
+    /**
+     * Ends the line
+     */
+    public void println() {
+        out.println();
+    }
+
+    /**
+     * Writes a formatted text
+     * @param format format string as in {@link String#format(String, Object...)}
+     * @param args arguments of the format string
+     */
+    public void printf(String format, Object... args) {
+        out.printf(format, args);
+    }
+
+    /**
+     * Checks if all previous operations were successful
+     * @return false if an error occurred
+     */
+    public boolean done() {
+        return !out.checkError();
+    }
+
+    /**
+     * Writes all buffered text
+     */
+    public void flush() {
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        if (console)
+            out.flush();
+        else
+            out.close();
+    }
+}
@@ -0,0 +1,173 @@
+package discpative.model;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands the events of a level to another listener on a delivery thread of its own.
+ *
+ * The thread running the turn only queues the events, so a slow listener never stalls the simulation.
+ * All events of a turn, from {@link #turnStarted()} to {@link #turnEnded(ChangeSet)}, are queued together
+ * as one batch, events outside of a turn are a batch each. At most a fixed number of batches wait in the
+ * queue. A batch that finds the queue full is dropped as a whole, so the listener never sees half a turn,
+ * and the listener gets {@link LevelListenerInterface#resync(int)} before the next batch it receives.
+ * A {@link ChangeSet} is immutable and safe to read on the delivery thread.
+ * The events of a level have to come from one thread at a time, as the level fires them.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class AsyncListener implements LevelListenerInterface, Closeable {
+    private final LevelListenerInterface listener; //receives the events on the delivery thread
+    private final ThreadPoolExecutor delivery; //single delivery thread with a bounded queue
+    private final AtomicLong dropped = new AtomicLong(); //batches dropped because the queue was full
+    private ArrayList<Runnable> turn; //events of the running turn, null outside of a turn
+    private int unreported; //batches dropped since the last queued batch, the next one reports them
+
+    /**
+     * Constructor.
+     * @param listener receives the events on the delivery thread
+     * @param capacity number of turns that may wait for delivery
+     */
+    public AsyncListener(LevelListenerInterface listener, int capacity) {
+        this.listener = listener;
+        delivery = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(capacity), task -> {
+            Thread thread = new Thread(task, "level-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        delivery.prestartCoreThread();
+    }
+
+    @Override
+    public void turnStarted() {
+        if (turn != null)
+            queue(turn); //a turn without an end, pass on what it has
+        turn = new ArrayList<>();
+        turn.add(listener::turnStarted);
+    }
+
+    @Override
+    public void moved(int row, int col, int type) {
+        add(() -> listener.moved(row, col, type));
+    }
+
+    @Override
+    public void tileChanged(int row, int col) {
+        add(() -> listener.tileChanged(row, col));
+    }
+
+    @Override
+    public void won() {
+        add(listener::won);
+    }
+
+    @Override
+    public void lost() {
+        add(listener::lost);
+    }
+
+    @Override
+    public void turnEnded(ChangeSet changes) {
+        add(() -> listener.turnEnded(changes));
+        if (turn != null) {
+            queue(turn);
+            turn = null;
+        }
+    }
+
+    @Override
+    public void resync(int droppedTurns) {
+        add(() -> listener.resync(droppedTurns));
+    }
+
+    /**
+     * Adds an event to the running turn, or queues it on its own outside of a turn
+     * @param event delivers the event to the listener
+     */
+    private void add(Runnable event) {
+        if (turn != null)
+            turn.add(event);
+        else {
+            ArrayList<Runnable> single = new ArrayList<>(1);
+            single.add(event);
+            queue(single);
+        }
+    }
+
+    /**
+     * Queues a batch of events, drops it if the queue is full
+     * @param events the events in order
+     */
+    private void queue(ArrayList<Runnable> events) {
+        int lost = unreported;
+        try {
+            delivery.execute(() -> {
+                if (lost > 0)
+                    listener.resync(lost);
+                for (Runnable event : events)
+                    event.run();
+            });
+            unreported = 0;
+        } catch (RejectedExecutionException e) {
+            unreported++;
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Getter.
+     * @return number of turns and single events dropped because the queue was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Getter.
+     * @return number of batches waiting for delivery
+     */
+    public int getPending() {
+        return delivery.getQueue().size();
+    }
+
+    /**
+     * Waits until all queued events are delivered, reports batches dropped since the last one.
+     * Call it on the thread that fires the events.
+     * @param timeout longest time to wait in milliseconds
+     * @return true if all events were delivered in time
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public boolean awaitDelivery(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        CountDownLatch delivered = new CountDownLatch(1);
+        int lost = unreported;
+        Runnable marker = () -> {
+            if (lost > 0)
+                listener.resync(lost);
+            delivered.countDown();
+        };
+        while (!delivery.getQueue().offer(marker)) { //queue the marker behind all waiting events
+            if (System.currentTimeMillis() >= deadline)
+                return false;
+            Thread.sleep(1);
+        }
+        unreported = 0;
+        return delivered.await(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the delivery thread, waiting events are dropped.
+     * Unsubscribe the listener from the level first.
+     */
+    @Override
+    public void close() {
+        delivery.shutdownNow();
+    }
+}
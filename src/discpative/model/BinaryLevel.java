@@ -0,0 +1,186 @@
+package discpative.model;
+
+import discpative.controller.Direction;
+import discpative.io.Out;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary level format.
+ *
+ * A file starts with a header of three ints (big endian): the magic number,
+ * the number of rows and the number of columns. It is followed by one byte per cell in reading order:
+ * bits 0-3 hold the tile kind, bits 4-5 the occupant and bits 6-7 the direction of a guard,
+ * using the constants of {@link CompactLevel}.
+ * Files are read through a memory mapped {@link FileChannel}, the cells in one bulk copy.
+ * Running the class converts text level files into binary ones.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class BinaryLevel {
+    public static final String EXTENSION = ".dlv"; //file extension of binary levels
+    private static final int MAGIC = 0x444C5601; //"DLV" and version 1
+    private static final int HEADER_SIZE = 12; //bytes before the cells
+    private static final int OCCUPANT_SHIFT = 4;
+    private static final int DIRECTION_SHIFT = 6;
+
+    //characters of the text format and their cell bytes, in the same order
+    private static final String SYMBOLS = " #$@.*!NOWSLR=nosw";
+    private static final int[] CODES = {
+            CompactLevel.PASSAGE,
+            CompactLevel.WALL,
+            CompactLevel.PASSAGE | CompactLevel.CRATE << OCCUPANT_SHIFT,
+            CompactLevel.PASSAGE | CompactLevel.PLAYER << OCCUPANT_SHIFT,
+            CompactLevel.OBJECTIVE,
+            CompactLevel.OBJECTIVE | CompactLevel.CRATE << OCCUPANT_SHIFT,
+            CompactLevel.PITFALL,
+            guard(Direction.UP),
+            guard(Direction.RIGHT),
+            guard(Direction.LEFT),
+            guard(Direction.DOWN),
+            CompactLevel.ROTATION_LEFT,
+            CompactLevel.ROTATION_RIGHT,
+            CompactLevel.ICY,
+            CompactLevel.CURVED_UP_RIGHT,
+            CompactLevel.CURVED_DOWN_RIGHT,
+            CompactLevel.CURVED_DOWN_LEFT,
+            CompactLevel.CURVED_UP_LEFT
+    };
+    private static final char[] DECODE = new char[256]; //character of every cell byte, walls if invalid
+
+    static {
+        for (int i = 0; i < DECODE.length; i++)
+            DECODE[i] = '#';
+        for (int i = 0; i < CODES.length; i++)
+            DECODE[CODES[i]] = SYMBOLS.charAt(i);
+    }
+
+    /**
+     * Reads a binary level file
+     * @param path path of the file
+     * @return the level as array of characters, as read by {@link Level#loadLevel(int)}
+     * @throws IOException if the file cannot be read or is no binary level
+     */
+    public static char[][] read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE)
+                throw new IOException(path + " is no binary level");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC)
+                throw new IOException(path + " is no binary level");
+            int rowCount = buffer.getInt();
+            int colCount = buffer.getInt();
+            if (rowCount < 0 || colCount < 0 || (long) rowCount * colCount != size - HEADER_SIZE)
+                throw new IOException(path + " has a broken header");
+
+            byte[] cells = new byte[rowCount * colCount];
+            buffer.get(cells);
+            return decode(cells, 0, rowCount, colCount);
+        }
+    }
+
+    /**
+     * Checks if a binary level can be used in place of its text file
+     * @param binary path of the binary file
+     * @param text path of the text file it was converted from
+     * @return true if the binary file exists and is not older than the text file, or there is no text file
+     */
+    static boolean isUpToDate(Path binary, Path text) {
+        try {
+            if (!Files.isRegularFile(binary))
+                return false;
+            if (!Files.isRegularFile(text))
+                return true;
+            return Files.getLastModifiedTime(binary).compareTo(Files.getLastModifiedTime(text)) >= 0;
+        } catch (IOException e) {
+            return false; //read the text file, it is the source
+        }
+    }
+
+    /**
+     * Writes a level into a binary level file.
+     * Unknown characters are stored as walls, the same way {@link Level} reads them.
+     * @param level the level as rectangular array of characters
+     * @param path path of the file, is overwritten
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(char[][] level, Path path) throws IOException {
+        int rowCount = level.length;
+        int colCount = rowCount > 0 ? level[0].length : 0;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + rowCount * colCount);
+        buffer.putInt(MAGIC).putInt(rowCount).putInt(colCount);
+        encode(level, buffer);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * Converts text level files into binary ones next to them.
+     * @param args paths of the text files, all levels in resources/levels if none are given
+     */
+    public static void main(String[] args) {
+        String[] files = args;
+        if (files.length == 0) {
+            String[] names = new File("resources/levels").list((dir, name) -> name.endsWith(".txt"));
+            files = new String[names == null ? 0 : names.length];
+            for (int i = 0; i < files.length; i++)
+                files[i] = "resources/levels/" + names[i];
+        }
+        for (String file : files) {
+            String target = file.replaceFirst("\\.txt$", "") + EXTENSION;
+            try {
+                write(Level.readLevel(file), Paths.get(target));
+                Out.println(file + " -> " + target);
+            } catch (IOException e) {
+                Out.println("Could not convert " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the cell bytes of a level
+     * @param level the level as rectangular array of characters
+     * @param buffer destination, one byte per cell
+     */
+    static void encode(char[][] level, ByteBuffer buffer) {
+        for (char[] line : level)
+            for (char c : line) {
+                int symbol = SYMBOLS.indexOf(c);
+                buffer.put((byte) (symbol < 0 ? CompactLevel.WALL : CODES[symbol]));
+            }
+    }
+
+    /**
+     * Converts cell bytes back into characters
+     * @param cells source array
+     * @param offset index of the first cell
+     * @param rowCount total number of rows in the level
+     * @param colCount total number of columns in the level
+     * @return the level as array of characters
+     */
+    static char[][] decode(byte[] cells, int offset, int rowCount, int colCount) {
+        char[][] level = new char[rowCount][colCount];
+        for (int row = 0, cell = offset; row < rowCount; row++)
+            for (int col = 0; col < colCount; col++)
+                level[row][col] = DECODE[cells[cell++] & 0xFF];
+        return level;
+    }
+
+    private static int guard(Direction direction) {
+        return CompactLevel.PASSAGE | CompactLevel.GUARD << OCCUPANT_SHIFT | direction.ordinal() << DIRECTION_SHIFT;
+    }
+}
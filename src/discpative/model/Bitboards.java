@@ -0,0 +1,229 @@
+package discpative.model;
+
+import java.util.Arrays;
+
+/**
+ * Bit per cell view of a {@link Level}.
+ *
+ * Every layer is a bitset over all cells, cell = row * colCount + col. Walls and icy tiles never
+ * change, copies share these layers. Open pitfalls and the movables are copied and kept in sync by the
+ * {@link Level} on every move, so collision checks need no virtual calls on the tiles. Not thread safe.
+ *
+ * The cells of the movables are also in the tiles and in the {@link SightIndex}, each copy answers another
+ * question: a tile knows which movable it holds, the bitboards tell what kind of movable is on a cell for
+ * the collision checks, and the sight index keeps the rows and the columns as bitsets of their own so a
+ * guard can look along a column with a word scan, which a layout in reading order cannot do. The
+ * {@link Level} changes all three together whenever a movable moves, falls or comes back.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+final class Bitboards {
+    private final int colCount; //total number of columns in the level
+    private final long[] walls; //walls, shared between copies
+    private final long[] icy; //icy and curved icy tiles, shared between copies
+    private final long[] curved; //curved icy tiles, shared between copies
+    private final long[] openPitfalls; //pitfalls that are not filled yet
+    private final long[] crates; //cells with a crate
+    private final long[] guards; //cells with a guard
+    private final long[] player; //cell of the player
+
+    /**
+     * Builds the layers from a packed level
+     * @param level the level in its start state
+     */
+    Bitboards(CompactLevel level) {
+        colCount = level.getColCount();
+        int words = (level.getRowCount() * colCount + 63) >>> 6;
+        walls = new long[words];
+        icy = new long[words];
+        curved = new long[words];
+        openPitfalls = new long[words];
+        crates = new long[words];
+        guards = new long[words];
+        player = new long[words];
+        for (int row = 0; row < level.getRowCount(); row++) {
+            for (int col = 0; col < colCount; col++) {
+                int packed = level.cellIndex(row, col);
+                int cell = cellOf(row, col);
+                int kind = level.kindOf(packed);
+                if (kind == CompactLevel.WALL)
+                    set(walls, cell);
+                else if (kind == CompactLevel.PITFALL && !level.isFilled(packed))
+                    set(openPitfalls, cell);
+                else if (kind == CompactLevel.ICY)
+                    set(icy, cell);
+                else if (CompactLevel.isCurvedIcy(kind)) {
+                    set(icy, cell);
+                    set(curved, cell);
+                }
+                int occupant = level.occupantType(packed);
+                if (occupant == CompactLevel.CRATE)
+                    set(crates, cell);
+                else if (occupant == CompactLevel.GUARD)
+                    set(guards, cell);
+                else if (occupant == CompactLevel.PLAYER)
+                    set(player, cell);
+            }
+        }
+    }
+
+    /**
+     * Copy constructor.
+     * Shares the layers that never change, copies the others.
+     * @param other the bitboards to copy
+     */
+    Bitboards(Bitboards other) {
+        colCount = other.colCount;
+        walls = other.walls;
+        icy = other.icy;
+        curved = other.curved;
+        openPitfalls = other.openPitfalls.clone();
+        crates = other.crates.clone();
+        guards = other.guards.clone();
+        player = other.player.clone();
+    }
+
+    /**
+     * Converts coordinates into a cell
+     * @param row row coordinate
+     * @param col column coordinate
+     * @return the cell
+     */
+    int cellOf(int row, int col) {
+        return row * colCount + col;
+    }
+
+    /**
+     * Checks if nothing can enter a cell: a wall or an open pitfall
+     * @param cell the cell
+     * @return true if the cell blocks every movable
+     */
+    boolean blocks(int cell) {
+        return ((walls[cell >>> 6] | openPitfalls[cell >>> 6]) & 1L << cell) != 0;
+    }
+
+    /**
+     * Getter.
+     * @param cell the cell
+     * @return true if a crate, guard or the player is on the cell
+     */
+    boolean isOccupied(int cell) {
+        int word = cell >>> 6;
+        return ((crates[word] | guards[word] | player[word]) & 1L << cell) != 0;
+    }
+
+    /**
+     * Getter.
+     * @param cell the cell
+     * @return true if a crate is on the cell
+     */
+    boolean isCrate(int cell) {
+        return test(crates, cell);
+    }
+
+    /**
+     * Getter.
+     * @param cell the cell
+     * @return true if the player is on the cell
+     */
+    boolean isPlayer(int cell) {
+        return test(player, cell);
+    }
+
+    /**
+     * Getter.
+     * @param cell the cell
+     * @return true if the cell is an icy or a curved icy tile
+     */
+    boolean isIcy(int cell) {
+        return test(icy, cell);
+    }
+
+    /**
+     * Getter.
+     * @param cell the cell
+     * @return true if the cell is a curved icy tile
+     */
+    boolean isCurvedIcy(int cell) {
+        return test(curved, cell);
+    }
+
+    /**
+     * Getter.
+     * @param cell the cell
+     * @return true if the cell is a pitfall that is not filled yet
+     */
+    boolean isOpenPitfall(int cell) {
+        return test(openPitfalls, cell);
+    }
+
+    /**
+     * Marks a pitfall as filled
+     * @param cell the pitfall
+     */
+    void fill(int cell) {
+        openPitfalls[cell >>> 6] &= ~(1L << cell);
+    }
+
+    /**
+     * Marks a pitfall as open again
+     * @param cell the pitfall
+     */
+    void unfill(int cell) {
+        set(openPitfalls, cell);
+    }
+
+    /**
+     * Removes all movables from the level
+     */
+    void clearMovables() {
+        Arrays.fill(crates, 0);
+        Arrays.fill(guards, 0);
+        Arrays.fill(player, 0);
+    }
+
+    /**
+     * Puts a movable back on the level
+     * @param movable the movable
+     * @param cell cell of the movable
+     */
+    void add(Movable movable, int cell) {
+        set(layerOf(movable), cell);
+    }
+
+    /**
+     * Moves a movable to another cell
+     * @param movable the movable
+     * @param from cell the movable leaves
+     * @param to cell the movable enters
+     */
+    void move(Movable movable, int from, int to) {
+        long[] layer = layerOf(movable);
+        layer[from >>> 6] &= ~(1L << from);
+        layer[to >>> 6] |= 1L << to;
+    }
+
+    /**
+     * Removes a movable from the level
+     * @param movable the movable
+     * @param cell cell of the movable
+     */
+    void remove(Movable movable, int cell) {
+        layerOf(movable)[cell >>> 6] &= ~(1L << cell);
+    }
+
+    private long[] layerOf(Movable movable) {
+        if (movable.isCrate())
+            return crates;
+        return movable.isGuard() ? guards : player;
+    }
+
+    private static boolean test(long[] layer, int cell) {
+        return (layer[cell >>> 6] & 1L << cell) != 0;
+    }
+
+    private static void set(long[] layer, int cell) {
+        layer[cell >>> 6] |= 1L << cell;
+    }
+}
@@ -0,0 +1,122 @@
+package discpative.model;
+
+import discpative.controller.Direction;
+
+/**
+ * Packs what can be seen of a cell into 12 bits.
+ *
+ * Bits 0-3 hold the tile kind and bit 4 is set for a filled pitfall, using the constants of {@link CompactLevel}.
+ * Bits 5-7 hold the direction of an icy tile + 1, 0 if it has none yet, bits 8-9 the occupant
+ * and bits 10-11 the direction the occupant is facing, 0 for crates and empty cells.
+ * Works for every {@link LevelInterface}, e.g. to stream the cells of a game to spectators.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public final class CellCodec {
+    private static final int KIND_MASK = 0xF;
+    private static final int FILLED = 1 << 4;
+    private static final int ICY_SHIFT = 5;
+    private static final int OCCUPANT_SHIFT = 8;
+    private static final int DIRECTION_SHIFT = 10;
+    //characters of the level file per tile kind, and per occupant and direction for the guards
+    private static final String TILE_SYMBOLS = "# .!LR=nosw";
+    private static final String GUARD_SYMBOLS = "NOWS";
+
+    private CellCodec() {
+    }
+
+    /**
+     * Packs a cell
+     * @param level the level
+     * @param row row of the cell
+     * @param col column of the cell
+     * @return the packed state of the cell
+     */
+    public static int encode(LevelInterface level, int row, int col) {
+        Tile tile = level.getTileAt(row, col);
+        int state = CompactLevel.kindOf(tile);
+        if (tile.isFilled())
+            state |= FILLED;
+        if (tile instanceof IcyTile && ((IcyTile) tile).getIcyDirection() != null)
+            state |= (((IcyTile) tile).getIcyDirection().ordinal() + 1) << ICY_SHIFT;
+        Movable movable = tile.contains();
+        if (level.isPlayerAt(row, col))
+            state |= CompactLevel.PLAYER << OCCUPANT_SHIFT;
+        else if (movable != null && movable.isGuard())
+            state |= CompactLevel.GUARD << OCCUPANT_SHIFT;
+        else if (movable != null && movable.isCrate())
+            state |= CompactLevel.CRATE << OCCUPANT_SHIFT;
+        if (movable instanceof Character)
+            state |= ((Character) movable).getDirection().ordinal() << DIRECTION_SHIFT;
+        return state;
+    }
+
+    /**
+     * Getter.
+     * @param state a packed cell
+     * @return kind of the tile, one of {@link CompactLevel#WALL} to {@link CompactLevel#CURVED_UP_LEFT}
+     */
+    public static int kind(int state) {
+        return state & KIND_MASK;
+    }
+
+    /**
+     * Getter.
+     * @param state a packed cell
+     * @return true if the cell is a filled pitfall
+     */
+    public static boolean isFilled(int state) {
+        return (state & FILLED) != 0;
+    }
+
+    /**
+     * Getter.
+     * @param state a packed cell
+     * @return direction of an icy tile, null if it has none
+     */
+    public static Direction icyDirection(int state) {
+        int code = state >>> ICY_SHIFT & 7;
+        return code == 0 ? null : Direction.values()[code - 1];
+    }
+
+    /**
+     * Getter.
+     * @param state a packed cell
+     * @return type of the occupant, {@link CompactLevel#NONE} to {@link CompactLevel#CRATE}
+     */
+    public static int occupant(int state) {
+        return state >>> OCCUPANT_SHIFT & 3;
+    }
+
+    /**
+     * Getter.
+     * @param state a packed cell
+     * @return direction the player or guard on the cell is facing
+     */
+    public static Direction direction(int state) {
+        return Direction.values()[state >>> DIRECTION_SHIFT & 3];
+    }
+
+    /**
+     * Converts a cell into the character of the level file, a filled pitfall becomes a passage
+     * @param state a packed cell
+     * @return the character
+     */
+    public static char toChar(int state) {
+        int kind = kind(state);
+        switch (occupant(state)) {
+            case CompactLevel.PLAYER:
+                return '@';
+            case CompactLevel.GUARD:
+                return GUARD_SYMBOLS.charAt(direction(state).ordinal());
+            case CompactLevel.CRATE:
+                return kind == CompactLevel.OBJECTIVE ? '*' : '$';
+            default:
+                break;
+        }
+        if (kind == CompactLevel.PITFALL && isFilled(state))
+            return ' ';
+        return kind < TILE_SYMBOLS.length() ? TILE_SYMBOLS.charAt(kind) : '#';
+    }
+}
@@ -0,0 +1,77 @@
+package discpative.model;
+
+/**
+ * Collects the changed cells of a turn into a {@link ChangeSet}.
+ *
+ * A cell touched several times during the turn is listed once, with all its flags combined.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+class ChangeRecorder {
+    private final int colCount; //total number of columns in the level
+    private final int[] flags; //flags of every cell during the current turn, 0 if unchanged
+    private final int[] touched; //row * colCount + col of every changed cell, in order of the first change
+    private int count; //number of changed cells
+    private boolean recording; //a turn is in progress
+
+    /**
+     * Constructor.
+     * @param rowCount total number of rows in the level
+     * @param colCount total number of columns in the level
+     */
+    ChangeRecorder(int rowCount, int colCount) {
+        this.colCount = colCount;
+        flags = new int[rowCount * colCount];
+        touched = new int[rowCount * colCount];
+    }
+
+    /**
+     * Starts collecting the changes of a turn
+     */
+    void begin() {
+        recording = true;
+    }
+
+    /**
+     * Getter.
+     * @return true while a turn is in progress
+     */
+    boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Adds a change to the current turn
+     * @param row row of the changed cell
+     * @param col column of the changed cell
+     * @param flag {@link ChangeSet#TILE} or {@link ChangeSet#MOVABLE}
+     */
+    void record(int row, int col, int flag) {
+        int cell = row * colCount + col;
+        if (flags[cell] == 0)
+            touched[count++] = cell;
+        flags[cell] |= flag;
+    }
+
+    /**
+     * Ends the turn
+     * @param moveCount number of moves after the turn
+     * @return all changes of the turn
+     */
+    ChangeSet finish(int moveCount) {
+        int[] rows = new int[count];
+        int[] cols = new int[count];
+        int[] cellFlags = new int[count];
+        for (int i = 0; i < count; i++) {
+            int cell = touched[i];
+            rows[i] = cell / colCount;
+            cols[i] = cell % colCount;
+            cellFlags[i] = flags[cell];
+            flags[cell] = 0;
+        }
+        count = 0;
+        recording = false;
+        return new ChangeSet(rows, cols, cellFlags, moveCount);
+    }
+}
@@ -0,0 +1,86 @@
+package discpative.model;
+
+/**
+ * All cells that changed during one turn.
+ *
+ * Every cell is listed once, with flags telling if its tile or the movable on it changed.
+ * Views read the new state of the listed cells from the model. Immutable.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public final class ChangeSet {
+    public static final int TILE = 1; //the tile changed, e.g. a pitfall was filled
+    public static final int MOVABLE = 2; //a movable entered or left the cell
+
+    private final int[] rows; //row of every changed cell
+    private final int[] cols; //column of every changed cell
+    private final int[] flags; //what changed in every cell
+    private final int moveCount; //number of moves after the turn
+
+    /**
+     * Constructor.
+     * @param rows row of every changed cell, is not copied
+     * @param cols column of every changed cell, is not copied
+     * @param flags what changed in every cell, is not copied
+     * @param moveCount number of moves after the turn
+     */
+    ChangeSet(int[] rows, int[] cols, int[] flags, int moveCount) {
+        this.rows = rows;
+        this.cols = cols;
+        this.flags = flags;
+        this.moveCount = moveCount;
+    }
+
+    /**
+     * Getter.
+     * @return number of changed cells
+     */
+    public int size() {
+        return rows.length;
+    }
+
+    /**
+     * Getter.
+     * @param i index of a changed cell
+     * @return row of the cell
+     */
+    public int getRow(int i) {
+        return rows[i];
+    }
+
+    /**
+     * Getter.
+     * @param i index of a changed cell
+     * @return column of the cell
+     */
+    public int getCol(int i) {
+        return cols[i];
+    }
+
+    /**
+     * Getter.
+     * @param i index of a changed cell
+     * @return true if the tile of the cell changed
+     */
+    public boolean isTileChanged(int i) {
+        return (flags[i] & TILE) != 0;
+    }
+
+    /**
+     * Getter.
+     * @param i index of a changed cell
+     * @return true if a movable entered or left the cell
+     */
+    public boolean isMovableChanged(int i) {
+        return (flags[i] & MOVABLE) != 0;
+    }
+
+    /**
+     * Getter.
+     * @return number of moves done by the player after the turn
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+}
@@ -0,0 +1,1165 @@
+package discpative.model;
+
+import discpative.controller.Direction;
+import discpative.controller.Rotation;
+import discpative.tools.Tools;
+import discpative.view.ViewInterface;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Headless model of the level.
+ *
+ * Packs the whole grid into a single int array (tile kind, pitfall and ice state, occupant)
+ * and keeps the movables in primitive arrays. Implements the same rules as
+ * {@link Movable}, {@link Character}, {@link Guard} and {@link Crate}, but a turn does not allocate.
+ * The grid is surrounded by an extra border of walls, so nothing can leave it.
+ * Directions are stored as their {@link Direction#ordinal()}.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class CompactLevel implements LevelInterface {
+    public static final int WALL = 0;
+    public static final int PASSAGE = 1;
+    public static final int OBJECTIVE = 2;
+    public static final int PITFALL = 3;
+    public static final int ROTATION_LEFT = 4;
+    public static final int ROTATION_RIGHT = 5;
+    public static final int ICY = 6;
+    public static final int CURVED_UP_RIGHT = 7;
+    public static final int CURVED_DOWN_RIGHT = 8;
+    public static final int CURVED_DOWN_LEFT = 9;
+    public static final int CURVED_UP_LEFT = 10;
+
+    public static final int NONE = 0;
+    public static final int PLAYER = 1;
+    public static final int GUARD = 2;
+    public static final int CRATE = 3;
+
+    private static final int KIND_MASK = 0xF; //bits 0-3: tile kind
+    private static final int FILLED = 1 << 4; //bit 4: pitfall is filled
+    private static final int ICY_SHIFT = 5; //bits 5-7: icy direction + 1, 0 if not set yet
+    private static final int ICY_MASK = 0x7 << ICY_SHIFT;
+    private static final int OCCUPANT_SHIFT = 8; //bits 8-9: occupant type
+    private static final int OCCUPANT_MASK = 0x3 << OCCUPANT_SHIFT;
+    private static final int INDEX_SHIFT = 10; //bits 10-31: index of the occupant
+    private static final int OCCUPANT_FIELD = ~0 << OCCUPANT_SHIFT;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int UP = Direction.UP.ordinal();
+    private static final int DOWN = Direction.DOWN.ordinal();
+    //open sides of the curved icy tiles, indexed by kind - CURVED_UP_RIGHT
+    private static final int[] CURVED_VERTICAL = {UP, DOWN, DOWN, UP};
+    private static final int[] CURVED_HORIZONTAL = {Direction.RIGHT.ordinal(), Direction.RIGHT.ordinal(),
+            Direction.LEFT.ordinal(), Direction.LEFT.ordinal()};
+    private static final int[] CURVED_MAIN = {UP, Direction.RIGHT.ordinal(), DOWN, Direction.LEFT.ordinal()};
+    //direction after a rotation, indexed by direction, same as Guard#rotateTo
+    private static final int[] TURN_LEFT = {2, 0, 3, 1};
+    private static final int[] TURN_RIGHT = {1, 3, 0, 2};
+
+    private final int rowCount; //total number of rows in the level
+    private final int colCount; //total number of columns in the level
+    private final int width; //number of cells per row, including the border
+    private final int[] delta; //cell offset per direction
+    private final int[] cells; //packed grid, see the bit layout above
+    private final int[] guardCell; //cell of every guard
+    private final int[] guardDirection; //direction every guard is facing
+    private final boolean[] guardMoved; //was the guard already moved this turn
+    private final int[] crateCell; //cell of every crate, -1 once it filled a pitfall
+    private int crateCount; //number of crates that are still on the grid
+    private int playerCell; //cell of the player
+    private int movesCount; //number of moves done by the player
+    private boolean lost; //is the level lost
+    private boolean won; //is the level won
+    private int pushDepth; //number of guards currently being pushed
+    private final LevelEvents events = new LevelEvents(); //listeners of the level, e.g. the views
+    private DeadlockAnalyzer deadlocks; //created on first use
+    private ChangeRecorder changes; //changes of the current turn, created with the first turn that has listeners
+    private SightIndex sight; //line of sight of the guards, copies share its static part
+
+    /**
+     * Creates a new headless level from a level file.
+     * @param levelNumber the number of the level that should be loaded
+     */
+    public CompactLevel(int levelNumber) {
+        this(Level.readLevel(levelNumber));
+    }
+
+    /**
+     * Creates a new headless level from a level pack.
+     * @param pack an open level pack
+     * @param levelNumber the number of the level that should be loaded
+     * @throws IOException if the pack does not contain the level or cannot be read
+     */
+    public CompactLevel(LevelPack pack, int levelNumber) throws IOException {
+        this(pack.read(levelNumber));
+    }
+
+    /**
+     * Creates a new headless level.
+     * Uses the same characters as {@link Level#loadLevel(int)}.
+     * @param level the level as array of characters
+     */
+    public CompactLevel(char[][] level) {
+        this(level.length, level.length > 0 ? level[0].length : 0, count(level, "NWSO"), count(level, "$*"));
+        int guards = 0;
+        for (int row = 0; row < rowCount; row++) {
+            for (int col = 0; col < colCount; col++) {
+                int cell = cellIndex(row, col);
+                switch (level[row][col]) {
+                    case ' ':
+                        cells[cell] = PASSAGE;
+                        break;
+                    case '$':
+                        cells[cell] = occupied(PASSAGE, CRATE, crateCount);
+                        crateCell[crateCount++] = cell;
+                        break;
+                    case '@':
+                        cells[cell] = occupied(PASSAGE, PLAYER, 0);
+                        playerCell = cell;
+                        break;
+                    case '.':
+                        cells[cell] = OBJECTIVE;
+                        break;
+                    case '*':
+                        cells[cell] = occupied(OBJECTIVE, CRATE, crateCount);
+                        crateCell[crateCount++] = cell;
+                        break;
+                    case '!':
+                        cells[cell] = PITFALL;
+                        break;
+                    case 'N':
+                    case 'W':
+                    case 'S':
+                    case 'O':
+                        cells[cell] = occupied(PASSAGE, GUARD, guards);
+                        guardCell[guards] = cell;
+                        guardDirection[guards++] = guardDirection(level[row][col]);
+                        break;
+                    case 'L':
+                    case 'R': //Level reads both as left rotations
+                        cells[cell] = ROTATION_LEFT;
+                        break;
+                    case '=':
+                        cells[cell] = ICY;
+                        break;
+                    case 'n':
+                        cells[cell] = CURVED_UP_RIGHT;
+                        break;
+                    case 'o':
+                        cells[cell] = CURVED_DOWN_RIGHT;
+                        break;
+                    case 's':
+                        cells[cell] = CURVED_DOWN_LEFT;
+                        break;
+                    case 'w':
+                        cells[cell] = CURVED_UP_LEFT;
+                        break;
+                    default:
+                        cells[cell] = WALL;
+                        break;
+                }
+            }
+        }
+        sight = new SightIndex(rowCount, colCount, this::blocksSight);
+        for (int row = 0; row < rowCount; row++)
+            for (int col = 0; col < colCount; col++)
+                if ((cells[cellIndex(row, col)] & OCCUPANT_MASK) != 0)
+                    sight.occupy(row, col);
+    }
+
+    /**
+     * Creates a level of walls without movables
+     * @param rowCount total number of rows in the level
+     * @param colCount total number of columns in the level
+     * @param guards number of guards
+     * @param crates number of crates
+     */
+    private CompactLevel(int rowCount, int colCount, int guards, int crates) {
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+        width = colCount + 2;
+        delta = new int[4];
+        for (Direction direction : DIRECTIONS)
+            delta[direction.ordinal()] = Tools.dir2row(direction) * width + Tools.dir2col(direction);
+        cells = new int[(rowCount + 2) * width];
+        guardCell = new int[guards];
+        guardDirection = new int[guards];
+        guardMoved = new boolean[guards];
+        crateCell = new int[crates];
+        Arrays.fill(crateCell, -1);
+    }
+
+    /**
+     * Takes a snapshot of any other model of a level.
+     * Guards are numbered in reading order of their current cells,
+     * so they may move in another order than in the original.
+     * @param level the level to copy
+     */
+    public CompactLevel(LevelInterface level) {
+        this(level.getRowCount(), level.getColCount(), count(level, GUARD), count(level, CRATE));
+        for (int row = 0; row < rowCount; row++) {
+            for (int col = 0; col < colCount; col++) {
+                int cell = cellIndex(row, col);
+                Tile tile = level.getTileAt(row, col);
+                cells[cell] = kindOf(tile);
+                if (tile.isFilled())
+                    cells[cell] |= FILLED;
+                if ((tile.isIcyTile() || tile.isCurvedIcyTile()) && ((IcyTile) tile).getIcyDirection() != null)
+                    cells[cell] = withIcyDirection(cells[cell], ((IcyTile) tile).getIcyDirection().ordinal());
+            }
+        }
+        sight = new SightIndex(rowCount, colCount, this::blocksSight);
+        int guards = 0;
+        int crates = 0;
+        for (int row = 0; row < rowCount; row++) {
+            for (int col = 0; col < colCount; col++) {
+                int cell = cellIndex(row, col);
+                Movable movable = level.getTileAt(row, col).contains();
+                if (movable == null)
+                    continue;
+                if (movable.isPlayer())
+                    placePlayer(cell);
+                else if (movable.isGuard())
+                    placeGuard(guards++, cell, ((Guard) movable).getDirection().ordinal());
+                else if (movable.isCrate())
+                    placeCrate(crates++, cell);
+            }
+        }
+        movesCount = level.getMoveCount();
+        won = level.isWon();
+        lost = level.isLost();
+    }
+
+    /**
+     * Copy constructor.
+     * Copies the grid and all movables, but no listeners.
+     * @param other the level to copy
+     */
+    public CompactLevel(CompactLevel other) {
+        rowCount = other.rowCount;
+        colCount = other.colCount;
+        width = other.width;
+        delta = other.delta;
+        cells = other.cells.clone();
+        guardCell = other.guardCell.clone();
+        guardDirection = other.guardDirection.clone();
+        guardMoved = other.guardMoved.clone();
+        crateCell = other.crateCell.clone();
+        crateCount = other.crateCount;
+        playerCell = other.playerCell;
+        movesCount = other.movesCount;
+        lost = other.lost;
+        won = other.won;
+        sight = new SightIndex(other.sight);
+    }
+
+    /**
+     * Overwrites the state of this level with the state of another copy of the same level.
+     * Does not allocate and does not notify the listeners.
+     * @param other a level created from the same map
+     */
+    public void copyStateFrom(CompactLevel other) {
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+        System.arraycopy(other.guardCell, 0, guardCell, 0, guardCell.length);
+        System.arraycopy(other.guardDirection, 0, guardDirection, 0, guardDirection.length);
+        System.arraycopy(other.guardMoved, 0, guardMoved, 0, guardMoved.length);
+        System.arraycopy(other.crateCell, 0, crateCell, 0, crateCell.length);
+        crateCount = other.crateCount;
+        playerCell = other.playerCell;
+        movesCount = other.movesCount;
+        lost = other.lost;
+        won = other.won;
+        sight.copyStateFrom(other.sight);
+    }
+
+    /**
+     * Converts a guard character of the level file into a direction
+     * @param c one of N, W, S, O
+     * @return the direction the guard is facing
+     */
+    private static int guardDirection(char c) {
+        switch (c) {
+            case 'N':
+                return Direction.UP.ordinal();
+            case 'W':
+                return Direction.LEFT.ordinal();
+            case 'S':
+                return Direction.DOWN.ordinal();
+            default:
+                return Direction.RIGHT.ordinal();
+        }
+    }
+
+    /**
+     * Counts characters in a level file
+     * @param level the level as array of characters
+     * @param characters the characters to count
+     * @return number of matching characters
+     */
+    private static int count(char[][] level, String characters) {
+        int count = 0;
+        for (char[] line : level)
+            for (char c : line)
+                if (characters.indexOf(c) >= 0)
+                    count++;
+        return count;
+    }
+
+    /**
+     * Counts movables in another model of a level
+     * @param level the level
+     * @param type {@link #GUARD} or {@link #CRATE}
+     * @return number of movables of that type
+     */
+    private static int count(LevelInterface level, int type) {
+        int count = 0;
+        for (int row = 0; row < level.getRowCount(); row++)
+            for (int col = 0; col < level.getColCount(); col++) {
+                Movable movable = level.getTileAt(row, col).contains();
+                if (movable != null && (type == GUARD ? movable.isGuard() : movable.isCrate()))
+                    count++;
+            }
+        return count;
+    }
+
+    /**
+     * Converts a tile into its kind
+     * @param tile a tile
+     * @return kind of the tile, one of {@link #WALL} to {@link #CURVED_UP_LEFT}
+     */
+    static int kindOf(Tile tile) {
+        if (tile.isWall())
+            return WALL;
+        if (tile.isObjective())
+            return OBJECTIVE;
+        if (tile.isPitfall())
+            return PITFALL;
+        if (tile.isRotationPassage())
+            return ((RotationPassage) tile).getRotation() == Rotation.LEFT ? ROTATION_LEFT : ROTATION_RIGHT;
+        if (tile.isIcyTile())
+            return ICY;
+        if (tile.isCurvedIcyTile()) {
+            CurvedIcyTile curved = (CurvedIcyTile) tile;
+            for (int kind = CURVED_UP_RIGHT; kind <= CURVED_UP_LEFT; kind++)
+                if (CURVED_VERTICAL[kind - CURVED_UP_RIGHT] == curved.getVertical().ordinal()
+                        && CURVED_HORIZONTAL[kind - CURVED_UP_RIGHT] == curved.getHorizontal().ordinal())
+                    return kind;
+        }
+        return PASSAGE;
+    }
+
+    /**
+     * Static blockers of the line of sight, see {@link SightIndex.Blocker}.
+     * Walls block, curved icy tiles block if the side the line of sight enters through is closed.
+     * @param row row of the cell
+     * @param col column of the cell
+     * @param direction direction of the line of sight as ordinal
+     * @return true if nothing on or behind the cell can be seen
+     */
+    private boolean blocksSight(int row, int col, int direction) {
+        int kind = cells[cellIndex(row, col)] & KIND_MASK;
+        if (kind == WALL)
+            return true;
+        return isCurvedIcy(kind) && (CURVED_VERTICAL[kind - CURVED_UP_RIGHT] == direction
+                || CURVED_HORIZONTAL[kind - CURVED_UP_RIGHT] == direction);
+    }
+
+    /**
+     * Packs a tile kind and its occupant into a cell
+     * @param kind kind of the tile
+     * @param type type of the occupant
+     * @param index index of the occupant
+     * @return the packed cell
+     */
+    private static int occupied(int kind, int type, int index) {
+        return kind | type << OCCUPANT_SHIFT | index << INDEX_SHIFT;
+    }
+
+    // ---------------------------------------------------------------- rules
+
+    @Override
+    public boolean canPlayerMoveTo(Direction direction) {
+        if (occupantType(playerCell) != PLAYER)
+            return false;
+        return !characterCollides(PLAYER, 0, direction.ordinal());
+    }
+
+    @Override
+    public boolean canplayerMoveTo(int row, int col) {
+        Direction dir = Tools.delta2dir(row - rowOf(playerCell), col - colOf(playerCell));
+        if (dir != null)
+            return canPlayerMoveTo(dir);
+        return false;
+    }
+
+    @Override
+    public void movePlayerTo(Direction direction) {
+        if (lost || won || occupantType(playerCell) != PLAYER)
+            return;
+        if (!events.isEmpty()) {
+            if (changes == null)
+                changes = new ChangeRecorder(rowCount, colCount);
+            changes.begin();
+            events.fireTurnStarted();
+        }
+        moveCharacter(PLAYER, 0, direction.ordinal());
+        movesCount++;
+        moveGuards();
+        isPlayerVisible();
+        if (changes != null && changes.isRecording())
+            events.fireTurnEnded(changes.finish(movesCount));
+    }
+
+    @Override
+    public void movePlayerTo(int row, int col) {
+        Direction dir = Tools.delta2dir(row - rowOf(playerCell), col - colOf(playerCell));
+        if (dir != null)
+            movePlayerTo(dir);
+    }
+
+    /**
+     * Moves all guards that can move, in the order they were read
+     */
+    public void moveGuards() {
+        for (int guard = 0; guard < guardCell.length; guard++)
+            moveGuard(guard);
+        Arrays.fill(guardMoved, false);
+    }
+
+    /**
+     * Checks if the player is visible to at least one of the guards.
+     * Ends the game if so
+     */
+    public void isPlayerVisible() {
+        for (int guard = 0; guard < guardCell.length; guard++)
+            canSeePlayer(guard);
+    }
+
+    /**
+     * Same as {@link Movable#checkCollision(Direction)}
+     * @param cell cell of the movable
+     * @param direction direction to check
+     * @return true if collision detected
+     */
+    private boolean movableCollides(int cell, int direction) {
+        int target = cells[cell + delta[direction]];
+        int kind = target & KIND_MASK;
+        if (kind == WALL)
+            return true;
+        if (kind == PITFALL && (target & FILLED) == 0)
+            return true;
+        if (isCurvedIcy(kind) && (target & OCCUPANT_MASK) != 0)
+            return direction == CURVED_VERTICAL[kind - CURVED_UP_RIGHT]
+                    || direction == CURVED_HORIZONTAL[kind - CURVED_UP_RIGHT];
+        return (target & OCCUPANT_MASK) != 0;
+    }
+
+    /**
+     * Same as {@link Crate#checkCollision(Direction)}
+     * @param crate index of the crate
+     * @param direction direction to check
+     * @return true if collision detected
+     */
+    private boolean crateCollides(int crate, int direction) {
+        int target = cells[crateCell[crate] + delta[direction]];
+        if ((target & KIND_MASK) == PITFALL && (target & OCCUPANT_MASK) == 0)
+            return false;
+        return movableCollides(crateCell[crate], direction);
+    }
+
+    /**
+     * Same as {@link Character#checkCollision(Direction)}.
+     * Gets the blocking guard out of the way if possible.
+     * @param type {@link #PLAYER} or {@link #GUARD}
+     * @param index index of the character
+     * @param direction direction to check
+     * @return true if collision detected
+     */
+    private boolean characterCollides(int type, int index, int direction) {
+        int cell = cellOf(type, index);
+        int target = cells[cell + delta[direction]];
+        int occupant = (target & OCCUPANT_MASK) >>> OCCUPANT_SHIFT;
+
+        if (occupant == CRATE)
+            return crateCollides(target >>> INDEX_SHIFT, direction);
+
+        if (occupant == GUARD) {
+            //guards pushing each other in a circle never end, Level overflows the stack there
+            if (pushDepth > guardCell.length)
+                return true;
+            pushDepth++;
+            boolean collides = pushGuard(target >>> INDEX_SHIFT, direction);
+            pushDepth--;
+            return collides;
+        }
+        return movableCollides(cell, direction);
+    }
+
+    /**
+     * Gets a guard out of the way of a character if possible.
+     * A guard on the same axis is pushed, otherwise it moves on its own.
+     * @param guard index of the guard
+     * @param direction direction of the pushing character
+     * @return true if the guard blocks the character
+     */
+    private boolean pushGuard(int guard, int direction) {
+        int guardDir = guardDirection[guard];
+        if (isVertical(direction) == isVertical(guardDir)) {
+            if (guardCollides(guard, direction))
+                return true;
+            moveGuard(guard, direction);
+            return false;
+        }
+        if (guardCollides(guard, guardDir) && guardCollides(guard, opposite(guardDir)))
+            return true;
+        moveGuard(guard);
+        return false;
+    }
+
+    /**
+     * Same as {@link Guard#checkCollision(Direction)}.
+     * Ends the game if the guard runs into the player.
+     * @param guard index of the guard
+     * @param direction direction to check
+     * @return true if collision detected
+     */
+    private boolean guardCollides(int guard, int direction) {
+        if (occupantType(guardCell[guard] + delta[direction]) == PLAYER)
+            lose();
+        return characterCollides(GUARD, guard, direction);
+    }
+
+    /**
+     * Same as {@link Character#move(Direction)}.
+     * Pushes a crate in front of the character first.
+     * @param type {@link #PLAYER} or {@link #GUARD}
+     * @param index index of the character
+     * @param direction direction of the move
+     */
+    private void moveCharacter(int type, int index, int direction) {
+        int target = cells[cellOf(type, index) + delta[direction]];
+        if ((target & OCCUPANT_MASK) >>> OCCUPANT_SHIFT == CRATE)
+            moveCrate(target >>> INDEX_SHIFT, direction);
+        moveMovable(type, index, direction);
+        if (type == GUARD)
+            guardDirection[index] = direction;
+    }
+
+    /**
+     * Same as {@link Movable#move(Direction)}.
+     * Movables on ice keep sliding in the direction of the ice.
+     * @param type type of the movable
+     * @param index index of the movable
+     * @param direction direction of the move
+     */
+    private void moveMovable(int type, int index, int direction) {
+        int origin = cellOf(type, index);
+        int kind = cells[origin] & KIND_MASK;
+        int icy = (cells[origin] & ICY_MASK) >>> ICY_SHIFT;
+        if ((kind == ICY || isCurvedIcy(kind)) && icy != 0)
+            direction = icy - 1;
+        moveTo(type, index, origin, origin + delta[direction], direction);
+    }
+
+    /**
+     * Same as Movable#moveTo.
+     * Walls never take an occupant, an objective ends the game when the player steps on it.
+     * @param type type of the movable
+     * @param index index of the movable
+     * @param origin cell the movable leaves
+     * @param destination cell the movable enters
+     * @param direction direction of the move, sets the direction of icy tiles
+     */
+    private void moveTo(int type, int index, int origin, int destination, int direction) {
+        setCellOf(type, index, destination);
+        clearOccupant(origin);
+
+        int target = cells[destination];
+        int kind = target & KIND_MASK;
+        if (kind != WALL) {
+            target = (target & ~OCCUPANT_FIELD) | type << OCCUPANT_SHIFT | index << INDEX_SHIFT;
+            if (kind == ICY)
+                target = withIcyDirection(target, direction);
+            else if (isCurvedIcy(kind)) {
+                int oppositeDirection = opposite(direction);
+                if (oppositeDirection == CURVED_VERTICAL[kind - CURVED_UP_RIGHT])
+                    target = withIcyDirection(target, CURVED_HORIZONTAL[kind - CURVED_UP_RIGHT]);
+                else if (oppositeDirection == CURVED_HORIZONTAL[kind - CURVED_UP_RIGHT])
+                    target = withIcyDirection(target, CURVED_VERTICAL[kind - CURVED_UP_RIGHT]);
+            }
+            cells[destination] = target;
+            sight.occupy(rowOf(destination), colOf(destination));
+            if (kind == OBJECTIVE && type == PLAYER)
+                winGame();
+        }
+
+        updateMoveablePresence(origin, type);
+        updateMoveablePresence(destination, type);
+    }
+
+    /**
+     * Same as {@link Crate#move(Direction)}.
+     * A crate pushed into an empty pitfall fills it and disappears.
+     * @param crate index of the crate
+     * @param direction direction of the move
+     */
+    private void moveCrate(int crate, int direction) {
+        int origin = crateCell[crate];
+        int destination = origin + delta[direction];
+        int target = cells[destination];
+        if ((target & KIND_MASK) == PITFALL && (target & FILLED) == 0) {
+            cells[destination] = target | FILLED;
+            updateTile(destination);
+            crateCount--;
+            clearOccupant(origin);
+            updateMoveablePresence(destination, CRATE);
+            crateCell[crate] = -1;
+            updateMoveablePresence(origin, CRATE);
+        } else
+            moveMovable(CRATE, crate, direction);
+    }
+
+    /**
+     * Same as {@link Guard#move(Direction)}.
+     * Rotation passages turn the guard after the move.
+     * @param guard index of the guard
+     * @param direction direction of the move
+     */
+    private void moveGuard(int guard, int direction) {
+        moveCharacter(GUARD, guard, direction);
+        guardMoved[guard] = true;
+        int kind = cells[guardCell[guard]] & KIND_MASK;
+        if (kind == ROTATION_LEFT)
+            guardDirection[guard] = TURN_LEFT[guardDirection[guard]];
+        else if (kind == ROTATION_RIGHT)
+            guardDirection[guard] = TURN_RIGHT[guardDirection[guard]];
+    }
+
+    /**
+     * Same as {@link Guard#move()}.
+     * Moves the guard in the direction it is facing, otherwise to its backside.
+     * @param guard index of the guard
+     */
+    private void moveGuard(int guard) {
+        if (guardMoved[guard])
+            return;
+        if (!guardCollides(guard, guardDirection[guard]))
+            moveGuard(guard, guardDirection[guard]);
+        else {
+            int oppositeDirection = opposite(guardDirection[guard]);
+            if (!guardCollides(guard, oppositeDirection))
+                moveGuard(guard, oppositeDirection);
+        }
+    }
+
+    /**
+     * Same as {@link Guard#canSeePlayer()}.
+     * Ends the game if the first movable in front of the guard is the player.
+     * @param guard index of the guard
+     */
+    private void canSeePlayer(int guard) {
+        int cell = guardCell[guard];
+        if (!isInside(cell))
+            return;
+        int direction = guardDirection[guard];
+        int distance = sight.firstOccupied(rowOf(cell), colOf(cell), direction);
+        if (distance != 0 && occupantType(cell + distance * delta[direction]) == PLAYER)
+            lose();
+    }
+
+    /**
+     * Interrupts further user input upon lose.
+     */
+    public void lose() {
+        lost = true;
+        if (!events.isEmpty())
+            events.fireLost();
+    }
+
+    /**
+     * Interrupts further user input upon win.
+     */
+    public void winGame() {
+        won = true;
+        if (!events.isEmpty())
+            events.fireWon();
+    }
+
+    // ---------------------------------------------------------------- cells
+
+    /**
+     * Getter.
+     * @param row a row of the level
+     * @param col a column of the level
+     * @return index of the cell at given coordinates
+     */
+    public int cellIndex(int row, int col) {
+        return (row + 1) * width + col + 1;
+    }
+
+    /**
+     * Getter.
+     * @param cell index of a cell
+     * @return row of the cell
+     */
+    public int rowOf(int cell) {
+        return cell / width - 1;
+    }
+
+    /**
+     * Getter.
+     * @param cell index of a cell
+     * @return column of the cell
+     */
+    public int colOf(int cell) {
+        return cell % width - 1;
+    }
+
+    /**
+     * Getter.
+     * @param cell index of a cell
+     * @param direction one of the {@link Direction}s as ordinal
+     * @return index of the neighbouring cell in given direction
+     */
+    public int neighbour(int cell, int direction) {
+        return cell + delta[direction];
+    }
+
+    /**
+     * Getter.
+     * @return number of cells, including the border of walls
+     */
+    public int getCellCount() {
+        return cells.length;
+    }
+
+    /**
+     * Getter.
+     * @param cell index of a cell
+     * @return kind of the tile, one of {@link #WALL} to {@link #CURVED_UP_LEFT}
+     */
+    public int kindOf(int cell) {
+        return cells[cell] & KIND_MASK;
+    }
+
+    /**
+     * Getter.
+     * @param cell index of a cell
+     * @return true if the cell is a filled pitfall
+     */
+    public boolean isFilled(int cell) {
+        return (cells[cell] & FILLED) != 0;
+    }
+
+    /**
+     * Getter.
+     * @param cell index of a cell
+     * @return direction of an icy tile + 1, 0 if not set yet
+     */
+    public int icyDirectionOf(int cell) {
+        return (cells[cell] & ICY_MASK) >>> ICY_SHIFT;
+    }
+
+    /**
+     * Getter.
+     * @param cell index of a cell
+     * @return type of the occupant, one of {@link #NONE}, {@link #PLAYER}, {@link #GUARD}, {@link #CRATE}
+     */
+    public int occupantType(int cell) {
+        return (cells[cell] & OCCUPANT_MASK) >>> OCCUPANT_SHIFT;
+    }
+
+    /**
+     * Getter.
+     * @param cell index of a cell
+     * @return index of the occupant in its array
+     */
+    public int occupantIndex(int cell) {
+        return cells[cell] >>> INDEX_SHIFT;
+    }
+
+    /**
+     * Getter.
+     * @return line of sight of the guards, must not be modified
+     */
+    SightIndex getSightIndex() {
+        return sight;
+    }
+
+    /**
+     * Getter.
+     * @return cell of the player
+     */
+    public int getPlayerCell() {
+        return playerCell;
+    }
+
+    /**
+     * Getter.
+     * @return number of guards
+     */
+    public int getGuardCount() {
+        return guardCell.length;
+    }
+
+    /**
+     * Getter.
+     * @param guard index of a guard
+     * @return cell of the guard
+     */
+    public int getGuardCell(int guard) {
+        return guardCell[guard];
+    }
+
+    /**
+     * Getter.
+     * @param guard index of a guard
+     * @return direction the guard is facing as ordinal
+     */
+    public int getGuardDirection(int guard) {
+        return guardDirection[guard];
+    }
+
+    /**
+     * Getter.
+     * @return number of crates the level started with
+     */
+    public int getCrateSlots() {
+        return crateCell.length;
+    }
+
+    /**
+     * Getter.
+     * @param crate index of a crate
+     * @return cell of the crate, -1 if it filled a pitfall
+     */
+    public int getCrateCell(int crate) {
+        return crateCell[crate];
+    }
+
+    /**
+     * Getter.
+     * @return number of crates still on the grid
+     */
+    public int getCrateCount() {
+        return crateCount;
+    }
+
+    /**
+     * Checks if a tile kind is a curved icy tile
+     * @param kind kind of the tile
+     * @return true for the four curved icy kinds
+     */
+    public static boolean isCurvedIcy(int kind) {
+        return kind >= CURVED_UP_RIGHT && kind <= CURVED_UP_LEFT;
+    }
+
+    /**
+     * Checks if a direction is vertical
+     * @param direction direction as ordinal
+     * @return true for up and down
+     */
+    public static boolean isVertical(int direction) {
+        return direction == UP || direction == DOWN;
+    }
+
+    /**
+     * The opposite of a direction
+     * @param direction direction as ordinal
+     * @return the opposite direction as ordinal
+     */
+    public static int opposite(int direction) {
+        return 3 - direction;
+    }
+
+    private int cellOf(int type, int index) {
+        switch (type) {
+            case PLAYER:
+                return playerCell;
+            case GUARD:
+                return guardCell[index];
+            default:
+                return crateCell[index];
+        }
+    }
+
+    private void setCellOf(int type, int index, int cell) {
+        switch (type) {
+            case PLAYER:
+                playerCell = cell;
+                break;
+            case GUARD:
+                guardCell[index] = cell;
+                break;
+            default:
+                crateCell[index] = cell;
+                break;
+        }
+    }
+
+    private static int withIcyDirection(int value, int direction) {
+        return (value & ~ICY_MASK) | (direction + 1) << ICY_SHIFT;
+    }
+
+    // ---------------------------------------------------------------- editing
+
+    /**
+     * Removes all movables and resets the game status.
+     * Tiles keep their state. Used to restore a stored state, e.g. by a solver.
+     */
+    public void clearMovables() {
+        clearOccupant(playerCell);
+        for (int guard = 0; guard < guardCell.length; guard++) {
+            clearOccupant(guardCell[guard]);
+            guardMoved[guard] = false;
+        }
+        for (int crate = 0; crate < crateCell.length; crate++) {
+            if (crateCell[crate] >= 0)
+                clearOccupant(crateCell[crate]);
+            crateCell[crate] = -1;
+        }
+        crateCount = 0;
+        lost = false;
+        won = false;
+    }
+
+    /**
+     * Puts the player on a cell
+     * @param cell the new cell of the player
+     */
+    public void placePlayer(int cell) {
+        playerCell = cell;
+        setOccupant(cell, PLAYER, 0);
+    }
+
+    /**
+     * Puts a guard on a cell
+     * @param guard index of the guard
+     * @param cell the new cell of the guard
+     * @param direction direction the guard is facing as ordinal
+     */
+    public void placeGuard(int guard, int cell, int direction) {
+        guardCell[guard] = cell;
+        guardDirection[guard] = direction;
+        setOccupant(cell, GUARD, guard);
+    }
+
+    /**
+     * Puts a crate on a cell
+     * @param crate index of the crate
+     * @param cell the new cell of the crate
+     */
+    public void placeCrate(int crate, int cell) {
+        if (crateCell[crate] < 0)
+            crateCount++;
+        crateCell[crate] = cell;
+        setOccupant(cell, CRATE, crate);
+    }
+
+    /**
+     * Setter.
+     * @param cell a pitfall
+     * @param filled is the pitfall filled
+     */
+    public void setFilled(int cell, boolean filled) {
+        if (filled)
+            cells[cell] |= FILLED;
+        else
+            cells[cell] &= ~FILLED;
+    }
+
+    /**
+     * Setter.
+     * @param cell an icy tile
+     * @param icyDirection direction of the ice + 1, 0 if not set
+     */
+    public void setIcyDirection(int cell, int icyDirection) {
+        cells[cell] = (cells[cell] & ~ICY_MASK) | icyDirection << ICY_SHIFT;
+    }
+
+    /**
+     * Setter.
+     * @param movesCount number of moves done by the player
+     */
+    public void setMoveCount(int movesCount) {
+        this.movesCount = movesCount;
+    }
+
+    private void clearOccupant(int cell) {
+        if (cell >= 0 && (cells[cell] & KIND_MASK) != WALL) {
+            cells[cell] &= ~OCCUPANT_FIELD;
+            sight.vacate(rowOf(cell), colOf(cell));
+        }
+    }
+
+    private void setOccupant(int cell, int type, int index) {
+        if ((cells[cell] & KIND_MASK) != WALL) {
+            cells[cell] = (cells[cell] & ~OCCUPANT_FIELD) | type << OCCUPANT_SHIFT | index << INDEX_SHIFT;
+            sight.occupy(rowOf(cell), colOf(cell));
+        }
+    }
+
+    // ---------------------------------------------------------------- events
+
+    /**
+     * Tells all listeners that a movable entered or left a cell
+     * @param cell the cell the movable entered or left
+     * @param type type of the movable
+     */
+    private void updateMoveablePresence(int cell, int type) {
+        if (events.isEmpty() || !isInside(cell))
+            return;
+        int row = rowOf(cell);
+        int col = colOf(cell);
+        if (changes != null && changes.isRecording())
+            changes.record(row, col, ChangeSet.MOVABLE);
+        events.fireMoved(row, col, type);
+    }
+
+    /**
+     * Tells all listeners that the tile of a cell changed
+     * @param cell the changed cell
+     */
+    private void updateTile(int cell) {
+        if (events.isEmpty() || !isInside(cell))
+            return;
+        if (changes != null && changes.isRecording())
+            changes.record(rowOf(cell), colOf(cell), ChangeSet.TILE);
+        events.fireTileChanged(rowOf(cell), colOf(cell));
+    }
+
+    private boolean isInside(int cell) {
+        int row = rowOf(cell);
+        int col = colOf(cell);
+        return 0 <= row && row < rowCount && 0 <= col && col < colCount;
+    }
+
+    @Override
+    public void registerView(ViewInterface view) {
+        events.subscribe(view);
+    }
+
+    @Override
+    public void unregisterView(ViewInterface view) {
+        events.unsubscribe(view);
+    }
+
+    @Override
+    public LevelEvents getEvents() {
+        return events;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColCount() {
+        return colCount;
+    }
+
+    /**
+     * Builds a {@link Tile} that looks like the cell at given coordinates.
+     * Meant for views only, allocates a new tile on every call.
+     * @param row a row of the level
+     * @param col a column of the level
+     * @return a snapshot of the tile
+     */
+    @Override
+    public Tile getTileAt(int row, int col) {
+        int cell = cellIndex(row, col);
+        int kind = kindOf(cell);
+        Movable movable = null;
+        switch (occupantType(cell)) {
+            case PLAYER:
+                movable = new Player(row, col, null);
+                break;
+            case GUARD:
+                movable = new Guard(row, col, DIRECTIONS[guardDirection[occupantIndex(cell)]], null);
+                break;
+            case CRATE:
+                movable = new Crate(row, col, null);
+                break;
+            default:
+                break;
+        }
+        Tile tile;
+        switch (kind) {
+            case WALL:
+                return new Wall();
+            case OBJECTIVE:
+                return new Objective(movable);
+            case PITFALL:
+                Pitfall pitfall = new Pitfall();
+                if (isFilled(cell))
+                    pitfall.fill();
+                tile = pitfall;
+                break;
+            case ROTATION_LEFT:
+                return new RotationPassage(Rotation.LEFT, movable);
+            case ROTATION_RIGHT:
+                return new RotationPassage(Rotation.RIGHT, movable);
+            case ICY:
+                tile = new IcyTile();
+                break;
+            case PASSAGE:
+                return new EmptyPassage(movable);
+            default:
+                tile = new CurvedIcyTile(DIRECTIONS[CURVED_VERTICAL[kind - CURVED_UP_RIGHT]],
+                        DIRECTIONS[CURVED_HORIZONTAL[kind - CURVED_UP_RIGHT]],
+                        DIRECTIONS[CURVED_MAIN[kind - CURVED_UP_RIGHT]]);
+                break;
+        }
+        tile.steppedOnBy(movable);
+        return tile;
+    }
+
+    @Override
+    public boolean isPlayerAt(int row, int col) {
+        return occupantType(cellIndex(row, col)) == PLAYER;
+    }
+
+    @Override
+    public int getMoveCount() {
+        return movesCount;
+    }
+
+    @Override
+    public boolean isWon() {
+        return won;
+    }
+
+    @Override
+    public boolean isLost() {
+        return lost;
+    }
+
+    @Override
+    public boolean isUnwinnable() {
+        if (deadlocks == null)
+            deadlocks = new DeadlockAnalyzer(this);
+        return deadlocks.isUnwinnable(this);
+    }
+
+    /**
+     * Keeps no history, solvers store whole states and restore them with {@link #copyStateFrom(CompactLevel)}.
+     * @return false
+     */
+    @Override
+    public boolean undo() {
+        return false;
+    }
+
+    /**
+     * Keeps no history.
+     * @return false
+     */
+    @Override
+    public boolean redo() {
+        return false;
+    }
+}
@@ -0,0 +1,289 @@
+package discpative.model;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Detects states of a level that can no longer be won.
+ *
+ * The level is won as soon as the player reaches an objective, so a state is dead
+ * if every way to an objective is blocked for good. That is the case for walls, frozen crates
+ * (blocked on both axes by walls or other frozen crates, so they can never be pushed again)
+ * and empty pitfalls that no movable crate can reach anymore.
+ * Which crate cells can reach which pitfall is computed once per level from the layout of walls
+ * and pitfalls; cells from which a crate never reaches a pitfall are dead squares.
+ * Ice lets movables move without collision checks, so everything on or next to ice counts as alive.
+ * A {@link Level} asks for the full check only if a crate move of the last turns could have caused a deadlock,
+ * see {@link #needsCheck(Level, int[], int)}.
+ * Not thread safe, every thread needs its own analyzer.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class DeadlockAnalyzer {
+    private final CompactLevel layout; //copy of the start, only the tiles are used
+    private final int[] pitfalls; //cells of all pitfalls
+    private final boolean[][] reachesPitfall; //per pitfall, cells from which a crate can be pushed into it
+    private final boolean[] reachesIce; //cells from which a crate can be pushed onto or next to ice
+    private final boolean[] nearIce; //cells on or next to ice
+    private final int[] marks; //crates treated as walls during a freeze check, by stamp
+    private final int[] frozen; //crates found frozen by a full check, by stamp
+    private final int[] visited; //cells visited by the player search, by stamp
+    private final int[] queue; //scratch queue of the searches
+    private int stamp; //number of the current check
+
+    /**
+     * Constructor.
+     * Precomputes the dead squares from walls and pitfalls.
+     * @param level any state of the level
+     */
+    public DeadlockAnalyzer(CompactLevel level) {
+        layout = new CompactLevel(level);
+        int cellCount = layout.getCellCount();
+        marks = new int[cellCount];
+        frozen = new int[cellCount];
+        visited = new int[cellCount];
+        queue = new int[cellCount];
+
+        nearIce = new boolean[cellCount];
+        for (int cell = 0; cell < cellCount; cell++)
+            if (isIcy(cell)) {
+                nearIce[cell] = true;
+                for (int direction = 0; direction < 4; direction++) {
+                    nearIce[layout.neighbour(cell, direction)] = true;
+                }
+            }
+
+        int count = 0;
+        for (int cell = 0; cell < cellCount; cell++)
+            if (layout.kindOf(cell) == CompactLevel.PITFALL)
+                count++;
+        pitfalls = new int[count];
+        reachesPitfall = new boolean[count][];
+        count = 0;
+        for (int cell = 0; cell < cellCount; cell++)
+            if (layout.kindOf(cell) == CompactLevel.PITFALL) {
+                pitfalls[count] = cell;
+                reachesPitfall[count++] = pullFrom(new int[]{cell});
+            }
+
+        int[] icy = new int[cellCount];
+        count = 0;
+        for (int cell = 0; cell < cellCount; cell++)
+            if (nearIce[cell] && layout.kindOf(cell) != CompactLevel.WALL)
+                icy[count++] = cell;
+        reachesIce = pullFrom(Arrays.copyOf(icy, count));
+    }
+
+    /**
+     * Checks if a crate on a cell can never fill a pitfall
+     * @param cell index of a cell
+     * @return true for cells that are no wall but a dead end for crates
+     */
+    public boolean isDeadSquare(int cell) {
+        if (layout.kindOf(cell) == CompactLevel.WALL || reachesIce[cell])
+            return false;
+        for (boolean[] reaches : reachesPitfall)
+            if (reaches[cell])
+                return false;
+        return true;
+    }
+
+    /**
+     * Checks if the crate on a cell can never be pushed again.
+     * Enough to call after a crate moved, only crates next to it can freeze with it.
+     * @param state the current state
+     * @param cell cell of a crate
+     * @return true if the crate is frozen
+     */
+    public boolean isFrozen(CompactLevel state, int cell) {
+        stamp++;
+        return frozen(crates(state), cell);
+    }
+
+    /**
+     * Checks if crate moves can have made a winnable level unwinnable.
+     * A moved crate can only freeze itself and the crates next to it, or leave the pitfalls it could still
+     * reach. If none of that happened the level is as winnable as before and needs no full check.
+     * @param level the level after the moves
+     * @param moves cells of the moved crates before and after each move, row * colCount + col, in pairs
+     * @param count number of used entries of moves
+     * @return true if {@link #isUnwinnable(CompactLevel)} has to decide
+     */
+    boolean needsCheck(Level level, int[] moves, int count) {
+        Bitboards boards = level.getBitboards();
+        int colCount = level.getColCount();
+        IntPredicate crateAt = cell -> boards.isCrate(boards.cellOf(layout.rowOf(cell), layout.colOf(cell)));
+        for (int i = 0; i < count; i += 2) {
+            int from = layout.cellIndex(moves[i] / colCount, moves[i] % colCount);
+            int to = layout.cellIndex(moves[i + 1] / colCount, moves[i + 1] % colCount);
+            if (reachesIce[from] && !reachesIce[to])
+                return true;
+            for (boolean[] reaches : reachesPitfall)
+                if (reaches[from] && !reaches[to])
+                    return true;
+            if (!crateAt.test(to))
+                continue; //moved on in the same turn, its later move is checked on its own
+            stamp++;
+            if (frozen(crateAt, to))
+                return true;
+            for (int direction = 0; direction < 4; direction++) {
+                int next = layout.neighbour(to, direction);
+                if (layout.kindOf(next) == CompactLevel.WALL || !crateAt.test(next))
+                    continue;
+                stamp++;
+                if (frozen(crateAt, next))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the state can no longer be won
+     * @param state the current state
+     * @return true if the player can never reach an objective
+     */
+    public boolean isUnwinnable(CompactLevel state) {
+        if (state.isLost())
+            return true;
+        if (state.isWon())
+            return false;
+        int player = state.getPlayerCell();
+        if (state.occupantType(player) != CompactLevel.PLAYER)
+            return true;
+
+        int search = ++stamp;
+        IntPredicate crateAt = crates(state);
+        for (int crate = 0; crate < state.getCrateSlots(); crate++) {
+            int cell = state.getCrateCell(crate);
+            if (cell < 0)
+                continue;
+            stamp++;
+            if (frozen(crateAt, cell))
+                frozen[cell] = search;
+        }
+
+        visited[player] = search;
+        queue[0] = player;
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int cell = queue[head];
+            if (layout.kindOf(cell) == CompactLevel.OBJECTIVE)
+                return false;
+            for (int direction = 0; direction < 4; direction++) {
+                int next = layout.neighbour(cell, direction);
+                if (visited[next] == search || layout.kindOf(next) == CompactLevel.WALL)
+                    continue;
+                if (state.occupantType(next) == CompactLevel.CRATE && frozen[next] == search)
+                    continue;
+                if (isClosedPitfall(state, next, search))
+                    continue;
+                visited[next] = search;
+                queue[tail++] = next;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks a state after a single move.
+     * Only a moving crate can turn a winnable state into a dead one, so the full check
+     * only runs if a crate moved.
+     * @param before the state before the move, known to be winnable
+     * @param after the state after the move
+     * @return true if the state after the move can no longer be won
+     */
+    public boolean isDeadAfterMove(CompactLevel before, CompactLevel after) {
+        if (after.isLost())
+            return true;
+        for (int crate = 0; crate < after.getCrateSlots(); crate++)
+            if (before.getCrateCell(crate) != after.getCrateCell(crate))
+                return isUnwinnable(after);
+        return false;
+    }
+
+    private static IntPredicate crates(CompactLevel state) {
+        return cell -> state.occupantType(cell) == CompactLevel.CRATE;
+    }
+
+    /**
+     * Recursive freeze check, the crate itself counts as wall for its neighbours while it is checked.
+     * Results depend on that assumption, so they are not kept.
+     * @param crateAt tells the cells with a crate
+     * @param cell cell of a crate
+     * @return true if the crate is frozen
+     */
+    private boolean frozen(IntPredicate crateAt, int cell) {
+        if (nearIce[cell])
+            return false;
+        marks[cell] = stamp;
+        boolean frozen = blocks(crateAt, layout.neighbour(cell, 1)) || blocks(crateAt, layout.neighbour(cell, 2));
+        frozen = frozen && (blocks(crateAt, layout.neighbour(cell, 0)) || blocks(crateAt, layout.neighbour(cell, 3)));
+        marks[cell] = 0;
+        return frozen;
+    }
+
+    private boolean blocks(IntPredicate crateAt, int cell) {
+        if (layout.kindOf(cell) == CompactLevel.WALL || marks[cell] == stamp)
+            return true;
+        return crateAt.test(cell) && frozen(crateAt, cell);
+    }
+
+    /**
+     * An empty pitfall blocks the player if no crate that can still move is able to reach it
+     * @param state the current state
+     * @param cell the cell to check
+     * @param search stamp of the frozen crates
+     * @return true if the cell is an empty pitfall that can never be filled
+     */
+    private boolean isClosedPitfall(CompactLevel state, int cell, int search) {
+        if (layout.kindOf(cell) != CompactLevel.PITFALL || state.isFilled(cell) || nearIce[cell])
+            return false;
+        int pitfall = 0;
+        while (pitfalls[pitfall] != cell)
+            pitfall++;
+        for (int crate = 0; crate < state.getCrateSlots(); crate++) {
+            int crateCell = state.getCrateCell(crate);
+            if (crateCell < 0 || frozen[crateCell] == search)
+                continue;
+            if (reachesPitfall[pitfall][crateCell] || reachesIce[crateCell])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Backwards search of crate pushes: a crate reaches a target from a cell if the
+     * pusher behind it and the cell in front of it are no walls
+     * @param targets the cells to reach
+     * @return cells from which a crate can be pushed to one of the targets
+     */
+    private boolean[] pullFrom(int[] targets) {
+        boolean[] reaches = new boolean[layout.getCellCount()];
+        int tail = 0;
+        for (int target : targets) {
+            reaches[target] = true;
+            queue[tail++] = target;
+        }
+        for (int head = 0; head < tail; head++) {
+            int cell = queue[head];
+            for (int direction = 0; direction < 4; direction++) {
+                int from = layout.neighbour(cell, CompactLevel.opposite(direction));
+                if (reaches[from] || layout.kindOf(from) == CompactLevel.WALL)
+                    continue;
+                int pusher = layout.neighbour(from, CompactLevel.opposite(direction));
+                if (layout.kindOf(pusher) == CompactLevel.WALL)
+                    continue;
+                reaches[from] = true;
+                queue[tail++] = from;
+            }
+        }
+        return reaches;
+    }
+
+    private boolean isIcy(int cell) {
+        int kind = layout.kindOf(cell);
+        return kind == CompactLevel.ICY || CompactLevel.isCurvedIcy(kind);
+    }
+}
@@ -1,13 +1,19 @@
 package discpative.model;
 
+import discpative.controller.Axis;
 import discpative.controller.Direction;
 import discpative.controller.Rotation;
-import discpative.io.In;
-import discpative.io.Out;
+import discpative.io.TextReader;
+import discpative.io.TextWriter;
 import discpative.tools.Tools;
 import discpative.view.ViewInterface;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * The model of the level.
@@ -16,6 +22,8 @@ import java.util.ArrayList;
  * @version final
  */
 public class Level implements LevelInterface{
+    private static final int MAX_MOVED_CRATES = 64; //crate moves noted between two deadlock checks, times two
+
     private int rowCount = 0; //total number of rows in the level
     private int colCount = 0; //total number of columns in the level
     private int movesCount = 0; //number of moves done by the player
@@ -24,9 +32,26 @@ public class Level implements LevelInterface{
     private Tile[][] grid; //2-dimensional array of all the tile objects
     private ArrayList<Guard> guards; //array of all guards
     private ArrayList<Crate> crates; //array of all crates
-    private ArrayList<ViewInterface> views; //array of views
+    private final LevelEvents events = new LevelEvents(); //listeners of the level, e.g. the views
+    private ChangeRecorder changes; //changes of the current turn, created with the first turn that has listeners
     private boolean lost; //is the level lost
     private boolean won; //is the level lost
+    private final LevelTemplate template; //parsed start of the level
+    private TextWriter out = TextWriter.console(); //receives the status messages
+    private DeadlockAnalyzer deadlocks; //dead squares of the level, created on first use
+    private boolean unwinnable; //result of the last deadlock check
+    private boolean cratesMoved; //the crates changed in a way that needs a full deadlock check
+    private final int[] movedCrates = new int[MAX_MOVED_CRATES]; //cell before and after each crate move since the last check
+    private int movedCrateCount; //used entries of movedCrates
+    private final Zobrist zobrist; //keys of the state hash
+    private long stateHash; //Zobrist hash of the current state, kept up to date by every move
+    private final SightIndex sight; //line of sight of the guards, movables by row and by column, see Bitboards
+    private final Bitboards bitboards; //tiles and movables as bitsets for the collision checks
+    private final ArrayList<Movable> movables = new ArrayList<>(); //all movables, indexed by their id
+    private final TurnHistory history = new TurnHistory(); //changes of all turns, for undo and redo
+    private boolean movingGuards; //the guards are taking their turn
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int SNAPSHOT_MAGIC = 0x44535301; //"DSS" and version 1
 
     /**
      * Creates a new object of the type Level
@@ -34,11 +59,38 @@ public class Level implements LevelInterface{
      * @param levelNumber the number of the level that should be loaded
      */
     public Level(int levelNumber) {
-        views = new ArrayList<>();
+        this(new LevelTemplate(readLevel(levelNumber)));
+    }
+
+    /**
+     * Creates a new object of the type Level
+     * Loads the level from a level pack
+     * @param pack an open level pack
+     * @param levelNumber the number of the level that should be loaded
+     * @throws IOException if the pack does not contain the level or cannot be read
+     */
+    public Level(LevelPack pack, int levelNumber) throws IOException {
+        this(new LevelTemplate(pack.read(levelNumber)));
+    }
+
+    /**
+     * Creates a new object of the type Level
+     * Builds the level from a parsed template, see {@link LevelCache} to share templates
+     * @param template the parsed level
+     */
+    public Level(LevelTemplate template) {
+        this.template = template;
         crates = new ArrayList<>();
-        array2Level(loadLevel(levelNumber));
+        rowCount = template.getRowCount();
+        colCount = template.getColCount();
+        array2Level(template);
         lost = false;
         won = false;
+        cratesMoved = true;
+        zobrist = template.getZobrist();
+        stateHash = template.getStartSnapshot() != null ? template.getStartHash() : zobrist.hashOf(this);
+        sight = new SightIndex(template.getStart().getSightIndex());
+        bitboards = new Bitboards(template.getBitboards());
     }
 
     /**
@@ -47,42 +99,69 @@ public class Level implements LevelInterface{
      * @return the level file as array of characters
      */
     public char[][] loadLevel(int levelNumber) {
-        ArrayList<String> lineArray = new ArrayList<>();
-        In.open("resources/levels/Level" + levelNumber + ".txt");
-
-        String line = In.readLine();
-        for (int i = 0; In.done(); i++) {
-            lineArray.add(i, line);
-            int lineLen = line.length();
-            if (lineLen > colCount)
-                colCount = lineLen;
-            line = In.readLine();
+        char[][] level = readLevel(levelNumber);
+        rowCount = level.length;
+        colCount = rowCount > 0 ? level[0].length : 0;
+        return level;
+    }
+
+    /**
+     * Reads a level from resources/levels.
+     * Prefers the binary file of {@link BinaryLevel} and falls back to the text file,
+     * also if the text file was changed after the binary one was written.
+     * @param levelNumber the number of the level that should be loaded
+     * @return the level file as array of characters
+     */
+    static char[][] readLevel(int levelNumber) {
+        String fileName = "resources/levels/Level" + levelNumber;
+        Path binary = Paths.get(fileName + BinaryLevel.EXTENSION);
+        if (BinaryLevel.isUpToDate(binary, Paths.get(fileName + ".txt"))) {
+            try {
+                return BinaryLevel.read(binary);
+            } catch (IOException e) {
+                TextWriter.console().println("Could not read " + binary + ": " + e.getMessage());
+            }
         }
-        rowCount = lineArray.size();
-
-        char[][] level = new char[rowCount][colCount];
-        for (int i = 0; i < lineArray.size(); i++) {
-            for (int j = 0; j < colCount; j++) {
-                try {
-                    level[i][j] = lineArray.get(i).charAt(j);
-                } catch (IndexOutOfBoundsException e) {
-                    level[i][j] = '#';
-                }
+        return readLevel(fileName + ".txt");
+    }
+
+    /**
+     * Reads a level file into a rectangular array of chars.
+     * Lines shorter than the longest line are padded with walls.
+     * @param fileName path of the level file
+     * @return the level file as array of characters
+     */
+    static char[][] readLevel(String fileName) {
+        ArrayList<String> lineArray = new ArrayList<>();
+        int colCount = 0;
+        try (TextReader in = new TextReader(fileName)) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                lineArray.add(line);
+                colCount = Math.max(colCount, line.length());
             }
+        } catch (IOException e) {
+            TextWriter.console().println("Could not read " + fileName + ": " + e.getMessage());
+        }
+
+        char[][] level = new char[lineArray.size()][colCount];
+        for (int i = 0; i < level.length; i++) {
+            String line = lineArray.get(i);
+            line.getChars(0, line.length(), level[i], 0);
+            Arrays.fill(level[i], line.length(), colCount, '#');
         }
         return level;
     }
 
     /**
-     * Converts an array of chars to an actual Level and writes it into the object
-     * @param level the number of the level that should be loaded
+     * Converts a parsed level to an actual Level and writes it into the object
+     * @param level the parsed level
      */
-    private void array2Level(char[][] level) {
+    private void array2Level(LevelTemplate level) {
         grid = new Tile[rowCount][colCount];
         guards = new ArrayList<>();
-        for (int row = 0; row < level.length; row++) {
-            for (int col = 0; col < level[0].length; col++) {
-                switch (level[row][col]) {
+        for (int row = 0; row < rowCount; row++) {
+            for (int col = 0; col < colCount; col++) {
+                switch (level.charAt(row, col)) {
                     case ' ':
                         grid[row][col] = new EmptyPassage();
                         break;
@@ -164,14 +243,25 @@ public class Level implements LevelInterface{
                 }
             }
         }
+        for (Tile[] line : grid)
+            for (Tile tile : line)
+                if (tile.contains() != null) {
+                    tile.contains().setId(movables.size());
+                    movables.add(tile.contains());
+                }
     }
 
     /**
      * Moves all guards that can move at not given order
      */
     public void moveGuards() {
+        for (Guard guard : guards)
+            if (guard.hasMoved())
+                history.record(TurnHistory.GUARD_UNMARKED, guard.getId());
+        movingGuards = true;
         guards.forEach(Guard::move);
         guards.forEach(Guard::resetMoved);
+        movingGuards = false;
     }
 
     /**
@@ -187,9 +277,16 @@ public class Level implements LevelInterface{
      * @param direction direction the player tries to move to
      * @return true if player can move to 1 field in given direction directly, otherwise false
      */
+    @Override
     public boolean canPlayerMoveTo(Direction direction){
+        beginTurn(); //the check may push guards, listeners see them in the turn of the move
         Player player = (Player) getTileAt(playerRow, playerCol).contains();
-        return !player.checkCollision(direction);
+        boolean free = !player.checkCollision(direction);
+        if (!free) {
+            history.endTurn(); //a blocked move may still have pushed guards, that is a turn of its own
+            deliverChanges();
+        }
+        return free;
     }
 
     /**
@@ -199,6 +296,7 @@ public class Level implements LevelInterface{
      * @param col the destiantion column
      * @return true if player can move to coordinates directly, otherwise false
      */
+    @Override
     public boolean canplayerMoveTo(int row, int col) {
         Direction dir = Tools.delta2dir(row - playerRow,col - playerCol);
         if(dir != null)
@@ -212,14 +310,254 @@ public class Level implements LevelInterface{
      * Moves guards afterwards and checks if player is visible
      * @param direction direction the player tries to move to
      */
+    @Override
     public void movePlayerTo(Direction direction) {
-        if(lost || won)
+        if(lost || won) {
+            history.endTurn();
+            deliverChanges();
             return;
+        }
+        beginTurn();
         Movable player = grid[playerRow][playerCol].contains();
         player.move(direction);
         movesCount++;
         moveGuards();
         isPlayerVisible();
+        history.endCountedTurn();
+        deliverChanges();
+    }
+
+    /**
+     * Takes back the last turn.
+     * Only the recorded changes of the turn are reverted, nothing is reloaded.
+     * @return true if a turn was taken back
+     */
+    @Override
+    public boolean undo() {
+        int start = history.undoStart();
+        if (start < 0)
+            return false;
+        beginReplay();
+        for (int i = history.size() - 1; i >= start; i--) {
+            int entry = history.get(i);
+            if (TurnHistory.kind(entry) == TurnHistory.CRATE_REMOVED)
+                restoreCrate(TurnHistory.payload(entry), TurnHistory.payload(history.get(--i)));
+            else
+                replay(entry, false);
+        }
+        history.moveTo(start);
+        endReplay();
+        return true;
+    }
+
+    /**
+     * Repeats the last turn taken back
+     * @return true if a turn was repeated
+     */
+    @Override
+    public boolean redo() {
+        int end = history.redoEnd();
+        if (end == history.size())
+            return false;
+        beginReplay();
+        for (int i = history.size(); i < end; i++) {
+            int entry = history.get(i);
+            if (TurnHistory.kind(entry) == TurnHistory.CRATE_CELL)
+                removeCrate(TurnHistory.payload(history.get(++i)));
+            else
+                replay(entry, true);
+        }
+        history.moveTo(end);
+        endReplay();
+        return true;
+    }
+
+    /**
+     * Starts collecting the changes of a turn if anybody listens and the turn has not started yet
+     */
+    private void beginTurn() {
+        if (events.isEmpty() || changes != null && changes.isRecording())
+            return;
+        if (changes == null)
+            changes = new ChangeRecorder(rowCount, colCount);
+        changes.begin();
+        events.fireTurnStarted();
+    }
+
+    /**
+     * Sends the changes of the turn to all listeners as one change set
+     */
+    private void deliverChanges() {
+        if (changes != null && changes.isRecording())
+            events.fireTurnEnded(changes.finish(movesCount));
+    }
+
+    private void beginReplay() {
+        history.setReplaying(true);
+        beginTurn();
+    }
+
+    private void endReplay() {
+        history.setReplaying(false);
+        cratesMoved = true;
+        deliverChanges();
+    }
+
+    /**
+     * Undoes or redoes a single change
+     * @param entry the packed change, see {@link TurnHistory}
+     * @param forward true to redo the change, false to undo it
+     */
+    private void replay(int entry, boolean forward) {
+        int payload = TurnHistory.payload(entry);
+        switch (TurnHistory.kind(entry)) {
+            case TurnHistory.MOVE: {
+                Movable movable = movables.get(payload >>> 2);
+                Direction direction = DIRECTIONS[payload & 3];
+                if (!forward)
+                    direction = Tools.getOppositeDirection(direction);
+                relocate(movable, movable.getRow() + Tools.dir2row(direction),
+                        movable.getCol() + Tools.dir2col(direction));
+                break;
+            }
+            case TurnHistory.DIRECTION:
+                ((Character) movables.get(payload >>> 4)).rotate(DIRECTIONS[forward ? payload & 3 : payload >>> 2 & 3]);
+                break;
+            case TurnHistory.STEP: {
+                Character character = (Character) movables.get(payload >>> 6);
+                Direction direction = DIRECTIONS[payload >>> 4 & 3];
+                if (!forward) {
+                    character.rotate(DIRECTIONS[payload >>> 2 & 3]);
+                    direction = Tools.getOppositeDirection(direction);
+                }
+                relocate(character, character.getRow() + Tools.dir2row(direction),
+                        character.getCol() + Tools.dir2col(direction));
+                if (forward)
+                    character.rotate(DIRECTIONS[payload & 3]);
+                break;
+            }
+            case TurnHistory.ICY: {
+                int cell = payload >>> 6;
+                int code = forward ? payload & 7 : payload >>> 3 & 7;
+                IcyTile tile = (IcyTile) grid[cell / colCount][cell % colCount];
+                Direction direction = code == 0 ? null : DIRECTIONS[code - 1];
+                stateHash ^= zobrist.icy(cell / colCount, cell % colCount, tile.getIcyDirection())
+                        ^ zobrist.icy(cell / colCount, cell % colCount, direction);
+                tile.icyDirection = direction;
+                break;
+            }
+            case TurnHistory.FILL: {
+                int row = payload / colCount;
+                int col = payload % colCount;
+                if (forward)
+                    fillPitfall(row, col);
+                else {
+                    ((Pitfall) grid[row][col]).unfill();
+                    stateHash ^= zobrist.filled(row, col);
+                    bitboards.unfill(payload);
+                }
+                updateTile(row, col);
+                break;
+            }
+            case TurnHistory.STATUS: {
+                int flags = forward ? payload & 3 : payload >>> 2;
+                lost = (flags & 2) != 0;
+                won = (flags & 1) != 0;
+                break;
+            }
+            case TurnHistory.TURN:
+                movesCount += forward ? payload : -payload;
+                break;
+            case TurnHistory.GUARD_MARKED:
+            case TurnHistory.GUARD_UNMARKED: {
+                Guard guard = (Guard) movables.get(payload);
+                if (forward == (TurnHistory.kind(entry) == TurnHistory.GUARD_MARKED))
+                    guard.markMoved();
+                else
+                    guard.resetMoved();
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Puts a movable on another cell without any reaction of the tiles, used to undo and redo turns
+     * @param movable the movable
+     * @param row the new row
+     * @param col the new column
+     */
+    private void relocate(Movable movable, int row, int col) {
+        int fromRow = movable.getRow();
+        int fromCol = movable.getCol();
+        hashMovable(movable, fromRow, fromCol);
+        grid[fromRow][fromCol].place(null);
+        movable.setRow(row);
+        movable.setCol(col);
+        if (!grid[row][col].isWall())
+            grid[row][col].place(movable);
+        hashMovable(movable, row, col);
+        movableMoved(movable, fromRow, fromCol, row, col);
+        if (movable.isPlayer())
+            setPlayerPos(row, col);
+        updateMoveablePresence(fromRow, fromCol, movable);
+        updateMoveablePresence(row, col, movable);
+    }
+
+    /**
+     * Removes a crate again that fell into a pitfall, used to redo a turn
+     * @param payload the {@link TurnHistory#CRATE_REMOVED} entry
+     */
+    private void removeCrate(int payload) {
+        Crate crate = (Crate) movables.get(payload >>> 14);
+        int row = crate.getRow();
+        int col = crate.getCol();
+        crates.remove(payload & 0x3FFF);
+        hashMovable(crate, row, col);
+        movableRemoved(crate, row, col);
+        grid[row][col].place(null);
+        crate.setRow(-1);
+        crate.setCol(-1);
+        updateMoveablePresence(row, col, crate);
+    }
+
+    /**
+     * Puts a crate back that fell into a pitfall, used to undo a turn
+     * @param payload the {@link TurnHistory#CRATE_REMOVED} entry
+     * @param cell cell of the crate before it fell
+     */
+    private void restoreCrate(int payload, int cell) {
+        Crate crate = (Crate) movables.get(payload >>> 14);
+        int row = cell / colCount;
+        int col = cell % colCount;
+        crates.add(payload & 0x3FFF, crate);
+        crate.setRow(row);
+        crate.setCol(col);
+        grid[row][col].place(crate);
+        hashMovable(crate, row, col);
+        sight.occupy(row, col);
+        bitboards.add(crate, cell);
+        updateMoveablePresence(row, col, crate);
+    }
+
+    /**
+     * Converts an ice direction for the history
+     * @param direction ice direction, may be null
+     * @return direction + 1, 0 if not set
+     */
+    private static int icyCode(Direction direction) {
+        return direction == null ? 0 : direction.ordinal() + 1;
+    }
+
+    /**
+     * Updates the history before the game status changes
+     * @param newLost the level will be lost
+     * @param newWon the level will be won
+     */
+    private void recordStatus(boolean newLost, boolean newWon) {
+        if (newLost != lost || newWon != won)
+            history.record(TurnHistory.STATUS, (lost ? 8 : 0) | (won ? 4 : 0) | (newLost ? 2 : 0) | (newWon ? 1 : 0));
     }
 
     /**
@@ -228,6 +566,7 @@ public class Level implements LevelInterface{
      * @param row destination row
      * @param col destination column
      */
+    @Override
     public void movePlayerTo(int row, int col) {
         Direction dir = Tools.delta2dir(row - playerRow, col - playerCol);
         if(dir != null)
@@ -248,8 +587,10 @@ public class Level implements LevelInterface{
      * Prints out that the game is lost and interrupts user from further moves
      */
     public void lose() {
+        recordStatus(true, won);
         lost = true;
-        Out.println("You lost.");
+        out.println("You lost.");
+        events.fireLost();
     }
 
     /**
@@ -258,8 +599,9 @@ public class Level implements LevelInterface{
      * @param col the column that tile is in
      */
     public void updateTile(int row, int col) {
-        for (ViewInterface view : views)
-            view.updateTile(row, col);
+        if (changes != null && changes.isRecording())
+            changes.record(row, col, ChangeSet.TILE);
+        events.fireTileChanged(row, col);
     }
 
     /**
@@ -271,66 +613,31 @@ public class Level implements LevelInterface{
      * @param movable the movable itself
      */
     public void updateMoveablePresence(int row, int col, Movable movable) {
-        if (movable.isPlayer()) {
-            updatePlayerPresence(row, col);
-        } else if(movable.isGuard()) {
-            updateGuardsPresence(row, col);
-        } else if(movable.isCrate()) {
-            updateCratePresence(row, col);
-        }
-    }
-
-    /**
-     * Updates the graphic of the player
-     * Removes old graphic if player is not at coordinates
-     * Adds new graphic if player is at coordinates
-     * @param row the row of the player
-     * @param col the column of the player
-     */
-    private void updatePlayerPresence(int row, int col) {
-        for (ViewInterface view : views)
-            view.updatePlayerPresence(row, col);
-    }
-
-    /**
-     * Updates the graphic of a guard
-     * Removes old graphic if guard is not at coordinates
-     * Adds new graphic if guard is at coordinates
-     * @param row
-     * @param col
-     */
-    private void updateGuardsPresence(int row, int col) {
-        for (ViewInterface view : views)
-            view.updateGuardPresence(row, col);
-    }
-
-    /**
-     * Updates the graphic of a crate
-     * Removes old graphic if crate is not at coordinates
-     * Adds new graphic if crate is at coordinates
-     * @param row
-     * @param col
-     */
-    private void updateCratePresence(int row, int col) {
-        for (ViewInterface view : views)
-            view.updateCratePresence(row, col);
-    }
-
-    /**
-     * updates the statusline on all views
-     */
-    private void updateStatusLine() {
-        views.forEach(ViewInterface::updateStatusLine);
+        if (row < 0 || col < 0)
+            return;
+        if (changes != null && changes.isRecording())
+            changes.record(row, col, ChangeSet.MOVABLE);
+        if (movable.isPlayer())
+            events.fireMoved(row, col, CompactLevel.PLAYER);
+        else if (movable.isGuard())
+            events.fireMoved(row, col, CompactLevel.GUARD);
+        else if (movable.isCrate())
+            events.fireMoved(row, col, CompactLevel.CRATE);
     }
 
     @Override
     public void registerView(ViewInterface view) {
-        views.add(view);
+        events.subscribe(view);
     }
 
     @Override
     public void unregisterView(ViewInterface view) {
-        views.remove(view);
+        events.unsubscribe(view);
+    }
+
+    @Override
+    public LevelEvents getEvents() {
+        return events;
     }
 
     @Override
@@ -359,12 +666,370 @@ public class Level implements LevelInterface{
         return movesCount;
     }
 
+    @Override
+    public boolean isWon() {
+        return won;
+    }
+
+    @Override
+    public boolean isLost() {
+        return lost;
+    }
+
+    /**
+     * Checks if the player can never reach an objective anymore.
+     * Only crates can block the way for good, so the check only runs again after a crate moved,
+     * and only if the move could have frozen a crate or cut a pitfall off from its last crate.
+     * @return true if the level can no longer be won
+     */
+    @Override
+    public boolean isUnwinnable() {
+        if (deadlocks == null)
+            deadlocks = new DeadlockAnalyzer(template.getStart());
+        if (movedCrateCount > 0 && (unwinnable || deadlocks.needsCheck(this, movedCrates, movedCrateCount)))
+            cratesMoved = true;
+        movedCrateCount = 0;
+        if (cratesMoved) {
+            unwinnable = deadlocks.isUnwinnable(new CompactLevel(this));
+            cratesMoved = false;
+        }
+        return lost || unwinnable && !won;
+    }
+
+    /**
+     * Setter.
+     * Only the last turns can be undone, older ones are forgotten and need no memory.
+     * @param turns number of turns that can be undone, 0 turns undo off
+     */
+    public void setUndoLimit(int turns) {
+        history.setMaxTurns(turns);
+    }
+
+    /**
+     * Setter.
+     * @param out writer for the status messages, e.g. one per session
+     */
+    public void setOutput(TextWriter out) {
+        this.out = out;
+    }
+
+    /**
+     * Getter.
+     * Equal states of the same level have equal hashes, the move count is not part of the state.
+     * @return 64 bit Zobrist hash of the current state
+     */
+    public long getStateHash() {
+        return stateHash;
+    }
+
+    /**
+     * Saves the state of the level.
+     * The snapshot starts with the magic number, the fingerprint of the map, the move count and the
+     * lost and won flags. Then follow the cell of every movable in the order of their ids, -1 for a removed
+     * crate, for the player and the guards a byte with direction, axis and the moved flag of the turn.
+     * The filled pitfalls are a bit each, the ice directions of the icy tiles half a byte each,
+     * both in reading order. The undo history is not saved.
+     * @return the snapshot, only fits instances of the same map
+     */
+    public byte[] snapshot() {
+        ByteBuffer out = ByteBuffer.allocate(snapshotSize());
+        out.putInt(SNAPSHOT_MAGIC).putInt(template.getFingerprint()).putInt(movesCount);
+        out.put((byte) ((lost ? 2 : 0) | (won ? 1 : 0)));
+        out.putShort((short) movables.size());
+        for (Movable movable : movables) {
+            out.putInt(movable.getRow() < 0 ? -1 : movable.getRow() * colCount + movable.getCol());
+            if (!movable.isCrate()) {
+                Character character = (Character) movable;
+                boolean moved = movable.isGuard() && ((Guard) movable).hasMoved();
+                out.put((byte) (character.getDirection().ordinal() | (character.getAxis() == Axis.HORIZONTAL ? 4 : 0)
+                        | (moved ? 8 : 0)));
+            }
+        }
+        int[] pitfalls = template.getPitfallCells();
+        for (int i = 0; i < pitfalls.length; i += 8) {
+            int bits = 0;
+            for (int j = i; j < Math.min(i + 8, pitfalls.length); j++)
+                if (tileOf(pitfalls[j]).isFilled())
+                    bits |= 1 << (j - i);
+            out.put((byte) bits);
+        }
+        int[] icyCells = template.getIcyCells();
+        for (int i = 0; i < icyCells.length; i += 2) {
+            int bits = icyCode(((IcyTile) tileOf(icyCells[i])).getIcyDirection());
+            if (i + 1 < icyCells.length)
+                bits |= icyCode(((IcyTile) tileOf(icyCells[i + 1])).getIcyDirection()) << 4;
+            out.put((byte) bits);
+        }
+        return out.array();
+    }
+
+    /**
+     * Puts the level back into its start state.
+     * Unlike a new instance from the template no tiles or movables are created, the start state is
+     * copied into the existing ones. Listeners, output and undo limit stay, the undo history is cleared.
+     */
+    public void reset() {
+        restore(template.getStartSnapshot());
+    }
+
+    /**
+     * Puts the level into a saved state.
+     * The listeners get the whole level as one change set, the undo history is cleared.
+     * @param snapshot a snapshot of an instance of the same map, see {@link #snapshot()}
+     * @throws IllegalArgumentException if the snapshot is broken or belongs to another map
+     */
+    public void restore(byte[] snapshot) {
+        if (snapshot.length != snapshotSize())
+            throw new IllegalArgumentException("snapshot of another level or broken");
+        ByteBuffer in = ByteBuffer.wrap(snapshot);
+        if (in.getInt() != SNAPSHOT_MAGIC)
+            throw new IllegalArgumentException("no level snapshot");
+        if (in.getInt() != template.getFingerprint())
+            throw new IllegalArgumentException("snapshot of another level");
+        int moves = in.getInt();
+        byte flags = in.get();
+        if (in.getShort() != movables.size())
+            throw new IllegalArgumentException("broken snapshot");
+        int[] cells = new int[movables.size()];
+        byte[] looks = new byte[movables.size()];
+        for (int id = 0; id < cells.length; id++) {
+            cells[id] = in.getInt();
+            if (cells[id] < -1 || cells[id] >= rowCount * colCount || cells[id] < 0 && !movables.get(id).isCrate())
+                throw new IllegalArgumentException("broken snapshot");
+            if (!movables.get(id).isCrate())
+                looks[id] = in.get();
+        }
+
+        for (Movable movable : movables)
+            if (movable.getRow() >= 0 && grid[movable.getRow()][movable.getCol()].contains() == movable)
+                grid[movable.getRow()][movable.getCol()].place(null);
+        crates.clear();
+        sight.clear();
+        bitboards.clearMovables();
+        stateHash = 0;
+        for (int id = 0; id < cells.length; id++)
+            restoreMovable(movables.get(id), cells[id], looks[id]);
+
+        int[] pitfalls = template.getPitfallCells();
+        int bits = 0;
+        for (int i = 0; i < pitfalls.length; i++) {
+            if ((i & 7) == 0)
+                bits = in.get();
+            Pitfall pit = (Pitfall) tileOf(pitfalls[i]);
+            if ((bits >>> (i & 7) & 1) != 0) {
+                pit.fill();
+                bitboards.fill(pitfalls[i]);
+                stateHash ^= zobrist.filled(pitfalls[i] / colCount, pitfalls[i] % colCount);
+            } else {
+                pit.unfill();
+                bitboards.unfill(pitfalls[i]);
+            }
+        }
+        int[] icyCells = template.getIcyCells();
+        for (int i = 0; i < icyCells.length; i++) {
+            if ((i & 1) == 0)
+                bits = in.get();
+            int code = bits >>> (i & 1) * 4 & 15;
+            Direction direction = code == 0 ? null : DIRECTIONS[(code - 1) & 3];
+            ((IcyTile) tileOf(icyCells[i])).icyDirection = direction;
+            stateHash ^= zobrist.icy(icyCells[i] / colCount, icyCells[i] % colCount, direction);
+        }
+        movesCount = moves;
+        lost = (flags & 2) != 0;
+        won = (flags & 1) != 0;
+        history.clear();
+        cratesMoved = true;
+
+        if (!events.isEmpty()) {
+            beginTurn();
+            for (int row = 0; row < rowCount; row++)
+                for (int col = 0; col < colCount; col++) {
+                    changes.record(row, col, ChangeSet.TILE);
+                    changes.record(row, col, ChangeSet.MOVABLE);
+                }
+            deliverChanges();
+        }
+    }
+
+    /**
+     * Computes the length of a snapshot of this map
+     * @return number of bytes
+     */
+    private int snapshotSize() {
+        int size = 15 + (template.getPitfallCells().length + 7) / 8 + (template.getIcyCells().length + 1) / 2;
+        for (Movable movable : movables)
+            size += movable.isCrate() ? 4 : 5;
+        return size;
+    }
+
+    private Tile tileOf(int cell) {
+        return grid[cell / colCount][cell % colCount];
+    }
+
+    /**
+     * Puts a movable on its saved cell, used to restore a snapshot
+     * @param movable the movable
+     * @param cell saved cell, -1 for a crate that fell into a pitfall
+     * @param look direction, axis and moved flag of a character
+     */
+    private void restoreMovable(Movable movable, int cell, byte look) {
+        int row = cell < 0 ? -1 : cell / colCount;
+        int col = cell < 0 ? -1 : cell % colCount;
+        movable.setRow(row);
+        movable.setCol(col);
+        if (!movable.isCrate()) {
+            Character character = (Character) movable;
+            character.setDirection(DIRECTIONS[look & 3]);
+            character.setAxis((look & 4) != 0 ? Direction.RIGHT : Direction.UP);
+            if (movable.isGuard()) {
+                if ((look & 8) != 0)
+                    ((Guard) movable).markMoved();
+                else
+                    ((Guard) movable).resetMoved();
+            }
+        }
+        if (movable.isPlayer())
+            setPlayerPos(row, col);
+        if (cell < 0)
+            return;
+        if (movable.isCrate())
+            crates.add((Crate) movable);
+        if (!grid[row][col].isWall())
+            grid[row][col].place(movable);
+        hashMovable(movable, row, col);
+        sight.occupy(row, col);
+        bitboards.add(movable, cell);
+    }
+
+    /**
+     * Adds a movable on a cell to the state hash or removes it from the hash
+     * @param movable the movable
+     * @param row row of the movable
+     * @param col column of the movable
+     */
+    void hashMovable(Movable movable, int row, int col) {
+        stateHash ^= zobrist.movable(movable, row, col);
+    }
+
+    /**
+     * Updates the state hash and the history after the ice direction of a cell changed
+     * @param row row of the icy tile
+     * @param col column of the icy tile
+     * @param from old ice direction of the tile, null if not set
+     * @param to new ice direction of the tile, null if not set
+     */
+    void icyDirectionChanged(int row, int col, Direction from, Direction to) {
+        if (from == to)
+            return;
+        stateHash ^= zobrist.icy(row, col, from) ^ zobrist.icy(row, col, to);
+        history.record(TurnHistory.ICY, (row * colCount + col) << 6 | icyCode(from) << 3 | icyCode(to));
+    }
+
+    /**
+     * Updates the history after a character turned
+     * @param character the character
+     * @param from old direction
+     * @param to new direction
+     */
+    void characterTurned(Character character, Direction from, Direction to) {
+        history.record(TurnHistory.DIRECTION, character.getId() << 4 | from.ordinal() << 2 | to.ordinal());
+    }
+
+    /**
+     * Updates the history after a guard moved for the first time this turn.
+     * Only pushes outside of the guard phase are kept, the guard then skips its next move.
+     * @param guard the guard
+     */
+    void guardMarked(Guard guard) {
+        if (!movingGuards)
+            history.record(TurnHistory.GUARD_MARKED, guard.getId());
+    }
+
+    /**
+     * Fills a pitfall and updates the state hash
+     * @param row row of the pitfall
+     * @param col column of the pitfall
+     */
+    void fillPitfall(int row, int col) {
+        Pitfall pit = (Pitfall) grid[row][col];
+        if (pit.isFilled())
+            return;
+        pit.fill();
+        stateHash ^= zobrist.filled(row, col);
+        bitboards.fill(bitboards.cellOf(row, col));
+        history.record(TurnHistory.FILL, row * colCount + col);
+    }
+
+    /**
+     * Moves a movable in the line of sight index and the bitboards
+     * @param movable the moving movable
+     * @param fromRow row the movable leaves
+     * @param fromCol column the movable leaves
+     * @param toRow row the movable enters
+     * @param toCol column the movable enters
+     */
+    void movableMoved(Movable movable, int fromRow, int fromCol, int toRow, int toCol) {
+        sight.vacate(fromRow, fromCol);
+        sight.occupy(toRow, toCol);
+        bitboards.move(movable, bitboards.cellOf(fromRow, fromCol), bitboards.cellOf(toRow, toCol));
+        history.record(TurnHistory.MOVE,
+                movable.getId() << 2 | Tools.delta2dir(toRow - fromRow, toCol - fromCol).ordinal());
+    }
+
+    /**
+     * Removes a movable from the line of sight index and the bitboards
+     * @param movable the removed movable
+     * @param row row of the movable
+     * @param col column of the movable
+     */
+    void movableRemoved(Movable movable, int row, int col) {
+        sight.vacate(row, col);
+        bitboards.remove(movable, bitboards.cellOf(row, col));
+    }
+
+    /**
+     * Getter.
+     * @return tiles and movables of the level as bitsets
+     */
+    Bitboards getBitboards() {
+        return bitboards;
+    }
+
+    /**
+     * Looks for the first movable a guard can see
+     * @param row row of the guard
+     * @param col column of the guard
+     * @param direction direction the guard is facing
+     * @return distance to the first visible movable, 0 if the guard sees none
+     */
+    int sightDistance(int row, int col, Direction direction) {
+        return sight.firstOccupied(row, col, direction.ordinal());
+    }
+
+    /**
+     * Notes a crate move for the next deadlock check, only the neighbourhood of the crate is checked then.
+     * A crate that fell into a pitfall or too many moves without a check make the next check a full one.
+     * @param crate the moved crate
+     * @param fromRow row of the crate before the move
+     * @param fromCol column of the crate before the move
+     */
+    void crateMoved(Crate crate, int fromRow, int fromCol) {
+        if (crate.getRow() < 0 || movedCrateCount == movedCrates.length) {
+            cratesMoved = true;
+            return;
+        }
+        movedCrates[movedCrateCount++] = fromRow * colCount + fromCol;
+        movedCrates[movedCrateCount++] = crate.getRow() * colCount + crate.getCol();
+    }
+
     /**
      * Interrupts further user input upon win.
      */
     public void winGame() {
+        recordStatus(lost, true);
         won = true;
-        Out.println("You won!");
+        out.println("You won!");
+        events.fireWon();
     }
 
     /**
@@ -372,6 +1037,9 @@ public class Level implements LevelInterface{
      * @param crate the crate to be removed from the array
      */
     public void popcrate(Crate crate) {
-        crates.remove(crate);
+        int index = crates.indexOf(crate);
+        history.record(TurnHistory.CRATE_CELL, crate.getRow() * colCount + crate.getCol());
+        history.record(TurnHistory.CRATE_REMOVED, crate.getId() << 14 | index);
+        crates.remove(index);
     }
 }
@@ -0,0 +1,144 @@
+package discpative.model;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Bounded cache of parsed levels.
+ *
+ * Holds a {@link LevelTemplate} per level number and evicts the least recently used one
+ * once more than the capacity are loaded. Levels are read from resources/levels,
+ * or from a {@link LevelPack} if one is given. Thread safe: the monitor only guards the map, a level is read
+ * and parsed outside of it by the first thread that asks for it, later threads asking for the same level
+ * wait for that load while requests for other levels go on.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class LevelCache {
+    private final LevelPack pack; //source of the levels, null for resources/levels
+    private final LinkedHashMap<Integer, CompletableFuture<LevelTemplate>> templates; //loaded or loading, in access order
+    private long hits; //number of requests answered from the cache
+    private long misses; //number of requests that loaded the level
+
+    /**
+     * Constructor.
+     * Reads the levels from resources/levels.
+     * @param capacity maximum number of cached levels
+     */
+    public LevelCache(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Constructor.
+     * @param capacity maximum number of cached levels
+     * @param pack an open level pack to read the levels from
+     */
+    public LevelCache(int capacity, LevelPack pack) {
+        this.pack = pack;
+        templates = new LinkedHashMap<Integer, CompletableFuture<LevelTemplate>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CompletableFuture<LevelTemplate>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Getter.
+     * Loads the level if it is not cached.
+     * @param levelNumber the number of the level
+     * @return the parsed level
+     * @throws IOException if the level pack does not contain the level or cannot be read
+     */
+    public LevelTemplate get(int levelNumber) throws IOException {
+        CompletableFuture<LevelTemplate> template;
+        boolean load = false;
+        synchronized (this) {
+            template = templates.get(levelNumber);
+            if (template != null)
+                hits++;
+            else {
+                misses++;
+                template = new CompletableFuture<>();
+                templates.put(levelNumber, template);
+                load = true;
+            }
+        }
+        if (load)
+            load(levelNumber, template);
+        try {
+            return template.join();
+        } catch (CompletionException e) { //the load failed, in this or another thread
+            if (e.getCause() instanceof IOException)
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads and parses a level, a failed load is forgotten so the next request tries again
+     * @param levelNumber the number of the level
+     * @param template receives the parsed level or the error
+     */
+    private void load(int levelNumber, CompletableFuture<LevelTemplate> template) {
+        try {
+            template.complete(new LevelTemplate(pack == null ? Level.readLevel(levelNumber) : pack.read(levelNumber)));
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                templates.remove(levelNumber, template);
+            }
+            template.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Creates a new instance of a level
+     * @param levelNumber the number of the level
+     * @return the level in its start state
+     * @throws IOException if the level pack does not contain the level or cannot be read
+     */
+    public Level newLevel(int levelNumber) throws IOException {
+        return get(levelNumber).newLevel();
+    }
+
+    /**
+     * Creates a new headless instance of a level
+     * @param levelNumber the number of the level
+     * @return the level in its start state
+     * @throws IOException if the level pack does not contain the level or cannot be read
+     */
+    public CompactLevel newCompactLevel(int levelNumber) throws IOException {
+        return get(levelNumber).newCompactLevel();
+    }
+
+    /**
+     * Getter.
+     * @return number of cached levels
+     */
+    public synchronized int size() {
+        return templates.size();
+    }
+
+    /**
+     * Getter.
+     * @return number of requests answered from the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Getter.
+     * @return number of requests that loaded the level
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
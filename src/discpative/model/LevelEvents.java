@@ -0,0 +1,116 @@
+package discpative.model;
+
+import discpative.view.ViewInterface;
+
+import java.util.Arrays;
+
+/**
+ * Event bus of a level.
+ *
+ * Hands every change of the level to all subscribed {@link LevelListenerInterface listeners}.
+ * The listeners are kept in an array that is replaced on every subscribe and unsubscribe,
+ * so firing an event takes no lock and does not allocate, and listeners may come and go
+ * from any thread while a turn runs. A listener added during a turn gets the events from then on.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public final class LevelEvents {
+    private static final LevelListenerInterface[] NONE = {};
+
+    private volatile LevelListenerInterface[] listeners = NONE; //all listeners, never changed once published
+
+    /**
+     * Adds a listener
+     * @param listener the new listener
+     */
+    public synchronized void subscribe(LevelListenerInterface listener) {
+        LevelListenerInterface[] old = listeners;
+        LevelListenerInterface[] updated = Arrays.copyOf(old, old.length + 1);
+        updated[old.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * Removes a listener
+     * @param listener the listener to be removed
+     * @return true if the listener was subscribed
+     */
+    public synchronized boolean unsubscribe(LevelListenerInterface listener) {
+        LevelListenerInterface[] old = listeners;
+        for (int i = 0; i < old.length; i++) {
+            if (old[i] == listener) {
+                remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a view, the view gets every turn as one change set
+     * @param view the new view
+     */
+    void subscribe(ViewInterface view) {
+        subscribe(new ViewListener(view));
+    }
+
+    /**
+     * Removes a view added by {@link #subscribe(ViewInterface)}
+     * @param view the view to be removed
+     */
+    synchronized void unsubscribe(ViewInterface view) {
+        LevelListenerInterface[] old = listeners;
+        for (int i = 0; i < old.length; i++) {
+            if (old[i] instanceof ViewListener && ((ViewListener) old[i]).getView() == view) {
+                remove(i);
+                return;
+            }
+        }
+    }
+
+    private void remove(int index) {
+        LevelListenerInterface[] old = listeners;
+        LevelListenerInterface[] updated = Arrays.copyOf(old, old.length - 1);
+        System.arraycopy(old, index + 1, updated, index, old.length - index - 1);
+        listeners = updated;
+    }
+
+    /**
+     * Getter.
+     * @return true if nobody listens, the level can then skip collecting the changes
+     */
+    public boolean isEmpty() {
+        return listeners.length == 0;
+    }
+
+    void fireTurnStarted() {
+        for (LevelListenerInterface listener : listeners)
+            listener.turnStarted();
+    }
+
+    void fireMoved(int row, int col, int type) {
+        for (LevelListenerInterface listener : listeners)
+            listener.moved(row, col, type);
+    }
+
+    void fireTileChanged(int row, int col) {
+        for (LevelListenerInterface listener : listeners)
+            listener.tileChanged(row, col);
+    }
+
+    void fireWon() {
+        for (LevelListenerInterface listener : listeners)
+            listener.won();
+    }
+
+    void fireLost() {
+        for (LevelListenerInterface listener : listeners)
+            listener.lost();
+    }
+
+    void fireTurnEnded(ChangeSet changes) {
+        for (LevelListenerInterface listener : listeners)
+            listener.turnEnded(changes);
+    }
+}
@@ -1,5 +1,6 @@
 package discpative.model;
 
+import discpative.controller.Direction;
 import discpative.view.ViewInterface;
 
 public interface LevelInterface {
@@ -15,6 +16,12 @@ public interface LevelInterface {
      */
     void unregisterView (ViewInterface view);
 
+    /**
+     * Getter.
+     * @return event bus of the level, subscribe a {@link LevelListenerInterface} to follow every change
+     */
+    LevelEvents getEvents();
+
     /**
      * Getter.
      * @return total number of rows in the level
@@ -49,4 +56,63 @@ public interface LevelInterface {
      * @return number of moves done by the player
      */
     int getMoveCount();
+
+    /**
+     * Getter.
+     * @return true if the player reached an objective
+     */
+    boolean isWon();
+
+    /**
+     * Getter.
+     * @return true if the player was caught by a guard
+     */
+    boolean isLost();
+
+    /**
+     * Checks if the player can never reach an objective anymore
+     * @return true if the level can no longer be won
+     */
+    boolean isUnwinnable();
+
+    /**
+     * Takes back the last turn
+     * @return true if a turn was taken back, false if there is none or the model keeps no history
+     */
+    boolean undo();
+
+    /**
+     * Repeats the last turn taken back
+     * @return true if a turn was repeated, false if there is none or the model keeps no history
+     */
+    boolean redo();
+
+    /**
+     * Checks if the player can move into given direction
+     * @param direction direction the player tries to move to
+     * @return true if player can move to 1 field in given direction directly, otherwise false
+     */
+    boolean canPlayerMoveTo(Direction direction);
+
+    /**
+     * Checks if the player can move to field.
+     * Only works if player takes exactly 1 step.
+     * @param row the destination row
+     * @param col the destiantion column
+     * @return true if player can move to coordinates directly, otherwise false
+     */
+    boolean canplayerMoveTo(int row, int col);
+
+    /**
+     * Moves player 1 field in given direction and lets the guards take their turn
+     * @param direction direction the player tries to move to
+     */
+    void movePlayerTo(Direction direction);
+
+    /**
+     * Moves player to given coordinates if 1 field away at max
+     * @param row destination row
+     * @param col destination column
+     */
+    void movePlayerTo(int row, int col);
 }
@@ -0,0 +1,67 @@
+package discpative.model;
+
+/**
+ * Receives the events of a level, see {@link LevelEvents}.
+ *
+ * Every method does nothing by default, so a listener only implements the events it needs.
+ * The events arrive on the thread that runs the turn, wrap a listener into an {@link AsyncListener}
+ * to handle them on a thread of its own. Such a listener must not read the level,
+ * only the arguments of the events are safe to use there.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public interface LevelListenerInterface {
+
+    /**
+     * A turn, an undo, a redo or a restore starts, every following change belongs to it
+     */
+    default void turnStarted() {
+    }
+
+    /**
+     * A movable entered or left a cell
+     * @param row row of the cell
+     * @param col column of the cell
+     * @param type type of the movable, {@link CompactLevel#PLAYER}, {@link CompactLevel#GUARD}
+     *             or {@link CompactLevel#CRATE}
+     */
+    default void moved(int row, int col, int type) {
+    }
+
+    /**
+     * The tile of a cell changed, e.g. a pitfall was filled
+     * @param row row of the cell
+     * @param col column of the cell
+     */
+    default void tileChanged(int row, int col) {
+    }
+
+    /**
+     * The player reached an objective
+     */
+    default void won() {
+    }
+
+    /**
+     * The player was caught by a guard
+     */
+    default void lost() {
+    }
+
+    /**
+     * The turn is over
+     * @param changes all cells that changed during the turn
+     */
+    default void turnEnded(ChangeSet changes) {
+    }
+
+    /**
+     * Events were dropped before the following ones, see {@link AsyncListener}.
+     * Whole turns are dropped, so the next event starts a turn or stands alone,
+     * but a listener that keeps a copy of the level has to rebuild it.
+     * @param droppedTurns number of dropped turns and single events
+     */
+    default void resync(int droppedTurns) {
+    }
+}
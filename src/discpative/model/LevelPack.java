@@ -0,0 +1,186 @@
+package discpative.model;
+
+import discpative.io.Out;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Many levels in a single file.
+ *
+ * The file starts with the magic number and the number of levels, followed by an index
+ * sorted by level number. Every entry holds the level number, the number of rows and columns
+ * and the offset of the cells in the file. The cells are stored like in {@link BinaryLevel}.
+ * Opening a pack reads the whole index, loading a level is a binary search and one positional read.
+ * Reading is thread safe, the channel stays open until the pack is closed.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class LevelPack implements Closeable {
+    public static final String EXTENSION = ".dlp"; //file extension of level packs
+    private static final int MAGIC = 0x444C5001; //"DLP" and version 1
+    private static final int HEADER_SIZE = 8; //magic number and number of levels
+    private static final int ENTRY_SIZE = 20; //level number, rows, columns, offset
+
+    private final FileChannel channel; //open pack file
+    private final int[] numbers; //level numbers in ascending order
+    private final int[] rowCounts; //rows of every level
+    private final int[] colCounts; //columns of every level
+    private final long[] offsets; //position of the cells of every level
+
+    /**
+     * Opens a pack and reads its index
+     * @param path path of the pack file
+     * @throws IOException if the file cannot be read or is no level pack
+     */
+    public LevelPack(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = readFully(0, HEADER_SIZE);
+            if (header.getInt() != MAGIC)
+                throw new IOException(path + " is no level pack");
+            int count = header.getInt();
+            if (count < 0 || HEADER_SIZE + (long) count * ENTRY_SIZE > channel.size())
+                throw new IOException(path + " has a broken header");
+
+            numbers = new int[count];
+            rowCounts = new int[count];
+            colCounts = new int[count];
+            offsets = new long[count];
+            ByteBuffer index = readFully(HEADER_SIZE, count * ENTRY_SIZE);
+            for (int i = 0; i < count; i++) {
+                numbers[i] = index.getInt();
+                rowCounts[i] = index.getInt();
+                colCounts[i] = index.getInt();
+                offsets[i] = index.getLong();
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Loads a level
+     * @param levelNumber the number of the level
+     * @return the level as array of characters, as read by {@link Level#loadLevel(int)}
+     * @throws IOException if the pack does not contain the level or cannot be read
+     */
+    public char[][] read(int levelNumber) throws IOException {
+        int i = Arrays.binarySearch(numbers, levelNumber);
+        if (i < 0)
+            throw new IOException("Level" + levelNumber + " is not in the pack");
+        ByteBuffer cells = readFully(offsets[i], rowCounts[i] * colCounts[i]);
+        return BinaryLevel.decode(cells.array(), 0, rowCounts[i], colCounts[i]);
+    }
+
+    /**
+     * Checks if the pack contains a level
+     * @param levelNumber the number of the level
+     * @return true if the level can be read
+     */
+    public boolean contains(int levelNumber) {
+        return Arrays.binarySearch(numbers, levelNumber) >= 0;
+    }
+
+    /**
+     * Getter.
+     * @return the numbers of all levels in ascending order
+     */
+    public int[] getLevelNumbers() {
+        return numbers.clone();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Writes levels into a new pack
+     * @param path path of the pack file, is overwritten
+     * @param levelNumbers numbers of the levels, without duplicates
+     * @param levels the levels as rectangular arrays of characters, in the same order
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, int[] levelNumbers, char[][][] levels) throws IOException {
+        Integer[] order = new Integer[levelNumbers.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> Integer.compare(levelNumbers[a], levelNumbers[b]));
+
+        ByteBuffer index = ByteBuffer.allocate(HEADER_SIZE + order.length * ENTRY_SIZE);
+        index.putInt(MAGIC).putInt(order.length);
+        long offset = index.capacity();
+        for (int i : order) {
+            int rowCount = levels[i].length;
+            int colCount = rowCount > 0 ? levels[i][0].length : 0;
+            index.putInt(levelNumbers[i]).putInt(rowCount).putInt(colCount).putLong(offset);
+            offset += rowCount * colCount;
+        }
+        index.flip();
+
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (index.hasRemaining())
+                out.write(index);
+            for (int i : order) {
+                int colCount = levels[i].length > 0 ? levels[i][0].length : 0;
+                ByteBuffer cells = ByteBuffer.allocate(levels[i].length * colCount);
+                BinaryLevel.encode(levels[i], cells);
+                cells.flip();
+                while (cells.hasRemaining())
+                    out.write(cells);
+            }
+        }
+    }
+
+    /**
+     * Packs all level files of resources/levels
+     * @param args optional path of the pack, resources/levels.dlp if not given
+     */
+    public static void main(String[] args) {
+        String target = args.length > 0 ? args[0] : "resources/levels" + EXTENSION;
+        String[] names = new File("resources/levels").list((dir, name) -> name.matches("Level\\d+\\.txt"));
+        if (names == null)
+            names = new String[0];
+        int[] levelNumbers = new int[names.length];
+        char[][][] levels = new char[names.length][][];
+        for (int i = 0; i < names.length; i++) {
+            levelNumbers[i] = Integer.parseInt(names[i].substring(5, names[i].length() - 4));
+            levels[i] = Level.readLevel("resources/levels/" + names[i]);
+        }
+        try {
+            write(Paths.get(target), levelNumbers, levels);
+            Out.println(names.length + " levels -> " + target);
+        } catch (IOException e) {
+            Out.println("Could not write " + target + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a part of the pack with positional reads
+     * @param position position of the first byte
+     * @param length number of bytes
+     * @return a buffer holding the bytes, positioned at the start
+     * @throws IOException if the file ends early or cannot be read
+     */
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0)
+                throw new IOException("Level pack ends early");
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
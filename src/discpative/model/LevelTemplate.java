@@ -0,0 +1,180 @@
+package discpative.model;
+
+import java.util.Arrays;
+
+/**
+ * Parsed start of a level, shared by all instances of the level.
+ *
+ * Never changes after construction, so it can be shared between threads.
+ * New instances copy the start state instead of reading and parsing the level file again:
+ * {@link #newCompactLevel()} clones a few arrays, {@link #newLevel()} only builds the tiles and takes
+ * the state hash of the start from here. The Zobrist keys, the sight lines and the static bitboards are
+ * shared as well. A finished level is best put back to the start with {@link Level#reset()}, which
+ * keeps all objects of the instance.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public final class LevelTemplate {
+    private final char[][] map; //the level as array of characters, never handed out
+    private final CompactLevel start; //packed start state, only copied
+    private final Zobrist zobrist; //keys of the state hash
+    private final Bitboards bitboards; //bitboards of the start state, only copied
+    private final int fingerprint; //hash of the map, snapshots only fit levels with the same fingerprint
+    private final int[] pitfallCells; //cells of all pitfalls in reading order, cell = row * colCount + col
+    private final int[] icyCells; //cells of all icy and curved icy tiles in reading order
+    private final long startHash; //state hash of the start
+    private final byte[] startSnapshot; //snapshot of the start, see Level#reset()
+
+    /**
+     * Constructor.
+     * @param level the level as rectangular array of characters, is copied
+     */
+    public LevelTemplate(char[][] level) {
+        map = new char[level.length][];
+        for (int row = 0; row < level.length; row++)
+            map[row] = level[row].clone();
+        start = new CompactLevel(map);
+        zobrist = new Zobrist(getRowCount(), getColCount());
+        bitboards = new Bitboards(start);
+        fingerprint = Arrays.deepHashCode(map);
+        pitfallCells = cellsOf("!");
+        icyCells = cellsOf("=nosw");
+        Level first = new Level(this); //hashes itself while startSnapshot is still null
+        startHash = first.getStateHash();
+        startSnapshot = first.snapshot();
+    }
+
+    /**
+     * Collects the cells of some kinds of tiles
+     * @param symbols characters of the tiles in the level file
+     * @return the cells in reading order
+     */
+    private int[] cellsOf(String symbols) {
+        int[] cells = new int[getRowCount() * getColCount()];
+        int count = 0;
+        for (int row = 0; row < getRowCount(); row++)
+            for (int col = 0; col < getColCount(); col++)
+                if (symbols.indexOf(map[row][col]) >= 0)
+                    cells[count++] = row * getColCount() + col;
+        return Arrays.copyOf(cells, count);
+    }
+
+    /**
+     * Creates a new instance of the level with all its tiles and movables
+     * @return the level in its start state
+     */
+    public Level newLevel() {
+        return new Level(this);
+    }
+
+    /**
+     * Creates a new headless instance of the level
+     * @return the level in its start state
+     */
+    public CompactLevel newCompactLevel() {
+        return new CompactLevel(start);
+    }
+
+    /**
+     * Getter.
+     * @return total number of rows in the level
+     */
+    public int getRowCount() {
+        return map.length;
+    }
+
+    /**
+     * Getter.
+     * @return total number of columns in the level
+     */
+    public int getColCount() {
+        return map.length > 0 ? map[0].length : 0;
+    }
+
+    /**
+     * Getter.
+     * @param row a row of the level
+     * @param col a column of the level
+     * @return the character of the level file at given coordinates
+     */
+    public char charAt(int row, int col) {
+        return map[row][col];
+    }
+
+    /**
+     * Creates an instance of the level in a saved state, the map is not parsed again
+     * @param snapshot a snapshot of this level, see {@link Level#snapshot()}
+     * @return the level in the saved state
+     * @throws IllegalArgumentException if the snapshot is broken or belongs to another level
+     */
+    public Level restore(byte[] snapshot) {
+        Level level = new Level(this);
+        level.restore(snapshot);
+        return level;
+    }
+
+    /**
+     * Getter.
+     * @return cells of all pitfalls in reading order, must not be modified
+     */
+    int[] getPitfallCells() {
+        return pitfallCells;
+    }
+
+    /**
+     * Getter.
+     * @return cells of all icy and curved icy tiles in reading order, must not be modified
+     */
+    int[] getIcyCells() {
+        return icyCells;
+    }
+
+    /**
+     * Getter.
+     * @return state hash of the start, 0 while the template is built
+     */
+    long getStartHash() {
+        return startHash;
+    }
+
+    /**
+     * Getter.
+     * @return snapshot of the start, null while the template is built, must not be modified
+     */
+    byte[] getStartSnapshot() {
+        return startSnapshot;
+    }
+
+    /**
+     * Getter.
+     * @return hash of the map
+     */
+    int getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Getter.
+     * @return the packed start state, must not be modified
+     */
+    CompactLevel getStart() {
+        return start;
+    }
+
+    /**
+     * Getter.
+     * @return keys of the state hash
+     */
+    Zobrist getZobrist() {
+        return zobrist;
+    }
+
+    /**
+     * Getter.
+     * @return bitboards of the start state, must not be modified
+     */
+    Bitboards getBitboards() {
+        return bitboards;
+    }
+}
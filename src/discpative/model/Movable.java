@@ -13,6 +13,7 @@ import discpative.tools.Tools;
 public abstract class Movable {
     private int row, col; //coordinates
     private Level level; //model of the level
+    private int id; //index of the movable in its level, in reading order
 
     /**
      * Constructor
@@ -33,16 +34,14 @@ public abstract class Movable {
      * @param direction The direction the Player should Move
      */
     void move(Direction direction){
+        Bitboards bitboards = level.getBitboards();
         Direction targetDirection = direction;
-        Tile currentTile = level.getTileAt(getRow(), getCol());
-        if (currentTile.isIcyTile() || currentTile.isCurvedIcyTile())
-            targetDirection = ((IcyTile) currentTile).getIcyDirection();
+        if (bitboards.isIcy(bitboards.cellOf(row, col)))
+            targetDirection = ((IcyTile) level.getTileAt(row, col)).getIcyDirection();
         int targetRow = row + Tools.dir2row(targetDirection);
         int targetCol = col + Tools.dir2col(targetDirection);
 
-        Tile targetTile = level.getTileAt(targetRow, targetCol);
-
-        if (targetTile.isIcyTile() || targetTile.isCurvedIcyTile()) {
+        if (bitboards.isIcy(bitboards.cellOf(targetRow, targetCol))) {
             moveTo(targetRow, targetCol, targetDirection);
         } else
         moveTo(targetRow, targetCol);
@@ -54,26 +53,22 @@ public abstract class Movable {
      * @return False if no collision detected - True if Collision detected
      */
     boolean checkCollision(Direction direction) {
-        Tile destinationTile = getLevel().getTileAt(
-                getRow() + Tools.dir2row(direction),
-                getCol() + Tools.dir2col(direction));
-        Movable destinationTileContent = destinationTile.contains();
+        int destinationRow = getRow() + Tools.dir2row(direction);
+        int destinationCol = getCol() + Tools.dir2col(direction);
+        Bitboards bitboards = level.getBitboards();
+        int destination = bitboards.cellOf(destinationRow, destinationCol);
 
-        if (destinationTile.isWall())
-            return true;
-        if (destinationTile.isPitfall() && !((Pitfall) destinationTile).isFilled())
+        if (bitboards.blocks(destination))
             return true;
-        if (destinationTile.isCurvedIcyTile() && destinationTileContent != null) {
-            CurvedIcyTile curvedIcyTile = ((CurvedIcyTile) destinationTile);
+        if (!bitboards.isOccupied(destination))
+            return false;
+        if (bitboards.isCurvedIcy(destination)) {
+            CurvedIcyTile curvedIcyTile = ((CurvedIcyTile) level.getTileAt(destinationRow, destinationCol));
             Direction curveDirectionVertical = curvedIcyTile.getVertical();
             Direction curveDirectionHorizontal = curvedIcyTile.getHorizontal();
-            if(direction == curveDirectionVertical || direction == curveDirectionHorizontal)
-                return true;
-            return false;
+            return direction == curveDirectionVertical || direction == curveDirectionHorizontal;
         }
-        if (destinationTileContent != null)
-            return true;
-        return false;
+        return true;
     }
 
     /**
@@ -87,8 +82,11 @@ public abstract class Movable {
         Tile originTile = level.getTileAt(row, col);
         Tile destinationTile = level.getTileAt(destinationRow, destinationCol);
 
+        level.hashMovable(this, originRow, originCol);
         this.row = destinationRow;
         this.col = destinationCol;
+        level.hashMovable(this, destinationRow, destinationCol);
+        level.movableMoved(this, originRow, originCol, destinationRow, destinationCol);
 
         originTile.steppedOnBy(null);
         destinationTile.steppedOnBy(this);
@@ -108,11 +106,16 @@ public abstract class Movable {
         Tile originTile = level.getTileAt(this.row, this.col);
         IcyTile destinationTile = (IcyTile) level.getTileAt(destinationRow, destinationCol);
 
+        level.hashMovable(this, originRow, originCol);
         this.row = destinationRow;
         this.col = destinationCol;
+        level.hashMovable(this, destinationRow, destinationCol);
+        level.movableMoved(this, originRow, originCol, destinationRow, destinationCol);
 
         originTile.steppedOnBy(null);
+        Direction icyDirection = destinationTile.getIcyDirection();
         destinationTile.steppedOnBy(this, direction);
+        level.icyDirectionChanged(destinationRow, destinationCol, icyDirection, destinationTile.getIcyDirection());
 
         level.updateMoveablePresence(originRow, originCol, this);
         level.updateMoveablePresence(destinationRow, destinationCol, this);
@@ -142,6 +145,22 @@ public abstract class Movable {
         return this.level;
     }
 
+    /**
+     * Getter.
+     * @return index of the movable in its level
+     */
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Setter.
+     * @param id index of the movable in its level
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Getter.
      * @param direction the {@link Direction} to look up
@@ -249,7 +268,7 @@ abstract class Character extends Movable {
             destinationTile.contains().move(direction);
         }
         super.move(direction);
-        this.direction = direction;
+        rotate(direction);
     }
 
     /**
@@ -265,10 +284,26 @@ abstract class Character extends Movable {
      * @param direction new direction
      */
     protected void rotate(Direction direction) {
-        this.direction = direction;
+        if (direction != this.direction) {
+            getLevel().characterTurned(this, this.direction, direction);
+            if (isGuard())
+                getLevel().hashMovable(this, getRow(), getCol());
+            this.direction = direction;
+            if (isGuard())
+                getLevel().hashMovable(this, getRow(), getCol());
+        }
         setAxis(direction);
     }
 
+    /**
+     * Setter.
+     * Only sets the direction, the level is not told, used to restore a snapshot.
+     * @param direction new direction
+     */
+    void setDirection(Direction direction) {
+        this.direction = direction;
+    }
+
     /**
      * Setter.
      * Sets axis from direction.
@@ -347,12 +382,9 @@ class Guard extends Character {
 
     @Override
     boolean checkCollision(Direction direction) {
-        Tile destinationTile = getLevel().getTileAt(
-                getRow() + Tools.dir2row(direction),
-                getCol() + Tools.dir2col(direction));
-        Movable destinationTileContent = destinationTile.contains();
-
-        if (destinationTileContent != null && destinationTileContent.isPlayer())
+        Bitboards bitboards = getLevel().getBitboards();
+        if (bitboards.isPlayer(bitboards.cellOf(getRow() + Tools.dir2row(direction),
+                getCol() + Tools.dir2col(direction))))
             getLevel().lose();
         return super.checkCollision(direction);
     }
@@ -396,36 +428,17 @@ class Guard extends Character {
 
     /**
      * Checks if player is visible for this guard.
+     * The guard sees the first movable in the direction it is facing, walls and closed curved icy tiles block.
      * Ends game if so.
      */
     public void canSeePlayer() {
-        if(getAxis() == Axis.HORIZONTAL) {
-            int horizontal = Tools.dir2col(getDirection());
-            int checkRow = getRow();
-
-            for (int i = 1;; i++) {
-                int checkCol;
-                if (horizontal > 0)
-                    checkCol = getCol() + i;
-                else {
-                    checkCol = getCol() - i;
-                }
-                Tile checkTile = getLevel().getTileAt(checkRow, checkCol);
-                if(checkTile == null || checkTile.isWall())
-                    return;
-                if(checkTile.isCurvedIcyTile() && ((CurvedIcyTile) checkTile).getHorizontal() == getDirection())
-                    return;
-                Movable tileContent = checkTile.contains();
-                if(tileContent == null)
-                    continue;
-                if(tileContent.isGuard() || tileContent.isCrate())
-                    return;
-                if(tileContent.isPlayer()) {
-                    getLevel().lose();
-                    return;
-                }
-            }
-        }
+        int distance = getLevel().sightDistance(getRow(), getCol(), getDirection());
+        if (distance == 0)
+            return;
+        Movable seen = getLevel().getTileAt(getRow() + distance * Tools.dir2row(getDirection()),
+                getCol() + distance * Tools.dir2col(getDirection())).contains();
+        if (seen != null && seen.isPlayer())
+            getLevel().lose();
     }
 
     /**
@@ -457,6 +470,8 @@ class Guard extends Character {
     void move(Direction direction) {
         super.move(direction);
         setAxis(direction);
+        if (!moved)
+            getLevel().guardMarked(this);
         moved = true;
         if(getLevel().getTileAt(getRow(), getCol()).isRotationPassage())
             rotateTo(((RotationPassage) getLevel().getTileAt(getRow(), getCol())).getRotation());
@@ -469,6 +484,21 @@ class Guard extends Character {
         moved = false;
     }
 
+    /**
+     * Getter.
+     * @return {@link #moved}
+     */
+    boolean hasMoved() {
+        return moved;
+    }
+
+    /**
+     * Sets {@link #moved} to true, used to undo and redo turns.
+     */
+    void markMoved() {
+        moved = true;
+    }
+
     /**
      * Custom clone method.
      * @return a new object of the {@link Guard} with the same initial variable contents
@@ -502,10 +532,8 @@ class Crate extends Movable {
         int targetRow = Tools.dir2row(direction) + getRow();
         int targetCol = Tools.dir2col(direction) + getCol();
 
-        Tile targetTile = super.getLevel().getTileAt(targetRow, targetCol);
-        Movable targetTileContent = targetTile.contains();
-
-        if(targetTile.isPitfall() && targetTileContent == null) {
+        Bitboards bitboards = getLevel().getBitboards();
+        if (bitboards.isOpenPitfall(bitboards.cellOf(targetRow, targetCol))) {
             return false;
         }
         return super.checkCollision(direction);
@@ -513,14 +541,17 @@ class Crate extends Movable {
 
     @Override
     void move(Direction direction) {
+        int fromRow = getRow();
+        int fromCol = getCol();
         int targetRow = getRow() + Tools.dir2row(direction);
         int targetCol = getCol() + Tools.dir2col(direction);
-        Tile targetTile = getLevel().getTileAt(targetRow, targetCol);
-        Pitfall pit;
-        if(targetTile.isPitfall() && !((pit = (Pitfall)targetTile)).isFilled()) {
-            pit.fill();
+        Bitboards bitboards = getLevel().getBitboards();
+        if (bitboards.isOpenPitfall(bitboards.cellOf(targetRow, targetCol))) {
+            getLevel().fillPitfall(targetRow, targetCol);
             getLevel().updateTile(targetRow, targetCol);
             getLevel().popcrate(this);
+            getLevel().hashMovable(this, getRow(), getCol());
+            getLevel().movableRemoved(this, getRow(), getCol());
             getLevel().getTileAt(getRow(), getCol()).steppedOnBy(null);
             getLevel().updateMoveablePresence(targetRow, targetCol, this);
             int tmprow = getRow();
@@ -529,6 +560,7 @@ class Crate extends Movable {
             getLevel().updateMoveablePresence(tmprow, tmpcol, this);
         } else
             super.move(direction);
+        getLevel().crateMoved(this, fromRow, fromCol);
     }
 
     @Override
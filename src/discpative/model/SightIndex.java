@@ -0,0 +1,203 @@
+package discpative.model;
+
+import discpative.controller.Direction;
+
+import java.util.Arrays;
+
+/**
+ * Line of sight of the guards.
+ *
+ * For every cell and direction the distance to the next static blocker is computed once,
+ * walls and closed sides of curved icy tiles never change. The movables are kept as one bit per cell
+ * in a bitset per row and one per column, updated on every move. A guard finds the first movable
+ * in front of it with a few word scans instead of walking the corridor cell by cell.
+ * Directions are stored as their {@link Direction#ordinal()}. Not thread safe.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+final class SightIndex {
+    private static final int UP = Direction.UP.ordinal();
+    private static final int RIGHT = Direction.RIGHT.ordinal();
+    private static final int LEFT = Direction.LEFT.ordinal();
+
+    /**
+     * Static blockers of the line of sight.
+     */
+    interface Blocker {
+        /**
+         * Checks if the line of sight stops at a cell
+         * @param row row of the cell
+         * @param col column of the cell
+         * @param direction direction of the line of sight as ordinal
+         * @return true if nothing on or behind the cell can be seen
+         */
+        boolean blocks(int row, int col, int direction);
+    }
+
+    private final int colCount; //total number of columns in the level
+    private final int rowWords; //longs per row bitset
+    private final int colWords; //longs per column bitset
+    private final int[] range; //visible cells per cell and direction, shared between copies
+    private final long[] rowBits; //occupied cells, bitset over the columns of every row
+    private final long[] colBits; //occupied cells, bitset over the rows of every column
+
+    /**
+     * Builds the static part of the index, no cell is occupied yet
+     * @param rowCount total number of rows in the level
+     * @param colCount total number of columns in the level
+     * @param blocker the static blockers of the level
+     */
+    SightIndex(int rowCount, int colCount, Blocker blocker) {
+        this.colCount = colCount;
+        rowWords = (colCount + 63) >>> 6;
+        colWords = (rowCount + 63) >>> 6;
+        range = new int[rowCount * colCount * 4];
+        rowBits = new long[rowCount * rowWords];
+        colBits = new long[colCount * colWords];
+
+        //the range of a cell is one more than the range of its neighbour, unless the neighbour blocks
+        for (int row = 0; row < rowCount; row++) {
+            for (int col = 1; col < colCount; col++)
+                if (!blocker.blocks(row, col - 1, LEFT))
+                    range[rangeIndex(row, col, LEFT)] = range[rangeIndex(row, col - 1, LEFT)] + 1;
+            for (int col = colCount - 2; col >= 0; col--)
+                if (!blocker.blocks(row, col + 1, RIGHT))
+                    range[rangeIndex(row, col, RIGHT)] = range[rangeIndex(row, col + 1, RIGHT)] + 1;
+        }
+        int down = Direction.DOWN.ordinal();
+        for (int col = 0; col < colCount; col++) {
+            for (int row = 1; row < rowCount; row++)
+                if (!blocker.blocks(row - 1, col, UP))
+                    range[rangeIndex(row, col, UP)] = range[rangeIndex(row - 1, col, UP)] + 1;
+            for (int row = rowCount - 2; row >= 0; row--)
+                if (!blocker.blocks(row + 1, col, down))
+                    range[rangeIndex(row, col, down)] = range[rangeIndex(row + 1, col, down)] + 1;
+        }
+    }
+
+    /**
+     * Copy constructor.
+     * Shares the static part, copies the occupied cells.
+     * @param other the index to copy
+     */
+    SightIndex(SightIndex other) {
+        colCount = other.colCount;
+        rowWords = other.rowWords;
+        colWords = other.colWords;
+        range = other.range;
+        rowBits = other.rowBits.clone();
+        colBits = other.colBits.clone();
+    }
+
+    /**
+     * Overwrites the occupied cells with those of another copy of the same index
+     * @param other an index of the same level
+     */
+    void copyStateFrom(SightIndex other) {
+        System.arraycopy(other.rowBits, 0, rowBits, 0, rowBits.length);
+        System.arraycopy(other.colBits, 0, colBits, 0, colBits.length);
+    }
+
+    /**
+     * Marks all cells as empty
+     */
+    void clear() {
+        Arrays.fill(rowBits, 0);
+        Arrays.fill(colBits, 0);
+    }
+
+    /**
+     * Marks a cell as occupied by a movable
+     * @param row row of the cell
+     * @param col column of the cell
+     */
+    void occupy(int row, int col) {
+        rowBits[row * rowWords + (col >>> 6)] |= 1L << col;
+        colBits[col * colWords + (row >>> 6)] |= 1L << row;
+    }
+
+    /**
+     * Marks a cell as empty
+     * @param row row of the cell
+     * @param col column of the cell
+     */
+    void vacate(int row, int col) {
+        rowBits[row * rowWords + (col >>> 6)] &= ~(1L << col);
+        colBits[col * colWords + (row >>> 6)] &= ~(1L << row);
+    }
+
+    /**
+     * Looks for the first movable in a direction
+     * @param row row of the looking guard
+     * @param col column of the looking guard
+     * @param direction direction the guard is facing as ordinal
+     * @return distance to the first visible movable, 0 if no movable is visible
+     */
+    int firstOccupied(int row, int col, int direction) {
+        int reach = range[rangeIndex(row, col, direction)];
+        if (reach == 0)
+            return 0;
+        int found;
+        if (direction == RIGHT) {
+            found = nextSetBit(rowBits, row * rowWords, col + 1, col + reach);
+            return found < 0 ? 0 : found - col;
+        }
+        if (direction == LEFT) {
+            found = previousSetBit(rowBits, row * rowWords, col - 1, col - reach);
+            return found < 0 ? 0 : col - found;
+        }
+        if (direction == UP) {
+            found = previousSetBit(colBits, col * colWords, row - 1, row - reach);
+            return found < 0 ? 0 : row - found;
+        }
+        found = nextSetBit(colBits, col * colWords, row + 1, row + reach);
+        return found < 0 ? 0 : found - row;
+    }
+
+    private int rangeIndex(int row, int col, int direction) {
+        return (row * colCount + col) << 2 | direction;
+    }
+
+    /**
+     * Finds the lowest set bit in a range of a bitset
+     * @param bits the bitsets
+     * @param base first word of the bitset
+     * @param from lowest bit to look at
+     * @param to highest bit to look at
+     * @return index of the bit, -1 if no bit is set
+     */
+    private static int nextSetBit(long[] bits, int base, int from, int to) {
+        int word = from >>> 6;
+        int lastWord = to >>> 6;
+        long value = bits[base + word] & (-1L << from);
+        while (value == 0) {
+            if (++word > lastWord)
+                return -1;
+            value = bits[base + word];
+        }
+        int found = (word << 6) + Long.numberOfTrailingZeros(value);
+        return found <= to ? found : -1;
+    }
+
+    /**
+     * Finds the highest set bit in a range of a bitset
+     * @param bits the bitsets
+     * @param base first word of the bitset
+     * @param from highest bit to look at
+     * @param to lowest bit to look at
+     * @return index of the bit, -1 if no bit is set
+     */
+    private static int previousSetBit(long[] bits, int base, int from, int to) {
+        int word = from >>> 6;
+        int lastWord = to >>> 6;
+        long value = bits[base + word] & (-1L >>> (63 - (from & 63)));
+        while (value == 0) {
+            if (--word < lastWord)
+                return -1;
+            value = bits[base + word];
+        }
+        int found = (word << 6) + 63 - Long.numberOfLeadingZeros(value);
+        return found >= to ? found : -1;
+    }
+}
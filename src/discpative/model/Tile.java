@@ -32,6 +32,15 @@ public abstract class Tile {
         containing = movable;
     }
 
+    /**
+     * Setter.
+     * Unlike {@link #steppedOnBy(Movable)} the tile does not react, used to undo and redo turns.
+     * @param movable new {@link Movable}
+     */
+    void place(Movable movable) {
+        containing = movable;
+    }
+
     /**
      * Getter.
      * @return {@link #containing}
@@ -206,6 +215,13 @@ class Pitfall extends Passage {
         filled = true;
     }
 
+    /**
+     * Sets filled to false, used to undo a turn
+     */
+    void unfill() {
+        filled = false;
+    }
+
     public boolean isFilled() {
         return filled;
     }
@@ -0,0 +1,238 @@
+package discpative.model;
+
+/**
+ * Undo and redo journal of a {@link Level}.
+ *
+ * Every change of the state is one int: the kind of the change in the upper bits, what changed in the lower bits.
+ * A movable only ever moves to a neighbouring cell, so a move is its index and the direction.
+ * A {@link #TURN} entry closes every turn and tells if the move count went up. A character that moves and turns
+ * in the same step is a single {@link #STEP}, so a guard costs one int per turn in which it moves or turns and
+ * nothing otherwise, the player one int and the turn itself one more. Undone turns stay behind the current
+ * position until a new change is recorded, so they can be redone. The entries are kept in a ring, once more
+ * than the limit of turns are closed the oldest turn is overwritten, so a long game needs no more memory than
+ * its last turns. With a limit the ring grows towards the size the kept turns need instead of doubling.
+ * Not thread safe.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+final class TurnHistory {
+    //kinds of changes and the bits of their payload, cells are row * colCount + col
+    static final int MOVE = 1; //index of the movable << 2 | direction of the step
+    static final int TURN = 2; //end of a turn, 1 if the move count went up, else 0
+    static final int DIRECTION = 3; //index of the character << 4 | old direction << 2 | new direction
+    static final int ICY = 4; //cell << 6 | old ice direction + 1 << 3 | new ice direction + 1, 0 if not set
+    static final int FILL = 5; //cell of the filled pitfall
+    static final int CRATE_CELL = 6; //cell of the crate that is removed next
+    static final int CRATE_REMOVED = 7; //index of the crate << 14 | its index in the crate list, follows CRATE_CELL
+    static final int STATUS = 8; //old lost << 3 | old won << 2 | new lost << 1 | new won
+    static final int GUARD_MARKED = 10; //index of a guard pushed outside of the guard phase, it skips its next move
+    static final int GUARD_UNMARKED = 11; //index of a pushed guard, its mark was cleared by the guard phase
+    static final int STEP = 12; //index of the character << 6 | direction of the step << 4 | old direction << 2 | new direction
+
+    private static final int KIND_SHIFT = 28;
+    private static final int PAYLOAD_MASK = (1 << KIND_SHIFT) - 1;
+    private static final int MIN_CAPACITY = 64;
+
+    private int[] entries = new int[MIN_CAPACITY]; //ring of the recorded changes
+    private int head; //position of the oldest entry in the ring
+    private int size; //number of entries up to the current state
+    private int end; //number of entries including the undone ones that can be redone
+    private int turns; //number of closed turns up to the current state
+    private int maxTurns = Integer.MAX_VALUE; //closed turns that are kept, 0 records nothing
+    private boolean replaying; //changes are being undone or redone and are not recorded
+
+    /**
+     * Adds a change at the current position, undone changes can no longer be redone
+     * @param kind kind of the change, e.g. {@link #MOVE}
+     * @param payload what changed, at most 28 bits
+     */
+    void record(int kind, int payload) {
+        if (replaying || maxTurns == 0)
+            return;
+        end = size;
+        if (kind == DIRECTION && size > 0) {
+            int last = get(size - 1);
+            if (kind(last) == MOVE && payload(last) >>> 2 == payload >>> 4) { //the character turned with its step
+                entries[slot(size - 1)] = STEP << KIND_SHIFT | payload(last) << 4 | payload & 15;
+                return;
+            }
+        }
+        if (size == entries.length)
+            grow();
+        entries[slot(size++)] = kind << KIND_SHIFT | payload;
+        end = size;
+        if (kind == TURN && ++turns > maxTurns)
+            dropOldestTurn();
+    }
+
+    /**
+     * Makes room for more entries.
+     * Without a limit the ring doubles. With a limit it grows to what the kept turns need if they are as long
+     * as the turns so far, but at least by an eighth so a slowly growing turn size does not copy too often.
+     */
+    private void grow() {
+        long length = entries.length * 2L;
+        if (maxTurns != Integer.MAX_VALUE && turns > 0)
+            length = Math.min(length, Math.max(entries.length + entries.length / 8,
+                    (long) size * (maxTurns + 1) / turns + 1));
+        resize((int) Math.min(length, Integer.MAX_VALUE - 8));
+    }
+
+    /**
+     * Copies the entries into a new ring, the oldest entry moves to the front
+     * @param length length of the new ring, at least the number of entries
+     */
+    private void resize(int length) {
+        int[] resized = new int[length];
+        int first = Math.min(end, entries.length - head);
+        System.arraycopy(entries, head, resized, 0, first);
+        System.arraycopy(entries, 0, resized, first, end - first);
+        entries = resized;
+        head = 0;
+    }
+
+    /**
+     * Getter.
+     * @param index index of an entry
+     * @return position of the entry in the ring
+     */
+    private int slot(int index) {
+        int slot = head + index;
+        return slot < entries.length ? slot : slot - entries.length;
+    }
+
+    /**
+     * Forgets the oldest closed turn, it can no longer be undone
+     */
+    private void dropOldestTurn() {
+        int length = 1;
+        while (kind(get(length - 1)) != TURN)
+            length++;
+        head = slot(length);
+        size -= length;
+        end -= length;
+        turns--;
+    }
+
+    /**
+     * Closes the current turn if anything changed
+     */
+    void endTurn() {
+        if (size > 0 && kind(get(size - 1)) != TURN)
+            record(TURN, 0);
+    }
+
+    /**
+     * Closes the current turn, the move count went up by one
+     */
+    void endCountedTurn() {
+        record(TURN, 1);
+    }
+
+    /**
+     * Finds the changes of the last turn.
+     * Changes after the last closed turn count as a turn of their own.
+     * @return index of the first entry of the last turn, -1 if there is nothing to undo
+     */
+    int undoStart() {
+        if (size == 0)
+            return -1;
+        int start = size;
+        if (kind(get(start - 1)) == TURN)
+            start--;
+        while (start > 0 && kind(get(start - 1)) != TURN)
+            start--;
+        return start;
+    }
+
+    /**
+     * Finds the changes of the next undone turn
+     * @return index behind the last entry of the next turn, the current position if there is nothing to redo
+     */
+    int redoEnd() {
+        int next = size;
+        while (next < end && kind(get(next)) != TURN)
+            next++;
+        return next < end ? next + 1 : next;
+    }
+
+    /**
+     * Forgets all turns
+     */
+    void clear() {
+        head = 0;
+        size = 0;
+        end = 0;
+        turns = 0;
+    }
+
+    /**
+     * Setter.
+     * Forgets the oldest turns if more are kept already and gives back the room they used.
+     * @param maxTurns closed turns that can be undone, 0 turns the history off
+     */
+    void setMaxTurns(int maxTurns) {
+        this.maxTurns = Math.max(maxTurns, 0);
+        if (this.maxTurns == 0)
+            clear();
+        while (turns > this.maxTurns)
+            dropOldestTurn();
+        if (end < entries.length / 2)
+            resize(Math.max(MIN_CAPACITY, end + end / 8));
+    }
+
+    /**
+     * Getter.
+     * @return number of entries up to the current state
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Moves the current position after an undo or redo
+     * @param size number of entries up to the new current state
+     */
+    void moveTo(int size) {
+        for (int i = Math.min(size, this.size); i < Math.max(size, this.size); i++)
+            if (kind(get(i)) == TURN)
+                turns += size > this.size ? 1 : -1;
+        this.size = size;
+    }
+
+    /**
+     * Getter.
+     * @param index index of the entry
+     * @return the packed entry
+     */
+    int get(int index) {
+        return entries[slot(index)];
+    }
+
+    /**
+     * Setter.
+     * @param replaying true while changes are undone or redone
+     */
+    void setReplaying(boolean replaying) {
+        this.replaying = replaying;
+    }
+
+    /**
+     * Getter.
+     * @param entry a packed entry
+     * @return the kind of the change
+     */
+    static int kind(int entry) {
+        return entry >>> KIND_SHIFT;
+    }
+
+    /**
+     * Getter.
+     * @param entry a packed entry
+     * @return what changed
+     */
+    static int payload(int entry) {
+        return entry & PAYLOAD_MASK;
+    }
+}
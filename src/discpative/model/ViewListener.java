@@ -0,0 +1,82 @@
+package discpative.model;
+
+import discpative.view.ViewInterface;
+
+/**
+ * Connects a {@link ViewInterface view} to the {@link LevelEvents} of a level.
+ *
+ * Single changes during a turn are skipped, the view gets the whole turn as one change set.
+ * A win is announced after the view applied the turn that won the level.
+ * Changes outside of a turn are passed on one by one.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+final class ViewListener implements LevelListenerInterface {
+    private final ViewInterface view; //the connected view
+    private boolean inTurn; //a turn is running, single changes are skipped
+    private boolean wonInTurn; //the running turn won the level
+
+    /**
+     * Constructor.
+     * @param view the connected view
+     */
+    ViewListener(ViewInterface view) {
+        this.view = view;
+    }
+
+    /**
+     * Getter.
+     * @return the connected view
+     */
+    ViewInterface getView() {
+        return view;
+    }
+
+    @Override
+    public void turnStarted() {
+        inTurn = true;
+    }
+
+    @Override
+    public void moved(int row, int col, int type) {
+        if (inTurn)
+            return;
+        if (type == CompactLevel.PLAYER)
+            view.updatePlayerPresence(row, col);
+        else if (type == CompactLevel.GUARD)
+            view.updateGuardPresence(row, col);
+        else
+            view.updateCratePresence(row, col);
+    }
+
+    @Override
+    public void tileChanged(int row, int col) {
+        if (!inTurn)
+            view.updateTile(row, col);
+    }
+
+    @Override
+    public void won() {
+        if (inTurn)
+            wonInTurn = true;
+        else
+            view.announceLevelComplete();
+    }
+
+    @Override
+    public void resync(int droppedTurns) {
+        inTurn = false; //the turn that was running may have lost its end
+        wonInTurn = false;
+    }
+
+    @Override
+    public void turnEnded(ChangeSet changes) {
+        inTurn = false;
+        view.applyChanges(changes);
+        if (wonInTurn) {
+            wonInTurn = false;
+            view.announceLevelComplete();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package discpative.model;
+
+import discpative.controller.Direction;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing of level states.
+ *
+ * Every component of a state (a movable on a cell, the direction of a guard, a filled pitfall,
+ * the ice direction of a cell) has its own key, the hash of a state is the XOR of the keys of all
+ * its components. Moving a component only XORs its old key out and its new key in.
+ * Keys depend only on the size of the level, so equal states of the same map hash equally
+ * across instances and runs.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class Zobrist {
+    private static final long SEED = 0x5DEECE66DL; //fixed, hashes are stable across runs
+
+    private final int colCount; //total number of columns in the level
+    private final long[] player; //per cell
+    private final long[] crate; //per cell
+    private final long[] guard; //per cell and direction
+    private final long[] filled; //per cell
+    private final long[] icy; //per cell and direction
+
+    /**
+     * Constructor.
+     * @param rowCount total number of rows in the level
+     * @param colCount total number of columns in the level
+     */
+    public Zobrist(int rowCount, int colCount) {
+        this.colCount = colCount;
+        SplittableRandom random = new SplittableRandom(SEED);
+        int cells = rowCount * colCount;
+        player = keys(random, cells);
+        crate = keys(random, cells);
+        guard = keys(random, cells * 4);
+        filled = keys(random, cells);
+        icy = keys(random, cells * 4);
+    }
+
+    /**
+     * Getter.
+     * @param movable the movable
+     * @param row row of the movable
+     * @param col column of the movable
+     * @return key of the movable on the cell, for guards including their direction
+     */
+    long movable(Movable movable, int row, int col) {
+        int cell = row * colCount + col;
+        if (movable.isPlayer())
+            return player[cell];
+        if (movable.isGuard())
+            return guard[cell * 4 + ((Guard) movable).getDirection().ordinal()];
+        if (movable.isCrate())
+            return crate[cell];
+        return 0;
+    }
+
+    /**
+     * Getter.
+     * @param row row of a pitfall
+     * @param col column of a pitfall
+     * @return key of the filled pitfall
+     */
+    long filled(int row, int col) {
+        return filled[row * colCount + col];
+    }
+
+    /**
+     * Getter.
+     * @param row row of an icy tile
+     * @param col column of an icy tile
+     * @param direction ice direction of the tile, may be null
+     * @return key of the ice direction, 0 if not set
+     */
+    long icy(int row, int col, Direction direction) {
+        return direction == null ? 0 : icy[(row * colCount + col) * 4 + direction.ordinal()];
+    }
+
+    /**
+     * Hashes a level from scratch.
+     * Gives the same result as the incremental hash of {@link Level}.
+     * @param level the level to hash
+     * @return the hash of the current state
+     */
+    public long hashOf(LevelInterface level) {
+        long hash = 0;
+        for (int row = 0; row < level.getRowCount(); row++) {
+            for (int col = 0; col < level.getColCount(); col++) {
+                Tile tile = level.getTileAt(row, col);
+                if (tile.contains() != null)
+                    hash ^= movable(tile.contains(), row, col);
+                if (tile.isFilled())
+                    hash ^= filled(row, col);
+                if (tile.isIcyTile() || tile.isCurvedIcyTile())
+                    hash ^= icy(row, col, ((IcyTile) tile).getIcyDirection());
+            }
+        }
+        return hash;
+    }
+
+    private static long[] keys(SplittableRandom random, int count) {
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++)
+            keys[i] = random.nextLong();
+        return keys;
+    }
+}
@@ -0,0 +1,200 @@
+package discpative.replay;
+
+import discpative.controller.Direction;
+import discpative.model.Level;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Recorded game of a level.
+ *
+ * Holds every input given to the level in order and the checksum of the state after each input.
+ * An input is the {@link Direction#ordinal()} of a move or click, {@link #UNDO} or {@link #REDO}.
+ * The file starts with the magic number, the level number and the number of inputs,
+ * followed by one byte per input and one int checksum per input.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class Replay {
+    public static final String EXTENSION = ".drp"; //file extension of replays
+    public static final byte UNDO = 4; //input that takes back the last turn
+    public static final byte REDO = 5; //input that repeats the last undone turn
+    private static final int MAGIC = 0x44525001; //"DRP" and version 1
+    private static final int CHUNK_SIZE = 1 << 16; //first buffer size when reading, grows with the data
+
+    private final int levelNumber; //number of the played level
+    private final byte[] inputs; //all inputs in order
+    private final int[] checksums; //checksum of the state after every input
+
+    /**
+     * Constructor.
+     * @param levelNumber number of the played level
+     * @param inputs all inputs in order
+     * @param checksums checksum of the state after every input, as long as the inputs
+     */
+    public Replay(int levelNumber, byte[] inputs, int[] checksums) {
+        if (inputs.length != checksums.length)
+            throw new IllegalArgumentException("every input needs a checksum");
+        this.levelNumber = levelNumber;
+        this.inputs = inputs;
+        this.checksums = checksums;
+    }
+
+    /**
+     * Computes the checksum of a level state.
+     * Folds the state hash of the level, the move count and the lost and won flags into an int.
+     * @param level the level
+     * @return the checksum
+     */
+    public static int checksum(Level level) {
+        long hash = level.getStateHash() * 0x9E3779B97F4A7C15L
+                + (level.getMoveCount() << 2 | (level.isLost() ? 2 : 0) | (level.isWon() ? 1 : 0));
+        hash ^= hash >>> 29;
+        return (int) (hash ^ hash >>> 32);
+    }
+
+    /**
+     * Reads a replay from a stream, the stream is not closed
+     * @param in the stream
+     * @return the replay
+     * @throws IOException if the stream cannot be read or holds no replay
+     */
+    public static Replay read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC)
+            throw new IOException("no replay");
+        int levelNumber = data.readInt();
+        int count = data.readInt();
+        if (count < 0 || count > Integer.MAX_VALUE / 4)
+            throw new IOException("broken replay header");
+        byte[] inputs = readBytes(data, count);
+        for (byte input : inputs)
+            if (input < 0 || input > REDO)
+                throw new IOException("unknown input " + input);
+        ByteBuffer packed = ByteBuffer.wrap(readBytes(data, count * 4));
+        int[] checksums = new int[count];
+        for (int i = 0; i < count; i++)
+            checksums[i] = packed.getInt();
+        return new Replay(levelNumber, inputs, checksums);
+    }
+
+    /**
+     * Reads a number of bytes given by a header.
+     * The buffer grows with the bytes actually read, so a broken or hostile header cannot allocate more
+     * than twice the length of the stream.
+     * @param in the stream
+     * @param length number of bytes to read
+     * @return the bytes
+     * @throws IOException if the stream ends early or cannot be read
+     */
+    private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[Math.min(length, CHUNK_SIZE)];
+        int read = 0;
+        while (read < length) {
+            if (read == bytes.length)
+                bytes = Arrays.copyOf(bytes, (int) Math.min(length, bytes.length * 2L));
+            int n = in.read(bytes, read, bytes.length - read);
+            if (n < 0)
+                throw new EOFException("replay ends after " + read + " of " + length + " bytes");
+            read += n;
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads a replay file
+     * @param path path of the file
+     * @return the replay
+     * @throws IOException if the file cannot be read or is no replay
+     */
+    public static Replay read(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Writes the replay to a stream, the stream is flushed but not closed
+     * @param out the stream
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(levelNumber);
+        data.writeInt(inputs.length);
+        data.write(inputs);
+        for (int checksum : checksums)
+            data.writeInt(checksum);
+        data.flush();
+    }
+
+    /**
+     * Writes the replay to a file
+     * @param path path of the file, is overwritten
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            write(out);
+        }
+    }
+
+    /**
+     * Getter.
+     * @return number of the played level
+     */
+    public int getLevelNumber() {
+        return levelNumber;
+    }
+
+    /**
+     * Getter.
+     * @return number of inputs
+     */
+    public int size() {
+        return inputs.length;
+    }
+
+    /**
+     * Getter.
+     * @param index index of the input
+     * @return the input, a direction ordinal, {@link #UNDO} or {@link #REDO}
+     */
+    public byte getInput(int index) {
+        return inputs[index];
+    }
+
+    /**
+     * Getter.
+     * @param index index of the input
+     * @return checksum of the state after the input
+     */
+    public int getChecksum(int index) {
+        return checksums[index];
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Replay))
+            return false;
+        Replay replay = (Replay) other;
+        return levelNumber == replay.levelNumber && Arrays.equals(inputs, replay.inputs)
+                && Arrays.equals(checksums, replay.checksums);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * levelNumber + Arrays.hashCode(inputs)) + Arrays.hashCode(checksums);
+    }
+}
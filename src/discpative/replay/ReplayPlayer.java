@@ -0,0 +1,87 @@
+package discpative.replay;
+
+import discpative.controller.Direction;
+import discpative.io.Out;
+import discpative.io.TextWriter;
+import discpative.model.Level;
+import discpative.model.LevelCache;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Plays replays without a view.
+ *
+ * Every replay runs on a new {@link Level} built from a shared template, no view is registered,
+ * so a turn only updates the model. Each input is handled like {@link discpative.controller.LevelController}
+ * does and the checksum of the state is compared with the recorded one.
+ * A player can be used from several threads, each replay gets its own level.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class ReplayPlayer {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final LevelCache levels; //parsed levels, shared between replays
+
+    /**
+     * Constructor.
+     * @param levels source of the levels
+     */
+    public ReplayPlayer(LevelCache levels) {
+        this.levels = levels;
+    }
+
+    /**
+     * Plays a replay to its end
+     * @param replay the replay
+     * @return the state at the end and the first input whose checksum does not match
+     * @throws IOException if the level cannot be loaded
+     */
+    public ReplayResult play(Replay replay) throws IOException {
+        Level level = levels.newLevel(replay.getLevelNumber());
+        level.setOutput(TextWriter.discard());
+        long start = System.nanoTime();
+        int divergence = -1;
+        for (int i = 0; i < replay.size(); i++) {
+            apply(level, replay.getInput(i));
+            if (divergence < 0 && Replay.checksum(level) != replay.getChecksum(i))
+                divergence = i;
+        }
+        return new ReplayResult(replay.getLevelNumber(), level.isWon(), level.isLost(), level.getMoveCount(),
+                replay.size(), divergence, System.nanoTime() - start);
+    }
+
+    /**
+     * Handles one input
+     * @param level the level
+     * @param input a direction ordinal, {@link Replay#UNDO} or {@link Replay#REDO}
+     */
+    private static void apply(Level level, byte input) {
+        if (input == Replay.UNDO)
+            level.undo();
+        else if (input == Replay.REDO)
+            level.redo();
+        else if (level.canPlayerMoveTo(DIRECTIONS[input]))
+            level.movePlayerTo(DIRECTIONS[input]);
+    }
+
+    /**
+     * Plays replay files and prints the results.
+     * @param args paths of the replay files
+     * @throws IOException if a file cannot be read or its level cannot be loaded
+     */
+    public static void main(String[] args) throws IOException {
+        ReplayPlayer player = new ReplayPlayer(new LevelCache(64));
+        long inputs = 0, time = 0;
+        for (String file : args) {
+            ReplayResult result = player.play(Replay.read(Paths.get(file)));
+            inputs += result.getInputCount();
+            time += result.getWallTime();
+            Out.println(file + ": " + result);
+        }
+        if (time > 0)
+            Out.println(String.format("%.0f inputs/s", inputs * 1e9 / time));
+    }
+}
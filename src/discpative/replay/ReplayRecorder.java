@@ -0,0 +1,70 @@
+package discpative.replay;
+
+import discpative.controller.Direction;
+import discpative.model.Level;
+
+import java.util.Arrays;
+
+/**
+ * Records the inputs of a game into a {@link Replay}.
+ *
+ * The {@link discpative.controller.LevelController} calls {@link #record(byte)} after every input,
+ * the recorder then takes the checksum of the level. Only the thread that runs the turns may use it.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class ReplayRecorder {
+    private final int levelNumber; //number of the played level
+    private final Level level; //the played level
+    private byte[] inputs = new byte[256]; //recorded inputs
+    private int[] checksums = new int[256]; //checksum after every recorded input
+    private int size; //number of recorded inputs
+
+    /**
+     * Constructor.
+     * @param levelNumber number of the played level
+     * @param level the played level in its start state
+     */
+    public ReplayRecorder(int levelNumber, Level level) {
+        this.levelNumber = levelNumber;
+        this.level = level;
+    }
+
+    /**
+     * Records a move or a click
+     * @param direction direction of the move
+     */
+    public void record(Direction direction) {
+        record((byte) direction.ordinal());
+    }
+
+    /**
+     * Records an input after the level handled it
+     * @param input a direction ordinal, {@link Replay#UNDO} or {@link Replay#REDO}
+     */
+    public void record(byte input) {
+        if (size == inputs.length) {
+            inputs = Arrays.copyOf(inputs, size * 2);
+            checksums = Arrays.copyOf(checksums, size * 2);
+        }
+        inputs[size] = input;
+        checksums[size++] = Replay.checksum(level);
+    }
+
+    /**
+     * Getter.
+     * @return number of recorded inputs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Creates a replay of all inputs recorded so far
+     * @return the replay
+     */
+    public Replay toReplay() {
+        return new Replay(levelNumber, Arrays.copyOf(inputs, size), Arrays.copyOf(checksums, size));
+    }
+}
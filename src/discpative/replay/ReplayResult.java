@@ -0,0 +1,109 @@
+package discpative.replay;
+
+/**
+ * Result of playing a {@link Replay}.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class ReplayResult {
+    private final int levelNumber; //number of the played level
+    private final boolean won; //the level was won at the end
+    private final boolean lost; //the level was lost at the end
+    private final int moveCount; //moves of the player at the end
+    private final int inputCount; //number of played inputs
+    private final int divergence; //index of the first input with a wrong checksum, -1 if all match
+    private final long wallTime; //duration of the playback in nanoseconds
+
+    /**
+     * Constructor.
+     * @param levelNumber number of the played level
+     * @param won the level was won at the end
+     * @param lost the level was lost at the end
+     * @param moveCount moves of the player at the end
+     * @param inputCount number of played inputs
+     * @param divergence index of the first input with a wrong checksum, -1 if all match
+     * @param wallTime duration of the playback in nanoseconds
+     */
+    public ReplayResult(int levelNumber, boolean won, boolean lost, int moveCount, int inputCount,
+                        int divergence, long wallTime) {
+        this.levelNumber = levelNumber;
+        this.won = won;
+        this.lost = lost;
+        this.moveCount = moveCount;
+        this.inputCount = inputCount;
+        this.divergence = divergence;
+        this.wallTime = wallTime;
+    }
+
+    /**
+     * Getter.
+     * @return number of the played level
+     */
+    public int getLevelNumber() {
+        return levelNumber;
+    }
+
+    /**
+     * Getter.
+     * @return true if the level was won at the end
+     */
+    public boolean isWon() {
+        return won;
+    }
+
+    /**
+     * Getter.
+     * @return true if the level was lost at the end
+     */
+    public boolean isLost() {
+        return lost;
+    }
+
+    /**
+     * Getter.
+     * @return moves of the player at the end
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Getter.
+     * @return number of played inputs
+     */
+    public int getInputCount() {
+        return inputCount;
+    }
+
+    /**
+     * Getter.
+     * @return index of the first input with a wrong checksum, -1 if all match
+     */
+    public int getDivergence() {
+        return divergence;
+    }
+
+    /**
+     * Getter.
+     * @return true if every checksum matched
+     */
+    public boolean isValid() {
+        return divergence < 0;
+    }
+
+    /**
+     * Getter.
+     * @return duration of the playback in nanoseconds
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("level=%d %s moves=%d inputs=%d %s time=%.3fms", levelNumber,
+                won ? "won" : lost ? "lost" : "open", moveCount, inputCount,
+                divergence < 0 ? "valid" : "diverged at input " + divergence, wallTime / 1e6);
+    }
+}
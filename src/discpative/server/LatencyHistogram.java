@@ -0,0 +1,77 @@
+package discpative.server;
+
+/**
+ * Histogram of latencies with a fixed number of buckets.
+ *
+ * Every power of two is split into {@link #SUB_BUCKETS} buckets, so a percentile is off by at most
+ * about 6% no matter how many values are recorded. Not thread safe, merge one histogram per thread.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+final class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS; //buckets per power of two
+
+    private final long[] counts = new long[64 * SUB_BUCKETS]; //number of values per bucket
+    private long total; //number of values
+
+    /**
+     * Adds a value
+     * @param nanos the latency in nanoseconds
+     */
+    void record(long nanos) {
+        counts[bucketOf(Math.max(nanos, 1))]++;
+        total++;
+    }
+
+    /**
+     * Adds all values of another histogram
+     * @param other the other histogram
+     */
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++)
+            counts[i] += other.counts[i];
+        total += other.total;
+    }
+
+    /**
+     * Getter.
+     * @return number of values
+     */
+    long getCount() {
+        return total;
+    }
+
+    /**
+     * Finds a percentile
+     * @param percent the percentile, e.g. 99.0
+     * @return upper bound of the bucket of the percentile in nanoseconds, 0 if there are no values
+     */
+    long percentile(double percent) {
+        long rank = (long) Math.ceil(percent / 100 * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(rank, 1))
+                return upperBound(i);
+        }
+        return 0;
+    }
+
+    private static int bucketOf(long value) {
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent < SUB_BITS)
+            return (int) value;
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+}
@@ -0,0 +1,148 @@
+package discpative.server;
+
+import discpative.controller.Direction;
+import discpative.io.Out;
+import discpative.model.LevelCache;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Load test of the {@link SessionManager}.
+ *
+ * Opens a number of sessions and lets a fixed number of clients send requests for random sessions,
+ * each client sends its next request as soon as the last one is answered. A move goes into a random
+ * direction, if it ends the game the client takes it back right away, so the sessions keep playing.
+ * Reports the requests per second, the latency percentiles and the heap used per session, right after
+ * opening the sessions and again after the load, when every session has played its turns.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class LoadGenerator {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final SessionManager manager; //the tested sessions
+    private final long[] ids; //ids of all sessions
+    private final long deadline; //end of the test, from System.nanoTime()
+    private final CountDownLatch finished; //counts down once per client
+
+    /**
+     * Constructor.
+     * @param manager the tested sessions
+     * @param ids ids of all sessions
+     * @param deadline end of the test, from System.nanoTime()
+     * @param clients number of clients
+     */
+    private LoadGenerator(SessionManager manager, long[] ids, long deadline, int clients) {
+        this.manager = manager;
+        this.ids = ids;
+        this.deadline = deadline;
+        finished = new CountDownLatch(clients);
+    }
+
+    /**
+     * Client that sends one request at a time.
+     * Every answer sends the next request, so a client is only ever used by one thread at a time.
+     */
+    private final class Client {
+        private final SplittableRandom random; //picks the sessions and directions
+        private final LatencyHistogram latencies = new LatencyHistogram(); //latency of every answered request
+        private long failures; //requests that failed
+
+        Client(long seed) {
+            random = new SplittableRandom(seed);
+        }
+
+        /**
+         * Sends the next request, or stops once the test is over
+         * @param previous state of the session of the last request, null for the first one
+         */
+        void next(SessionStatus previous) {
+            long now = System.nanoTime();
+            if (now >= deadline) {
+                finished.countDown();
+                return;
+            }
+            boolean over = previous != null && (previous.isLost() || previous.isWon());
+            long id = over ? previous.getSessionId() : ids[random.nextInt(ids.length)];
+            (over ? manager.undo(id) : manager.move(id, DIRECTIONS[random.nextInt(4)]))
+                    .whenComplete((status, error) -> {
+                        latencies.record(System.nanoTime() - now);
+                        if (error != null)
+                            failures++;
+                        next(status);
+                    });
+        }
+    }
+
+    /**
+     * Runs one test
+     * @param levels source of the levels
+     * @param levelNumber level of all sessions
+     * @param sessionCount number of sessions
+     * @param clients number of clients
+     * @param shards number of shard threads
+     * @param seconds duration of the test
+     * @throws IOException if the level cannot be loaded
+     * @throws InterruptedException if the test is interrupted
+     */
+    static void run(LevelCache levels, int levelNumber, int sessionCount, int clients, int shards, int seconds)
+            throws IOException, InterruptedException {
+        long heapBefore = usedHeap();
+        try (SessionManager manager = new SessionManager(levels, shards, Long.MAX_VALUE / 1_000_000)) {
+            long[] ids = new long[sessionCount];
+            for (int i = 0; i < sessionCount; i++)
+                ids[i] = manager.open(levelNumber);
+            long bytesOpened = (usedHeap() - heapBefore) / sessionCount;
+
+            long start = System.nanoTime();
+            LoadGenerator generator = new LoadGenerator(manager, ids, start + seconds * 1_000_000_000L, clients);
+            Client[] all = new Client[clients];
+            for (int i = 0; i < clients; i++) {
+                all[i] = generator.new Client(i);
+                all[i].next(null);
+            }
+            generator.finished.await();
+            long elapsed = System.nanoTime() - start;
+            long bytesLoaded = (usedHeap() - heapBefore) / sessionCount;
+
+            LatencyHistogram latencies = new LatencyHistogram();
+            long failures = 0;
+            for (Client client : all) {
+                latencies.add(client.latencies);
+                failures += client.failures;
+            }
+            Out.printf("sessions=%d clients=%d shards=%d: %.0f requests/s p50=%.1fus p99=%.1fus p99.9=%.1fus"
+                            + " failures=%d heap/session=%dB opened, %dB after load%n",
+                    sessionCount, clients, shards, latencies.getCount() * 1e9 / elapsed,
+                    latencies.percentile(50) / 1e3, latencies.percentile(99) / 1e3,
+                    latencies.percentile(99.9) / 1e3, failures, bytesOpened, bytesLoaded);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Starts the load test with 1000, 10000 and 100000 sessions.
+     * @param args optional level number (default 23), seconds per test (default 10), number of clients
+     *             (default 256) and number of shards (default number of cores)
+     * @throws IOException if the level cannot be loaded
+     * @throws InterruptedException if the test is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int levelNumber = args.length > 0 ? Integer.parseInt(args[0]) : 23;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        int shards = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        LevelCache levels = new LevelCache(16);
+        for (int sessionCount : new int[]{1_000, 10_000, 100_000})
+            run(levels, levelNumber, sessionCount, clients, shards, seconds);
+    }
+}
@@ -0,0 +1,121 @@
+package discpative.server;
+
+import discpative.controller.Direction;
+import discpative.controller.LevelController;
+import discpative.model.Level;
+import discpative.spectator.Spectator;
+import discpative.spectator.SpectatorFeed;
+
+/**
+ * One game of the {@link SessionManager}.
+ *
+ * Holds the level and its controller. All requests of a session run on the same shard thread one after
+ * another, only {@link #lastActive} and the spectator feed are used by other threads.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+final class Session {
+    private final long id; //id of the session
+    private final Level level; //model of the game
+    private final LevelController controller; //handles the requests like the input of a view
+    private volatile long lastActive; //time of the last request, from System.nanoTime()
+    private volatile SpectatorFeed feed; //streams the turns to spectators, created with the first spectator
+
+    /**
+     * Constructor.
+     * @param id id of the session
+     * @param level model of the game in its start state
+     * @param controller controller of the level
+     */
+    Session(long id, Level level, LevelController controller) {
+        this.id = id;
+        this.level = level;
+        this.controller = controller;
+        lastActive = System.nanoTime();
+    }
+
+    /**
+     * Moves the player
+     * @param direction direction of the move
+     * @return the state after the turn
+     */
+    SessionStatus move(Direction direction) {
+        lastActive = System.nanoTime();
+        controller.handleMove(null, direction);
+        return status();
+    }
+
+    /**
+     * Takes back the last turn
+     * @return the state after the undo
+     */
+    SessionStatus undo() {
+        lastActive = System.nanoTime();
+        controller.handleUndo(null);
+        return status();
+    }
+
+    /**
+     * Repeats the last undone turn
+     * @return the state after the redo
+     */
+    SessionStatus redo() {
+        lastActive = System.nanoTime();
+        controller.handleRedo(null);
+        return status();
+    }
+
+    /**
+     * Saves the state of the game
+     * @return the snapshot of the level, see {@link Level#snapshot()}
+     */
+    byte[] snapshot() {
+        lastActive = System.nanoTime();
+        return level.snapshot();
+    }
+
+    /**
+     * Adds a spectator of the game, watching does not keep the session open
+     * @param capacity frames that may wait before the spectator falls back to a keyframe
+     * @return the new spectator
+     */
+    Spectator watch(int capacity) {
+        if (feed == null)
+            feed = new SpectatorFeed(level);
+        return feed.subscribe(capacity);
+    }
+
+    /**
+     * Ends the game, closes all spectators
+     */
+    void close() {
+        SpectatorFeed current = feed;
+        if (current != null)
+            current.close();
+    }
+
+    /**
+     * Getter.
+     * @return the current state
+     */
+    SessionStatus status() {
+        return new SessionStatus(id, level.getMoveCount(), level.isWon(), level.isLost());
+    }
+
+    /**
+     * Getter.
+     * @return id of the session
+     */
+    long getId() {
+        return id;
+    }
+
+    /**
+     * Getter.
+     * @return time of the last request, from System.nanoTime()
+     */
+    long getLastActive() {
+        return lastActive;
+    }
+}
@@ -0,0 +1,249 @@
+package discpative.server;
+
+import discpative.controller.Direction;
+import discpative.controller.LevelController;
+import discpative.io.TextWriter;
+import discpative.model.Level;
+import discpative.model.LevelCache;
+import discpative.spectator.Spectator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Headless host of many games.
+ *
+ * Every session is a {@link Level} and its {@link LevelController}, built from templates shared through a
+ * {@link LevelCache}. Requests run on a fixed number of shards, each a single thread, and a session always
+ * uses the shard of its id. Requests of one session therefore run in order and the level needs no locks,
+ * while different sessions run in parallel. Sessions without a request for longer than the idle timeout
+ * are closed by a sweeper thread. Sessions print nothing and skip the dead end check, so no dead squares
+ * are computed per session. A session can only undo its last {@link #DEFAULT_UNDO_LIMIT} turns unless the
+ * limit is changed, so a long game does not grow its undo history forever. Thread safe.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class SessionManager implements Closeable {
+    public static final int DEFAULT_UNDO_LIMIT = 100; //turns a session can undo unless set otherwise
+
+    private final LevelCache levels; //parsed levels, shared by all sessions
+    private final ConcurrentHashMap<Long, Session> sessions = new ConcurrentHashMap<>(); //open sessions by id
+    private final ExecutorService[] shards; //single threads that run the requests
+    private final ScheduledExecutorService sweeper; //closes idle sessions
+    private final long idleTimeout; //nanoseconds without a request before a session is closed
+    private final AtomicLong nextId = new AtomicLong(); //id of the next session
+    private final AtomicLong evicted = new AtomicLong(); //number of sessions closed for being idle
+    private volatile int undoLimit = DEFAULT_UNDO_LIMIT; //turns a new session can undo
+
+    /**
+     * Constructor.
+     * @param levels source of the levels
+     * @param shardCount number of threads that run the requests
+     * @param idleMillis milliseconds without a request before a session is closed
+     */
+    public SessionManager(LevelCache levels, int shardCount, long idleMillis) {
+        this.levels = levels;
+        idleTimeout = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        shards = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            String name = "shard-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(task -> daemon(task, name));
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(task -> daemon(task, "sweeper"));
+        long period = Math.max(idleMillis / 4, 1);
+        sweeper.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Setter.
+     * Applies to sessions opened or resumed afterwards.
+     * @param turns number of turns a session can undo, 0 turns undo off
+     */
+    public void setUndoLimit(int turns) {
+        undoLimit = turns;
+    }
+
+    /**
+     * Starts a new game
+     * @param levelNumber number of the level
+     * @return id of the session
+     * @throws IOException if the level does not exist or cannot be loaded
+     */
+    public long open(int levelNumber) throws IOException {
+        Level level = levels.newLevel(levelNumber);
+        if (level.getRowCount() == 0)
+            throw new IOException("Level" + levelNumber + " does not exist");
+        return add(level);
+    }
+
+    /**
+     * Continues a saved game, e.g. after a restart or from another server
+     * @param levelNumber number of the level
+     * @param snapshot the saved game, see {@link #snapshot(long)}
+     * @return id of the new session
+     * @throws IOException if the level cannot be loaded
+     * @throws IllegalArgumentException if the snapshot is broken or belongs to another level
+     */
+    public long resume(int levelNumber, byte[] snapshot) throws IOException {
+        return add(levels.get(levelNumber).restore(snapshot));
+    }
+
+    /**
+     * Reads the state of a session
+     * @param id id of the session
+     * @return the current state, fails with an {@link IllegalArgumentException} for an unknown session
+     */
+    public CompletableFuture<SessionStatus> status(long id) {
+        return submit(id, Session::status);
+    }
+
+    /**
+     * Saves the state of a game, the session stays open
+     * @param id id of the session
+     * @return the snapshot of the level, fails with an {@link IllegalArgumentException} for an unknown session
+     */
+    public CompletableFuture<byte[]> snapshot(long id) {
+        return submit(id, Session::snapshot);
+    }
+
+    /**
+     * Opens a session for a level
+     * @param level the level
+     * @return id of the session
+     */
+    private long add(Level level) {
+        level.setOutput(TextWriter.discard());
+        level.setUndoLimit(undoLimit);
+        LevelController controller = new LevelController(level);
+        controller.setOutput(TextWriter.discard());
+        controller.setDeadlockCheck(false);
+        long id = nextId.getAndIncrement();
+        sessions.put(id, new Session(id, level, controller));
+        return id;
+    }
+
+    /**
+     * Moves the player of a session
+     * @param id id of the session
+     * @param direction direction of the move
+     * @return the state after the turn, fails with an {@link IllegalArgumentException} for an unknown session
+     */
+    public CompletableFuture<SessionStatus> move(long id, Direction direction) {
+        return submit(id, session -> session.move(direction));
+    }
+
+    /**
+     * Takes back the last turn of a session
+     * @param id id of the session
+     * @return the state after the undo, fails with an {@link IllegalArgumentException} for an unknown session
+     */
+    public CompletableFuture<SessionStatus> undo(long id) {
+        return submit(id, Session::undo);
+    }
+
+    /**
+     * Repeats the last undone turn of a session
+     * @param id id of the session
+     * @return the state after the redo, fails with an {@link IllegalArgumentException} for an unknown session
+     */
+    public CompletableFuture<SessionStatus> redo(long id) {
+        return submit(id, Session::redo);
+    }
+
+    /**
+     * Watches a game, the spectator gets a keyframe of the current state and a frame per turn
+     * @param id id of the session
+     * @param capacity frames that may wait before the spectator falls back to a keyframe
+     * @return the spectator, fails with an {@link IllegalArgumentException} for an unknown session
+     */
+    public CompletableFuture<Spectator> watch(long id, int capacity) {
+        return submit(id, session -> session.watch(capacity));
+    }
+
+    /**
+     * Ends a game, its spectators are closed
+     * @param id id of the session
+     * @return true if the session was open
+     */
+    public boolean close(long id) {
+        Session session = sessions.remove(id);
+        if (session == null)
+            return false;
+        session.close();
+        return true;
+    }
+
+    /**
+     * Closes all sessions without a request for longer than the idle timeout
+     * @return number of closed sessions
+     */
+    public int evictIdle() {
+        long now = System.nanoTime();
+        int count = 0;
+        for (Session session : sessions.values()) {
+            if (now - session.getLastActive() > idleTimeout && sessions.remove(session.getId(), session)) {
+                session.close();
+                count++;
+            }
+        }
+        evicted.addAndGet(count);
+        return count;
+    }
+
+    /**
+     * Getter.
+     * @return number of open sessions
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Getter.
+     * @return number of sessions closed for being idle
+     */
+    public long getEvicted() {
+        return evicted.get();
+    }
+
+    /**
+     * Stops the shards and the sweeper, waiting requests are dropped
+     */
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        for (ExecutorService shard : shards)
+            shard.shutdownNow();
+        sessions.values().forEach(Session::close);
+        sessions.clear();
+    }
+
+    /**
+     * Runs a request on the shard of a session
+     * @param id id of the session
+     * @param request the request
+     * @param <T> type of the answer
+     * @return the answer to the request
+     */
+    private <T> CompletableFuture<T> submit(long id, Function<Session, T> request) {
+        Session session = sessions.get(id);
+        if (session == null)
+            return CompletableFuture.failedFuture(new IllegalArgumentException("unknown session " + id));
+        return CompletableFuture.supplyAsync(() -> request.apply(session), shards[(int) (id % shards.length)]);
+    }
+}
@@ -0,0 +1,134 @@
+package discpative.server;
+
+import discpative.controller.Direction;
+import discpative.io.Out;
+import discpative.model.LevelCache;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Line based socket front end of a {@link SessionManager}, stands in for a real network protocol.
+ *
+ * Listens on the loopback interface, every connection gets a thread. A request is one line, the answer
+ * is one line starting with ok or error:
+ * <pre>
+ * open &lt;level&gt;             ok session=&lt;id&gt; moves=0 playing
+ * move &lt;id&gt; &lt;direction&gt;    ok session=&lt;id&gt; moves=&lt;n&gt; playing|won|lost
+ * undo &lt;id&gt;, redo &lt;id&gt;     same as move
+ * status &lt;id&gt;              same as move
+ * snapshot &lt;id&gt;            ok &lt;snapshot as base64&gt;
+ * resume &lt;level&gt; &lt;base64&gt;  ok session=&lt;id&gt; moves=&lt;n&gt; playing|won|lost
+ * close &lt;id&gt;               ok
+ * </pre>
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class SessionServer {
+    private final SessionManager manager; //hosts the games
+
+    /**
+     * Constructor.
+     * @param manager hosts the games
+     */
+    public SessionServer(SessionManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Answers a request
+     * @param line the request
+     * @return the answer
+     */
+    public String handle(String line) {
+        String[] words = line.trim().split("\\s+");
+        try {
+            switch (words[0]) {
+                case "open":
+                    return "ok session=" + manager.open(Integer.parseInt(words[1])) + " moves=0 playing";
+                case "move":
+                    return "ok " + manager.move(Long.parseLong(words[1]),
+                            Direction.valueOf(words[2].toUpperCase(Locale.ROOT))).join();
+                case "undo":
+                    return "ok " + manager.undo(Long.parseLong(words[1])).join();
+                case "redo":
+                    return "ok " + manager.redo(Long.parseLong(words[1])).join();
+                case "status":
+                    return "ok " + manager.status(Long.parseLong(words[1])).join();
+                case "snapshot":
+                    return "ok " + Base64.getEncoder().encodeToString(manager.snapshot(Long.parseLong(words[1])).join());
+                case "resume": {
+                    long id = manager.resume(Integer.parseInt(words[1]), Base64.getDecoder().decode(words[2]));
+                    return "ok " + manager.status(id).join();
+                }
+                case "close":
+                    return manager.close(Long.parseLong(words[1])) ? "ok" : "error unknown session " + words[1];
+                default:
+                    return "error unknown request " + words[0];
+            }
+        } catch (CompletionException e) {
+            return "error " + e.getCause().getMessage();
+        } catch (IOException | IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            return "error " + e.getMessage();
+        }
+    }
+
+    /**
+     * Accepts connections until the thread is interrupted
+     * @param port port on the loopback interface
+     * @throws IOException if the port cannot be opened
+     */
+    public void serve(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 128, InetAddress.getLoopbackAddress())) {
+            Out.println("listening on " + server.getLocalSocketAddress());
+            while (!Thread.currentThread().isInterrupted()) {
+                Socket socket = server.accept();
+                Thread connection = new Thread(() -> talk(socket), "connection-" + socket.getPort());
+                connection.setDaemon(true);
+                connection.start();
+            }
+        }
+    }
+
+    /**
+     * Answers the requests of one connection until it is closed
+     * @param socket the connection
+     */
+    private void talk(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null)
+                if (!line.isBlank())
+                    out.println(handle(line));
+        } catch (IOException e) {
+            //the client went away, its sessions stay until they are idle
+        }
+    }
+
+    /**
+     * Starts the server.
+     * @param args optional port (default 7777), number of shards (default number of cores)
+     *             and idle timeout in seconds (default 600)
+     * @throws IOException if the port cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        int shards = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long idleSeconds = args.length > 2 ? Long.parseLong(args[2]) : 600;
+        try (SessionManager manager = new SessionManager(new LevelCache(64), shards, idleSeconds * 1000)) {
+            new SessionServer(manager).serve(port);
+        }
+    }
+}
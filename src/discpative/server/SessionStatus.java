@@ -0,0 +1,65 @@
+package discpative.server;
+
+/**
+ * State of a session after a request.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class SessionStatus {
+    private final long sessionId; //id of the session
+    private final int moveCount; //moves of the player so far
+    private final boolean won; //the level is won
+    private final boolean lost; //the level is lost
+
+    /**
+     * Constructor.
+     * @param sessionId id of the session
+     * @param moveCount moves of the player so far
+     * @param won the level is won
+     * @param lost the level is lost
+     */
+    public SessionStatus(long sessionId, int moveCount, boolean won, boolean lost) {
+        this.sessionId = sessionId;
+        this.moveCount = moveCount;
+        this.won = won;
+        this.lost = lost;
+    }
+
+    /**
+     * Getter.
+     * @return id of the session
+     */
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Getter.
+     * @return moves of the player so far
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Getter.
+     * @return true if the level is won
+     */
+    public boolean isWon() {
+        return won;
+    }
+
+    /**
+     * Getter.
+     * @return true if the level is lost
+     */
+    public boolean isLost() {
+        return lost;
+    }
+
+    @Override
+    public String toString() {
+        return "session=" + sessionId + " moves=" + moveCount + (won ? " won" : lost ? " lost" : " playing");
+    }
+}
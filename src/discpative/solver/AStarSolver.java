@@ -0,0 +1,120 @@
+package discpative.solver;
+
+import discpative.controller.Direction;
+import discpative.model.CompactLevel;
+import discpative.model.DeadlockAnalyzer;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A* search guided by a {@link Heuristic}.
+ *
+ * Expands the state with the lowest moves + estimate first, deeper states first on ties.
+ * States the heuristic or the {@link DeadlockAnalyzer} mark as unwinnable are dropped. Since the estimate never exceeds
+ * the real number of moves left, the first won state taken from the open list is optimal.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class AStarSolver implements SolverInterface {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int COST_MASK = 0xFFFF;
+
+    private final CompactLevel start; //state the search starts from
+    private int maxStates = 50_000_000; //the search gives up after storing this many states
+
+    /**
+     * Constructor.
+     * @param level state the search starts from, is not modified
+     */
+    public AStarSolver(CompactLevel level) {
+        this.start = new CompactLevel(level);
+    }
+
+    /**
+     * Setter.
+     * @param maxStates the search gives up after storing this many states
+     */
+    public void setMaxStates(int maxStates) {
+        this.maxStates = maxStates;
+    }
+
+    @Override
+    public Solution solve() {
+        long startTime = System.nanoTime();
+        Heuristic heuristic = new Heuristic(start);
+        StateCodec codec = new StateCodec(start);
+        StateTable table = new StateTable(codec.getKeyLength(), 1 << 16);
+        LongHeap open = new LongHeap();
+        BitSet won = new BitSet();
+        int[] costs = new int[1 << 16];
+        CompactLevel parent = new CompactLevel(start);
+        CompactLevel child = new CompactLevel(start);
+        DeadlockAnalyzer deadlocks = new DeadlockAnalyzer(start);
+        long[] key = new long[codec.getKeyLength()];
+
+        Direction[] moves = null;
+        long expanded = 0;
+        long peakMemory = 0;
+        int estimate = heuristic.estimate(start);
+        if (estimate != Heuristic.INFINITE) {
+            codec.encode(start, key, 0);
+            table.add(key, 0, -1, -1);
+            open.push(item(estimate, 0, 0));
+        }
+
+        while (!open.isEmpty() && table.size() < maxStates) {
+            long item = open.poll();
+            int entry = (int) item;
+            int cost = COST_MASK - (int) (item >>> 32 & COST_MASK);
+            if (cost != costs[entry])
+                continue;
+            if (won.get(entry)) {
+                moves = table.path(entry);
+                break;
+            }
+            table.getKey(entry, key, 0);
+            codec.decode(key, 0, parent);
+            expanded++;
+            for (Direction direction : DIRECTIONS) {
+                child.copyStateFrom(parent);
+                if (!child.canPlayerMoveTo(direction))
+                    continue;
+                child.movePlayerTo(direction);
+                if (deadlocks.isDeadAfterMove(parent, child))
+                    continue;
+                estimate = heuristic.estimate(child);
+                if (estimate == Heuristic.INFINITE)
+                    continue;
+                codec.encode(child, key, 0);
+                int next = table.find(key, 0);
+                if (next < 0) {
+                    next = table.add(key, 0, entry, direction.ordinal());
+                    if (next == costs.length)
+                        costs = Arrays.copyOf(costs, next * 2);
+                    if (child.isWon())
+                        won.set(next);
+                } else if (cost + 1 < costs[next])
+                    table.setParent(next, entry, direction.ordinal());
+                else
+                    continue;
+                costs[next] = cost + 1;
+                open.push(item(cost + 1 + estimate, cost + 1, next));
+            }
+            peakMemory = Math.max(peakMemory, table.footprint() + open.footprint() + 4L * costs.length);
+        }
+        return new Solution(moves, expanded, table.size(), peakMemory, System.nanoTime() - startTime);
+    }
+
+    /**
+     * Packs an entry of the open list, ordered by total estimate and then by higher cost
+     * @param total moves so far + estimate
+     * @param cost moves so far
+     * @param entry index of the state
+     * @return the packed item
+     */
+    private static long item(int total, int cost, int entry) {
+        return (long) total << 48 | (long) (COST_MASK - cost) << 32 | entry;
+    }
+}
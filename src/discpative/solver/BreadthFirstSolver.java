@@ -0,0 +1,78 @@
+package discpative.solver;
+
+import discpative.controller.Direction;
+import discpative.model.CompactLevel;
+import discpative.model.DeadlockAnalyzer;
+
+/**
+ * Breadth first search over all player moves.
+ *
+ * Every move runs the complete turn of {@link CompactLevel}, including the guards.
+ * Moves rejected by {@link CompactLevel#canPlayerMoveTo(Direction)} are not expanded,
+ * neither are states the {@link DeadlockAnalyzer} finds unwinnable.
+ * The first won state found has the minimal number of moves.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class BreadthFirstSolver implements SolverInterface {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final CompactLevel start; //state the search starts from
+    private int maxStates = 50_000_000; //the search gives up after storing this many states
+
+    /**
+     * Constructor.
+     * @param level state the search starts from, is not modified
+     */
+    public BreadthFirstSolver(CompactLevel level) {
+        this.start = new CompactLevel(level);
+    }
+
+    /**
+     * Setter.
+     * @param maxStates the search gives up after storing this many states
+     */
+    public void setMaxStates(int maxStates) {
+        this.maxStates = maxStates;
+    }
+
+    @Override
+    public Solution solve() {
+        long startTime = System.nanoTime();
+        StateCodec codec = new StateCodec(start);
+        int keyLength = codec.getKeyLength();
+        StateTable table = new StateTable(keyLength, 1 << 16);
+        CompactLevel parent = new CompactLevel(start);
+        CompactLevel child = new CompactLevel(start);
+        DeadlockAnalyzer deadlocks = new DeadlockAnalyzer(start);
+        long[] key = new long[keyLength];
+
+        codec.encode(start, key, 0);
+        table.add(key, 0, -1, -1);
+        Direction[] moves = null;
+        int expanded = 0;
+
+        search:
+        for (int entry = 0; entry < table.size() && table.size() < maxStates; entry++) {
+            table.getKey(entry, key, 0);
+            codec.decode(key, 0, parent);
+            expanded++;
+            for (Direction direction : DIRECTIONS) {
+                child.copyStateFrom(parent);
+                if (!child.canPlayerMoveTo(direction))
+                    continue;
+                child.movePlayerTo(direction);
+                if (deadlocks.isDeadAfterMove(parent, child))
+                    continue;
+                codec.encode(child, key, 0);
+                int added = table.add(key, 0, entry, direction.ordinal());
+                if (added >= 0 && child.isWon()) {
+                    moves = table.path(added);
+                    break search;
+                }
+            }
+        }
+        return new Solution(moves, expanded, table.size(), table.footprint(), System.nanoTime() - startTime);
+    }
+}
@@ -0,0 +1,99 @@
+package discpative.solver;
+
+import discpative.controller.Direction;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock striped set of visited states for the parallel search.
+ *
+ * The upper bits of the hash pick one of 64 {@link StateTable}s, each guarded by its own lock,
+ * so threads only contend when they hit the same stripe.
+ * A state is identified by its index in the stripe and the number of the stripe.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+class ConcurrentStateTable {
+    private static final int STRIPE_BITS = 6;
+    private static final int STRIPE_MASK = (1 << STRIPE_BITS) - 1;
+
+    private final int keyLength; //number of longs per key
+    private final StateTable[] stripes; //the stripes, each one is its own lock
+    private final AtomicInteger size = new AtomicInteger(); //number of stored states
+
+    /**
+     * Constructor.
+     * @param keyLength number of longs per key
+     * @param capacity expected number of states
+     */
+    ConcurrentStateTable(int keyLength, int capacity) {
+        this.keyLength = keyLength;
+        stripes = new StateTable[1 << STRIPE_BITS];
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new StateTable(keyLength, capacity >> STRIPE_BITS);
+    }
+
+    /**
+     * Stores a state if it is not stored yet
+     * @param key source array
+     * @param offset index of the first long of the key
+     * @param parent id of the parent state
+     * @param move ordinal of the move from the parent
+     * @return id of the new state, -1 if it was already stored
+     */
+    int add(long[] key, int offset, int parent, int move) {
+        int stripe = StateTable.hash(key, offset, keyLength) >>> (32 - STRIPE_BITS);
+        StateTable table = stripes[stripe];
+        int entry;
+        synchronized (table) {
+            entry = table.add(key, offset, parent, move);
+        }
+        if (entry < 0)
+            return -1;
+        size.incrementAndGet();
+        return entry << STRIPE_BITS | stripe;
+    }
+
+    /**
+     * Follows the parents of a state back to the start.
+     * Must not run while states are added.
+     * @param id id of the last state
+     * @return the moves from the start to the state
+     */
+    Direction[] path(int id) {
+        int length = 0;
+        for (int i = id; parentOf(i) >= 0; i = parentOf(i))
+            length++;
+        Direction[] path = new Direction[length];
+        Direction[] directions = Direction.values();
+        for (int i = id; parentOf(i) >= 0; i = parentOf(i))
+            path[--length] = directions[stripes[i & STRIPE_MASK].moveOf(i >>> STRIPE_BITS)];
+        return path;
+    }
+
+    private int parentOf(int id) {
+        return stripes[id & STRIPE_MASK].parentOf(id >>> STRIPE_BITS);
+    }
+
+    /**
+     * Getter.
+     * @return number of stored states
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Getter.
+     * @return bytes held by all stripes
+     */
+    long footprint() {
+        long bytes = 0;
+        for (StateTable table : stripes)
+            synchronized (table) {
+                bytes += table.footprint();
+            }
+        return bytes;
+    }
+}
@@ -0,0 +1,183 @@
+package discpative.solver;
+
+import discpative.model.CompactLevel;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Admissible estimate of the moves left until the level is won.
+ *
+ * Built once per level from the static grid. The player moves at most one cell per turn,
+ * so its distance to the nearest objective (walls block, everything else is passable) is a lower bound.
+ * If every way to an objective is cut off by empty pitfalls, a crate has to reach one of them first,
+ * otherwise the state cannot be won. Without guards only the player pushes crates, one cell per turn,
+ * so the distance of the nearest crate to an empty pitfall is a lower bound as well and the larger of both
+ * is used. Guards push crates too, possibly several times per turn, so with guards it only detects dead states.
+ * Pitfalls next to ice are treated as open, because movables sliding on ice do not check for collisions.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class Heuristic {
+    public static final int INFINITE = Integer.MAX_VALUE; //estimate for states that cannot be won
+
+    private final CompactLevel level; //copy of the start, only the tiles are used
+    private final boolean guarded; //guards can push crates as well
+    private final int[] pitfalls; //cells of all pitfalls
+    private final int[] objectiveDistance; //distance of every cell to the nearest objective
+    private final int[][] pitfallDistance; //distance of every cell to each pitfall
+    private final HashMap<Long, int[]> blockedDistance; //objective distance around empty pitfalls, by filled mask
+    private final int[] queue; //scratch queue for the searches
+
+    /**
+     * Constructor.
+     * @param start any state of the level
+     */
+    public Heuristic(CompactLevel start) {
+        level = new CompactLevel(start);
+        guarded = level.getGuardCount() > 0;
+        queue = new int[level.getCellCount()];
+        blockedDistance = new HashMap<>();
+
+        int count = 0;
+        for (int cell = 0; cell < level.getCellCount(); cell++)
+            if (level.kindOf(cell) == CompactLevel.PITFALL)
+                count++;
+        pitfalls = new int[count];
+        count = 0;
+        for (int cell = 0; cell < level.getCellCount(); cell++)
+            if (level.kindOf(cell) == CompactLevel.PITFALL)
+                pitfalls[count++] = cell;
+
+        objectiveDistance = distances(0, false);
+        pitfallDistance = new int[pitfalls.length][];
+        for (int i = 0; i < pitfalls.length; i++)
+            pitfallDistance[i] = distancesFrom(pitfalls[i]);
+    }
+
+    /**
+     * Estimates the number of moves needed to win
+     * @param state the current state, created from the same map
+     * @return a lower bound of the moves left, {@link #INFINITE} if the state cannot be won
+     */
+    public int estimate(CompactLevel state) {
+        if (state.isWon())
+            return 0;
+        int player = state.getPlayerCell();
+        int estimate = objectiveDistance[player];
+        if (estimate == INFINITE || pitfalls.length == 0 || pitfalls.length > 64)
+            return estimate;
+
+        long filled = 0;
+        for (int i = 0; i < pitfalls.length; i++)
+            if (state.isFilled(pitfalls[i]))
+                filled |= 1L << i;
+        if (blocked(filled)[player] != INFINITE)
+            return estimate;
+
+        int crateDistance = INFINITE;
+        for (int crate = 0; crate < state.getCrateSlots(); crate++) {
+            int cell = state.getCrateCell(crate);
+            if (cell < 0)
+                continue;
+            for (int i = 0; i < pitfalls.length; i++)
+                if ((filled & 1L << i) == 0)
+                    crateDistance = Math.min(crateDistance, pitfallDistance[i][cell]);
+        }
+        if (crateDistance == INFINITE)
+            return INFINITE;
+        return guarded ? estimate : Math.max(estimate, crateDistance);
+    }
+
+    /**
+     * Getter.
+     * @param cell index of a cell
+     * @return distance of the cell to the nearest objective
+     */
+    public int objectiveDistance(int cell) {
+        return objectiveDistance[cell];
+    }
+
+    /**
+     * Objective distances with the empty pitfalls closed
+     * @param filled bit mask of the filled pitfalls
+     * @return distance of every cell to the nearest objective
+     */
+    private int[] blocked(long filled) {
+        int[] distance = blockedDistance.get(filled);
+        if (distance == null) {
+            distance = distances(filled, true);
+            blockedDistance.put(filled, distance);
+        }
+        return distance;
+    }
+
+    /**
+     * Breadth first search from all objectives
+     * @param filled bit mask of the filled pitfalls
+     * @param closePitfalls true if empty pitfalls away from ice block the way
+     * @return distance of every cell to the nearest objective
+     */
+    private int[] distances(long filled, boolean closePitfalls) {
+        int[] distance = new int[level.getCellCount()];
+        Arrays.fill(distance, INFINITE);
+        int tail = 0;
+        for (int cell = 0; cell < distance.length; cell++)
+            if (level.kindOf(cell) == CompactLevel.OBJECTIVE) {
+                distance[cell] = 0;
+                queue[tail++] = cell;
+            }
+        for (int head = 0; head < tail; head++) {
+            int cell = queue[head];
+            for (int direction = 0; direction < 4; direction++) {
+                int next = level.neighbour(cell, direction);
+                if (distance[next] != INFINITE || level.kindOf(next) == CompactLevel.WALL)
+                    continue;
+                if (closePitfalls && isClosedPitfall(next, filled))
+                    continue;
+                distance[next] = distance[cell] + 1;
+                queue[tail++] = next;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Breadth first search from a single cell, walls block
+     * @param start the start cell
+     * @return distance of every cell to the start
+     */
+    private int[] distancesFrom(int start) {
+        int[] distance = new int[level.getCellCount()];
+        Arrays.fill(distance, INFINITE);
+        distance[start] = 0;
+        queue[0] = start;
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int cell = queue[head];
+            for (int direction = 0; direction < 4; direction++) {
+                int next = level.neighbour(cell, direction);
+                if (distance[next] != INFINITE || level.kindOf(next) == CompactLevel.WALL)
+                    continue;
+                distance[next] = distance[cell] + 1;
+                queue[tail++] = next;
+            }
+        }
+        return distance;
+    }
+
+    private boolean isClosedPitfall(int cell, long filled) {
+        if (level.kindOf(cell) != CompactLevel.PITFALL)
+            return false;
+        for (int i = 0; i < pitfalls.length; i++)
+            if (pitfalls[i] == cell && (filled & 1L << i) != 0)
+                return false;
+        for (int direction = 0; direction < 4; direction++) {
+            int kind = level.kindOf(level.neighbour(cell, direction));
+            if (kind == CompactLevel.ICY || CompactLevel.isCurvedIcy(kind))
+                return false;
+        }
+        return true;
+    }
+}
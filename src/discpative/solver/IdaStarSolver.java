@@ -0,0 +1,152 @@
+package discpative.solver;
+
+import discpative.controller.Direction;
+import discpative.model.CompactLevel;
+import discpative.model.DeadlockAnalyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Iterative deepening A* guided by a {@link Heuristic}.
+ *
+ * Repeats a depth first search with a growing bound on moves + estimate.
+ * Memory stays bounded: besides one level per search depth, only a fixed size
+ * transposition table is kept, which skips states already reached with fewer moves
+ * in the current iteration. Colliding states simply replace each other.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class IdaStarSolver implements SolverInterface {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int FOUND = -1;
+
+    private final CompactLevel start; //state the search starts from
+    private int tableSize = 1 << 20; //number of slots of the transposition table
+    private long maxExpansions = 200_000_000L; //the search gives up after expanding this many states
+
+    private Heuristic heuristic; //estimate of the moves left
+    private DeadlockAnalyzer deadlocks; //prunes states that cannot be won
+    private StateCodec codec; //packs states for the transposition table
+    private int keyLength; //number of longs per key
+    private long[] tableKeys; //keys of the transposition table
+    private int[] tableCosts; //moves to reach the state in the current iteration, -1 if empty
+    private ArrayList<CompactLevel> levels; //one level per search depth
+    private byte[] path; //move taken at every search depth
+    private long[] key; //scratch key
+    private long expanded; //number of expanded states
+    private int foundDepth; //number of moves of the found solution
+
+    /**
+     * Constructor.
+     * @param level state the search starts from, is not modified
+     */
+    public IdaStarSolver(CompactLevel level) {
+        this.start = new CompactLevel(level);
+    }
+
+    /**
+     * Setter.
+     * @param tableSize number of slots of the transposition table, a power of two
+     */
+    public void setTableSize(int tableSize) {
+        this.tableSize = Integer.highestOneBit(tableSize);
+    }
+
+    /**
+     * Setter.
+     * @param maxExpansions the search gives up after expanding this many states
+     */
+    public void setMaxExpansions(long maxExpansions) {
+        this.maxExpansions = maxExpansions;
+    }
+
+    @Override
+    public Solution solve() {
+        long startTime = System.nanoTime();
+        heuristic = new Heuristic(start);
+        deadlocks = new DeadlockAnalyzer(start);
+        codec = new StateCodec(start);
+        keyLength = codec.getKeyLength();
+        tableKeys = new long[tableSize * keyLength];
+        tableCosts = new int[tableSize];
+        levels = new ArrayList<>();
+        levels.add(new CompactLevel(start));
+        path = new byte[64];
+        key = new long[keyLength];
+        expanded = 0;
+
+        Direction[] moves = null;
+        int bound = heuristic.estimate(start);
+        while (bound != Heuristic.INFINITE && expanded < maxExpansions) {
+            Arrays.fill(tableCosts, -1);
+            int next = search(0, bound);
+            if (next == FOUND) {
+                moves = new Direction[foundDepth];
+                for (int i = 0; i < foundDepth; i++)
+                    moves[i] = DIRECTIONS[path[i]];
+                break;
+            }
+            bound = next;
+        }
+        long memory = 8L * tableKeys.length + 4L * tableCosts.length + path.length
+                + (long) levels.size() * 4 * start.getCellCount();
+        Solution solution = new Solution(moves, expanded, expanded, memory, System.nanoTime() - startTime);
+        levels = null;
+        tableKeys = null;
+        tableCosts = null;
+        return solution;
+    }
+
+    /**
+     * Depth first search below a state
+     * @param depth moves done so far, the state is levels[depth]
+     * @param bound the bound of this iteration
+     * @return {@link #FOUND}, otherwise the smallest moves + estimate above the bound
+     */
+    private int search(int depth, int bound) {
+        CompactLevel state = levels.get(depth);
+        if (state.isWon()) {
+            foundDepth = depth;
+            return FOUND;
+        }
+        int estimate = heuristic.estimate(state);
+        if (estimate == Heuristic.INFINITE)
+            return Heuristic.INFINITE;
+
+        codec.encode(state, key, 0);
+        int slot = StateTable.hash(key, 0, keyLength) & (tableSize - 1);
+        boolean stored = tableCosts[slot] >= 0 && Arrays.equals(tableKeys, slot * keyLength,
+                (slot + 1) * keyLength, key, 0, keyLength);
+        if (stored && tableCosts[slot] <= depth)
+            return Heuristic.INFINITE;
+        if (depth + estimate > bound)
+            return depth + estimate;
+        System.arraycopy(key, 0, tableKeys, slot * keyLength, keyLength);
+        tableCosts[slot] = depth;
+
+        if (++expanded >= maxExpansions)
+            return Heuristic.INFINITE;
+        if (levels.size() == depth + 1)
+            levels.add(new CompactLevel(start));
+        if (path.length == depth)
+            path = Arrays.copyOf(path, depth * 2);
+        CompactLevel child = levels.get(depth + 1);
+        int min = Heuristic.INFINITE;
+        for (Direction direction : DIRECTIONS) {
+            child.copyStateFrom(state);
+            if (!child.canPlayerMoveTo(direction))
+                continue;
+            child.movePlayerTo(direction);
+            if (deadlocks.isDeadAfterMove(state, child))
+                continue;
+            path[depth] = (byte) direction.ordinal();
+            int next = search(depth + 1, bound);
+            if (next == FOUND)
+                return FOUND;
+            min = Math.min(min, next);
+        }
+        return min;
+    }
+}
@@ -0,0 +1,71 @@
+package discpative.solver;
+
+import java.util.Arrays;
+
+/**
+ * Binary min heap of primitive longs, used as open list of {@link AStarSolver}.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+class LongHeap {
+    private long[] items = new long[1024]; //heap ordered items
+    private int size; //number of items
+
+    /**
+     * Adds an item
+     * @param item the item
+     */
+    void push(long item) {
+        if (size == items.length)
+            items = Arrays.copyOf(items, size * 2);
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (items[parent] <= item)
+                break;
+            items[i] = items[parent];
+            i = parent;
+        }
+        items[i] = item;
+    }
+
+    /**
+     * Removes the smallest item
+     * @return the smallest item
+     */
+    long poll() {
+        long top = items[0];
+        long last = items[--size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && items[child + 1] < items[child])
+                child++;
+            if (last <= items[child])
+                break;
+            items[i] = items[child];
+            i = child;
+        }
+        items[i] = last;
+        return top;
+    }
+
+    /**
+     * Getter.
+     * @return true if there are no items
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Getter.
+     * @return bytes held by the heap
+     */
+    long footprint() {
+        return 8L * items.length;
+    }
+}
@@ -0,0 +1,173 @@
+package discpative.solver;
+
+import discpative.controller.Direction;
+import discpative.model.CompactLevel;
+import discpative.model.DeadlockAnalyzer;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Layered breadth first search on a {@link ForkJoinPool}.
+ *
+ * Every layer of the search is split into chunks that are expanded by the pool,
+ * stealing work from each other. States are deduplicated in a {@link ConcurrentStateTable}.
+ * As with {@link BreadthFirstSolver}, the first layer containing a won state gives the minimal
+ * number of moves, only the chosen path may differ between runs.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class ParallelSolver implements SolverInterface {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int CHUNK_SIZE = 256; //states expanded by one task without splitting
+
+    private final CompactLevel start; //state the search starts from
+    private final int parallelism; //number of worker threads
+    private int maxStates = 50_000_000; //the search gives up after storing this many states
+
+    /**
+     * Constructor.
+     * @param level state the search starts from, is not modified
+     * @param parallelism number of worker threads
+     */
+    public ParallelSolver(CompactLevel level, int parallelism) {
+        this.start = new CompactLevel(level);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Setter.
+     * @param maxStates the search gives up after storing this many states
+     */
+    public void setMaxStates(int maxStates) {
+        this.maxStates = maxStates;
+    }
+
+    @Override
+    public Solution solve() {
+        long startTime = System.nanoTime();
+        Search search = new Search();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Layer layer = new Layer(1, search.keyLength);
+            search.codec.encode(start, layer.keys, 0);
+            layer.ids[0] = search.table.add(layer.keys, 0, -1, -1);
+            layer.size.set(1);
+
+            long expanded = 0;
+            long peakMemory = 0;
+            while (layer.size.get() > 0 && search.winner.get() < 0 && search.table.size() < maxStates) {
+                Layer next = new Layer(layer.size.get() * DIRECTIONS.length, search.keyLength);
+                peakMemory = Math.max(peakMemory, search.table.footprint() + layer.footprint() + next.footprint());
+                pool.invoke(new Expand(search, layer, next, 0, layer.size.get()));
+                expanded += layer.size.get();
+                layer = next;
+            }
+            int winner = search.winner.get();
+            Direction[] moves = winner < 0 ? null : search.table.path(winner);
+            return new Solution(moves, expanded, search.table.size(), peakMemory, System.nanoTime() - startTime);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * State shared by all tasks of one search
+     */
+    private class Search {
+        final StateCodec codec = new StateCodec(start); //only used to read the layout and the start
+        final int keyLength = codec.getKeyLength(); //number of longs per key
+        final ConcurrentStateTable table = new ConcurrentStateTable(keyLength, 1 << 16); //visited states
+        final AtomicInteger winner = new AtomicInteger(-1); //id of a won state, -1 if none found yet
+        final ThreadLocal<Expander> expanders = ThreadLocal.withInitial(Expander::new); //per worker thread
+    }
+
+    /**
+     * Keys and ids of all states of one layer
+     */
+    private static class Layer {
+        final long[] keys; //keys back to back
+        final int[] ids; //ids in the table
+        final AtomicInteger size = new AtomicInteger(); //number of states in the layer
+
+        Layer(int capacity, int keyLength) {
+            keys = new long[capacity * keyLength];
+            ids = new int[capacity];
+        }
+
+        long footprint() {
+            return 8L * keys.length + 4L * ids.length;
+        }
+    }
+
+    /**
+     * Scratch space of one worker thread
+     */
+    private class Expander {
+        final StateCodec codec = new StateCodec(start); //codecs keep scratch space, one per thread
+        final CompactLevel parent = new CompactLevel(start); //decoded state being expanded
+        final CompactLevel child = new CompactLevel(start); //state after one move
+        final DeadlockAnalyzer deadlocks = new DeadlockAnalyzer(start); //analyzers keep scratch space as well
+        final long[] keys = new long[CHUNK_SIZE * DIRECTIONS.length * codec.getKeyLength()]; //new states
+        final int[] ids = new int[CHUNK_SIZE * DIRECTIONS.length]; //ids of the new states
+    }
+
+    /**
+     * Expands a range of a layer, splitting it while it is larger than {@link #CHUNK_SIZE}
+     */
+    private class Expand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Search search;
+        private final Layer layer;
+        private final Layer next;
+        private final int from, to; //range of the layer
+
+        Expand(Search search, Layer layer, Layer next, int from, int to) {
+            this.search = search;
+            this.layer = layer;
+            this.next = next;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Expand(search, layer, next, from, middle),
+                        new Expand(search, layer, next, middle, to));
+                return;
+            }
+            int keyLength = search.keyLength;
+            Expander expander = search.expanders.get();
+            int count = 0;
+            for (int i = from; i < to && search.winner.get() < 0; i++) {
+                expander.codec.decode(layer.keys, i * keyLength, expander.parent);
+                for (Direction direction : DIRECTIONS) {
+                    CompactLevel child = expander.child;
+                    child.copyStateFrom(expander.parent);
+                    if (!child.canPlayerMoveTo(direction))
+                        continue;
+                    child.movePlayerTo(direction);
+                    if (expander.deadlocks.isDeadAfterMove(expander.parent, child))
+                        continue;
+                    expander.codec.encode(child, expander.keys, count * keyLength);
+                    int id = search.table.add(expander.keys, count * keyLength, layer.ids[i], direction.ordinal());
+                    if (id < 0)
+                        continue;
+                    if (child.isWon()) {
+                        search.winner.compareAndSet(-1, id);
+                        continue;
+                    }
+                    expander.ids[count++] = id;
+                }
+            }
+            int offset = next.size.getAndAdd(count);
+            System.arraycopy(expander.keys, 0, next.keys, offset * keyLength, count * keyLength);
+            System.arraycopy(expander.ids, 0, next.ids, offset, count);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package discpative.solver;
+
+import discpative.controller.Direction;
+
+/**
+ * Result of a solver run.
+ *
+ * Contains the moves and some statistics about the search.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class Solution {
+    private final Direction[] moves; //moves that win the level, null if none were found
+    private final long statesExpanded; //number of states whose successors were generated
+    private final long statesStored; //number of distinct states that were stored
+    private final long peakMemory; //bytes held by the search structures at their largest
+    private final long wallTime; //duration of the search in nanoseconds
+
+    /**
+     * Constructor.
+     * @param moves moves that win the level, null if none were found
+     * @param statesExpanded number of states whose successors were generated
+     * @param statesStored number of distinct states that were stored
+     * @param peakMemory bytes held by the search structures at their largest
+     * @param wallTime duration of the search in nanoseconds
+     */
+    public Solution(Direction[] moves, long statesExpanded, long statesStored, long peakMemory, long wallTime) {
+        this.moves = moves;
+        this.statesExpanded = statesExpanded;
+        this.statesStored = statesStored;
+        this.peakMemory = peakMemory;
+        this.wallTime = wallTime;
+    }
+
+    /**
+     * Getter.
+     * @return true if the level can be won
+     */
+    public boolean isSolved() {
+        return moves != null;
+    }
+
+    /**
+     * Getter.
+     * @return moves that win the level, null if none were found
+     */
+    public Direction[] getMoves() {
+        return moves;
+    }
+
+    /**
+     * Getter.
+     * @return number of moves of the solution, -1 if none was found
+     */
+    public int getMoveCount() {
+        return moves == null ? -1 : moves.length;
+    }
+
+    /**
+     * Getter.
+     * @return number of states whose successors were generated
+     */
+    public long getStatesExpanded() {
+        return statesExpanded;
+    }
+
+    /**
+     * Getter.
+     * @return number of distinct states that were stored
+     */
+    public long getStatesStored() {
+        return statesStored;
+    }
+
+    /**
+     * Getter.
+     * @return bytes held by the search structures at their largest
+     */
+    public long getPeakMemory() {
+        return peakMemory;
+    }
+
+    /**
+     * Getter.
+     * @return duration of the search in nanoseconds
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("moves=%d expanded=%d stored=%d memory=%dKB time=%.1fms",
+                getMoveCount(), statesExpanded, statesStored, peakMemory / 1024, wallTime / 1e6);
+    }
+}
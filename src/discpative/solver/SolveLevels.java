@@ -0,0 +1,79 @@
+package discpative.solver;
+
+import discpative.io.Out;
+import discpative.model.CompactLevel;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Solves every level in resources/levels and prints the minimal number of moves.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class SolveLevels {
+
+    /**
+     * Collects the numbers of all level files
+     * @return the level numbers in ascending order
+     */
+    static int[] levelNumbers() {
+        String[] names = new File("resources/levels").list();
+        if (names == null)
+            return new int[0];
+        return Arrays.stream(names)
+                .filter(name -> name.matches("Level\\d+\\.txt"))
+                .mapToInt(name -> Integer.parseInt(name.substring(5, name.length() - 4)))
+                .sorted()
+                .toArray();
+    }
+
+    /**
+     * Creates a solver
+     * @param name bfs, parallel, astar or idastar
+     * @param level the level to solve
+     * @param maxStates maximum number of states
+     * @param threads number of threads of the parallel solver
+     * @return the solver
+     */
+    static SolverInterface createSolver(String name, CompactLevel level, int maxStates, int threads) {
+        switch (name) {
+            case "parallel": {
+                ParallelSolver solver = new ParallelSolver(level, threads);
+                solver.setMaxStates(maxStates);
+                return solver;
+            }
+            case "astar": {
+                AStarSolver solver = new AStarSolver(level);
+                solver.setMaxStates(maxStates);
+                return solver;
+            }
+            case "idastar": {
+                IdaStarSolver solver = new IdaStarSolver(level);
+                solver.setMaxExpansions(maxStates);
+                return solver;
+            }
+            default: {
+                BreadthFirstSolver solver = new BreadthFirstSolver(level);
+                solver.setMaxStates(maxStates);
+                return solver;
+            }
+        }
+    }
+
+    /**
+     * Starts the solver for all levels.
+     * @param args optional solver (bfs, parallel, astar, idastar), maximum number of states
+     *             and number of threads
+     */
+    public static void main(String[] args) {
+        String name = args.length > 0 ? args[0] : "bfs";
+        int maxStates = args.length > 1 ? Integer.parseInt(args[1]) : 50_000_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        for (int levelNumber : levelNumbers()) {
+            SolverInterface solver = createSolver(name, new CompactLevel(levelNumber), maxStates, threads);
+            Out.println("Level" + levelNumber + ": " + solver.solve());
+        }
+    }
+}
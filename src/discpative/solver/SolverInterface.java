@@ -0,0 +1,16 @@
+package discpative.solver;
+
+/**
+ * Interface for the solvers
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public interface SolverInterface {
+
+    /**
+     * Searches for the shortest sequence of moves that wins the level
+     * @return the found moves together with statistics about the search
+     */
+    Solution solve();
+}
@@ -0,0 +1,53 @@
+package discpative.solver;
+
+import discpative.io.Out;
+import discpative.model.CompactLevel;
+
+import java.util.Arrays;
+
+/**
+ * Measures how the {@link ParallelSolver} scales with the number of threads.
+ *
+ * Runs the {@link BreadthFirstSolver} as baseline and the parallel solver
+ * with 1, 2, 4, ... threads up to the number of available cores.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class SolverScaling {
+    private static final int RUNS = 3; //runs per setting, the fastest one counts
+
+    /**
+     * Starts the measurement.
+     * @param args level numbers, all levels if none are given
+     */
+    public static void main(String[] args) {
+        int[] levelNumbers = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : SolveLevels.levelNumbers();
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int levelNumber : levelNumbers) {
+            CompactLevel level = new CompactLevel(levelNumber);
+            long baseline = fastest(new BreadthFirstSolver(level));
+            Out.printf("Level%d: sequential %.1fms%n", levelNumber, baseline / 1e6);
+            for (int threads = 1;; threads = Math.min(threads * 2, cores)) {
+                long time = fastest(new ParallelSolver(level, threads));
+                Out.printf("  threads=%-3d %8.1fms  speedup %.2f%n", threads, time / 1e6, (double) baseline / time);
+                if (threads == cores)
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Runs a solver a few times
+     * @param solver the solver to run
+     * @return the shortest wall time in nanoseconds
+     */
+    private static long fastest(SolverInterface solver) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++)
+            best = Math.min(best, solver.solve().getWallTime());
+        return best;
+    }
+}
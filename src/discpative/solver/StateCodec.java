@@ -0,0 +1,171 @@
+package discpative.solver;
+
+import discpative.model.CompactLevel;
+
+/**
+ * Packs the mutable state of a {@link CompactLevel} into a few longs.
+ *
+ * The layout is fixed per level: the player, every guard in reading order
+ * (cell and direction), the crates sorted by cell (interchangeable, so sorting
+ * merges equal states), one bit per pitfall and the ice direction below every movable.
+ * The move count is not part of the key.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class StateCodec {
+    private static final int DIRECTION_BITS = 2;
+    private static final int ICY_BITS = 3;
+
+    private final int cellBits; //bits per cell index
+    private final int guardCount; //number of guards
+    private final int crateSlots; //number of crates the level started with
+    private final int[] pitfalls; //cells of all pitfalls
+    private final int keyLength; //number of longs per key
+    private final int[] crateScratch; //sorted crates of the state being encoded
+
+    /**
+     * Constructor.
+     * @param level any state of the level the codec is used for
+     */
+    public StateCodec(CompactLevel level) {
+        cellBits = 32 - Integer.numberOfLeadingZeros(level.getCellCount() - 1);
+        guardCount = level.getGuardCount();
+        crateSlots = level.getCrateSlots();
+
+        int count = 0;
+        for (int cell = 0; cell < level.getCellCount(); cell++)
+            if (level.kindOf(cell) == CompactLevel.PITFALL)
+                count++;
+        pitfalls = new int[count];
+        count = 0;
+        for (int cell = 0; cell < level.getCellCount(); cell++)
+            if (level.kindOf(cell) == CompactLevel.PITFALL)
+                pitfalls[count++] = cell;
+
+        int bits = (cellBits + ICY_BITS) * (1 + crateSlots)
+                + (cellBits + DIRECTION_BITS + ICY_BITS) * guardCount
+                + pitfalls.length;
+        keyLength = Math.max(1, (bits + 63) / 64);
+        crateScratch = new int[crateSlots];
+    }
+
+    /**
+     * Getter.
+     * @return number of longs per key
+     */
+    public int getKeyLength() {
+        return keyLength;
+    }
+
+    /**
+     * Writes the state of the level into a key.
+     * Not thread safe, every thread needs its own codec.
+     * @param level the level to encode
+     * @param key destination array
+     * @param offset index of the first long of the key
+     */
+    public void encode(CompactLevel level, long[] key, int offset) {
+        for (int i = 0; i < keyLength; i++)
+            key[offset + i] = 0;
+
+        int player = level.getPlayerCell();
+        int bit = write(key, offset, 0, cellBits, player);
+        bit = write(key, offset, bit, ICY_BITS, level.icyDirectionOf(player));
+
+        for (int guard = 0; guard < guardCount; guard++) {
+            int cell = level.getGuardCell(guard);
+            bit = write(key, offset, bit, cellBits, cell);
+            bit = write(key, offset, bit, DIRECTION_BITS, level.getGuardDirection(guard));
+            bit = write(key, offset, bit, ICY_BITS, level.icyDirectionOf(cell));
+        }
+
+        for (int crate = 0; crate < crateSlots; crate++) {
+            int cell = level.getCrateCell(crate);
+            int value = cell < 0 ? 0 : cell << ICY_BITS | level.icyDirectionOf(cell);
+            int i = crate;
+            for (; i > 0 && crateScratch[i - 1] > value; i--)
+                crateScratch[i] = crateScratch[i - 1];
+            crateScratch[i] = value;
+        }
+        for (int crate = 0; crate < crateSlots; crate++)
+            bit = write(key, offset, bit, cellBits + ICY_BITS, crateScratch[crate]);
+
+        for (int pitfall : pitfalls)
+            bit = write(key, offset, bit, 1, level.isFilled(pitfall) ? 1 : 0);
+    }
+
+    /**
+     * Restores the state stored in a key.
+     * The level has to be created from the same map as the encoded one.
+     * @param key source array
+     * @param offset index of the first long of the key
+     * @param level the level to overwrite
+     */
+    public void decode(long[] key, int offset, CompactLevel level) {
+        level.clearMovables();
+        int bit = cellBits + ICY_BITS;
+        int bitsPerGuard = cellBits + DIRECTION_BITS + ICY_BITS;
+        int bitsPerCrate = cellBits + ICY_BITS;
+
+        int crateStart = bit + bitsPerGuard * guardCount;
+        int crate = 0;
+        for (int i = 0; i < crateSlots; i++) {
+            int value = read(key, offset, crateStart + i * bitsPerCrate, bitsPerCrate);
+            if (value == 0)
+                continue;
+            int cell = value >>> ICY_BITS;
+            level.setIcyDirection(cell, value & ((1 << ICY_BITS) - 1));
+            level.placeCrate(crate++, cell);
+        }
+
+        for (int guard = 0; guard < guardCount; guard++, bit += bitsPerGuard) {
+            int cell = read(key, offset, bit, cellBits);
+            level.setIcyDirection(cell, read(key, offset, bit + cellBits + DIRECTION_BITS, ICY_BITS));
+            level.placeGuard(guard, cell, read(key, offset, bit + cellBits, DIRECTION_BITS));
+        }
+
+        int player = read(key, offset, 0, cellBits);
+        level.setIcyDirection(player, read(key, offset, cellBits, ICY_BITS));
+        level.placePlayer(player);
+
+        bit = crateStart + bitsPerCrate * crateSlots;
+        for (int pitfall : pitfalls)
+            level.setFilled(pitfall, read(key, offset, bit++, 1) != 0);
+    }
+
+    /**
+     * Writes a value into a bit field of a key
+     * @param key destination array
+     * @param offset index of the first long of the key
+     * @param bit first bit of the field
+     * @param width number of bits of the field
+     * @param value the value, has to fit into the field
+     * @return first bit after the field
+     */
+    private static int write(long[] key, int offset, int bit, int width, int value) {
+        int word = offset + (bit >>> 6);
+        int shift = bit & 63;
+        key[word] |= (long) value << shift;
+        if (shift + width > 64)
+            key[word + 1] |= (long) value >>> (64 - shift);
+        return bit + width;
+    }
+
+    /**
+     * Reads a bit field of a key
+     * @param key source array
+     * @param offset index of the first long of the key
+     * @param bit first bit of the field
+     * @param width number of bits of the field
+     * @return the value of the field
+     */
+    private static int read(long[] key, int offset, int bit, int width) {
+        int word = offset + (bit >>> 6);
+        int shift = bit & 63;
+        long value = key[word] >>> shift;
+        if (shift + width > 64)
+            value |= key[word + 1] << (64 - shift);
+        return (int) (value & ((1L << width) - 1));
+    }
+}
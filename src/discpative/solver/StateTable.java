@@ -0,0 +1,200 @@
+package discpative.solver;
+
+import discpative.controller.Direction;
+
+import java.util.Arrays;
+
+/**
+ * Set of visited states for the searches.
+ *
+ * Keys of {@link StateCodec} are stored back to back in one long array,
+ * together with the index of the parent state and the move that led there.
+ * Entries are numbered in insertion order, so the table doubles as the queue of the breadth first search.
+ * Lookup uses open addressing with linear probing.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+class StateTable {
+    private final int keyLength; //number of longs per key
+    private long[] keys; //all keys back to back
+    private int[] parents; //index of the parent state, -1 for the start
+    private byte[] moves; //ordinal of the move from the parent, -1 for the start
+    private int[] slots; //hash slots, entry index + 1, 0 if empty
+    private int size; //number of stored states
+
+    /**
+     * Constructor.
+     * @param keyLength number of longs per key
+     * @param capacity expected number of states
+     */
+    StateTable(int keyLength, int capacity) {
+        this.keyLength = keyLength;
+        capacity = Math.max(16, capacity);
+        keys = new long[capacity * keyLength];
+        parents = new int[capacity];
+        moves = new byte[capacity];
+        slots = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+    }
+
+    /**
+     * Stores a state if it is not stored yet
+     * @param key source array
+     * @param offset index of the first long of the key
+     * @param parent index of the parent state
+     * @param move ordinal of the move from the parent
+     * @return index of the new state, -1 if it was already stored
+     */
+    int add(long[] key, int offset, int parent, int move) {
+        if (size * 2 >= slots.length)
+            rehash();
+        int mask = slots.length - 1;
+        for (int slot = hash(key, offset) & mask;; slot = (slot + 1) & mask) {
+            int entry = slots[slot] - 1;
+            if (entry < 0) {
+                if (size == parents.length)
+                    grow();
+                System.arraycopy(key, offset, keys, size * keyLength, keyLength);
+                parents[size] = parent;
+                moves[size] = (byte) move;
+                slots[slot] = size + 1;
+                return size++;
+            }
+            if (equals(entry, key, offset))
+                return -1;
+        }
+    }
+
+    /**
+     * Looks up a state
+     * @param key source array
+     * @param offset index of the first long of the key
+     * @return index of the state, -1 if it is not stored
+     */
+    int find(long[] key, int offset) {
+        int mask = slots.length - 1;
+        for (int slot = hash(key, offset) & mask;; slot = (slot + 1) & mask) {
+            int entry = slots[slot] - 1;
+            if (entry < 0 || equals(entry, key, offset))
+                return entry;
+        }
+    }
+
+    /**
+     * Replaces the parent of a state, if a shorter way to it was found
+     * @param entry index of the state
+     * @param parent index of the new parent state
+     * @param move ordinal of the move from the new parent
+     */
+    void setParent(int entry, int parent, int move) {
+        parents[entry] = parent;
+        moves[entry] = (byte) move;
+    }
+
+    /**
+     * Copies a stored key
+     * @param entry index of the state
+     * @param key destination array
+     * @param offset index of the first long of the key
+     */
+    void getKey(int entry, long[] key, int offset) {
+        System.arraycopy(keys, entry * keyLength, key, offset, keyLength);
+    }
+
+    /**
+     * Follows the parents of a state back to the start
+     * @param entry index of the last state
+     * @return the moves from the start to the state
+     */
+    Direction[] path(int entry) {
+        int length = 0;
+        for (int i = entry; parents[i] >= 0; i = parents[i])
+            length++;
+        Direction[] path = new Direction[length];
+        Direction[] directions = Direction.values();
+        for (int i = entry; parents[i] >= 0; i = parents[i])
+            path[--length] = directions[moves[i]];
+        return path;
+    }
+
+    /**
+     * Getter.
+     * @param entry index of a state
+     * @return index of the parent state, -1 for the start
+     */
+    int parentOf(int entry) {
+        return parents[entry];
+    }
+
+    /**
+     * Getter.
+     * @param entry index of a state
+     * @return ordinal of the move from the parent, -1 for the start
+     */
+    int moveOf(int entry) {
+        return moves[entry];
+    }
+
+    /**
+     * Getter.
+     * @return number of stored states
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Getter.
+     * @return bytes held by the arrays of the table
+     */
+    long footprint() {
+        return 8L * keys.length + 4L * parents.length + moves.length + 4L * slots.length;
+    }
+
+    /**
+     * Mixes all longs of a key into a hash
+     * @param key source array
+     * @param offset index of the first long of the key
+     * @param keyLength number of longs per key
+     * @return the hash
+     */
+    static int hash(long[] key, int offset, int keyLength) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < keyLength; i++) {
+            h ^= key[offset + i];
+            h *= 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        return (int) (h ^ h >>> 32);
+    }
+
+    private int hash(long[] key, int offset) {
+        return hash(key, offset, keyLength);
+    }
+
+    private boolean equals(int entry, long[] key, int offset) {
+        int start = entry * keyLength;
+        for (int i = 0; i < keyLength; i++)
+            if (keys[start + i] != key[offset + i])
+                return false;
+        return true;
+    }
+
+    private void grow() {
+        int capacity = parents.length * 2;
+        keys = Arrays.copyOf(keys, capacity * keyLength);
+        parents = Arrays.copyOf(parents, capacity);
+        moves = Arrays.copyOf(moves, capacity);
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int slot = hash(keys, entry * keyLength) & mask;
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = entry + 1;
+        }
+    }
+}
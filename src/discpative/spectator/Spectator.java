@@ -0,0 +1,145 @@
+package discpative.spectator;
+
+import java.util.ArrayDeque;
+
+/**
+ * One subscriber of a {@link SpectatorFeed}.
+ *
+ * Holds the frames the subscriber did not take yet, at most the capacity given on subscribing.
+ * When a new frame finds the queue full, all waiting frames are dropped and replaced by a keyframe
+ * of the current state, so a subscriber that falls behind skips turns but never sees a broken state.
+ * The feed adds frames on the thread that runs the turns, the subscriber takes them on any other thread.
+ * Thread safe.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class Spectator {
+    private final SpectatorFeed feed; //feed the spectator is subscribed to
+    private final int capacity; //frames that may wait before the spectator falls back to a keyframe
+    private final ArrayDeque<byte[]> frames; //frames not taken yet, guarded by this
+    private boolean needsKeyframe = true; //the next frame has to be a keyframe, guarded by this
+    private boolean closed; //no more frames will arrive, guarded by this
+    private long received; //frames added to the queue, guarded by this
+    private long dropped; //frames dropped because the queue was full, guarded by this
+
+    /**
+     * Constructor.
+     * @param feed feed the spectator is subscribed to
+     * @param capacity frames that may wait before the spectator falls back to a keyframe, at least 1
+     */
+    Spectator(SpectatorFeed feed, int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be at least 1");
+        this.feed = feed;
+        this.capacity = capacity;
+        frames = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * Adds the frame of a turn
+     * @param delta changes of the turn
+     * @param keyframe the whole state after the turn, is encoded only if the spectator needs it
+     */
+    synchronized void offer(byte[] delta, SpectatorFeed.Keyframe keyframe) {
+        if (closed)
+            return;
+        if (!needsKeyframe && frames.size() == capacity) {
+            dropped += frames.size();
+            frames.clear();
+            needsKeyframe = true;
+        }
+        frames.addLast(needsKeyframe ? keyframe.get() : delta);
+        needsKeyframe = false;
+        received++;
+        notifyAll();
+    }
+
+    /**
+     * Adds a keyframe, e.g. the first one after subscribing
+     * @param keyframe the whole state of the level
+     */
+    synchronized void offerKeyframe(byte[] keyframe) {
+        if (closed)
+            return;
+        dropped += frames.size();
+        frames.clear();
+        frames.addLast(keyframe);
+        needsKeyframe = false;
+        received++;
+        notifyAll();
+    }
+
+    /**
+     * Takes the oldest waiting frame
+     * @return the frame, null if there is none
+     */
+    public synchronized byte[] poll() {
+        return frames.pollFirst();
+    }
+
+    /**
+     * Takes the oldest waiting frame, waits until there is one
+     * @param timeout longest time to wait in milliseconds
+     * @return the frame, null if none arrived in time or the spectator is closed
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public synchronized byte[] take(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (frames.isEmpty() && !closed) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0)
+                return null;
+            wait(left);
+        }
+        return frames.pollFirst();
+    }
+
+    /**
+     * Getter.
+     * @return number of frames waiting
+     */
+    public synchronized int getPending() {
+        return frames.size();
+    }
+
+    /**
+     * Getter.
+     * @return number of frames the spectator got, including the dropped ones
+     */
+    public synchronized long getReceived() {
+        return received;
+    }
+
+    /**
+     * Getter.
+     * @return number of frames dropped because the spectator fell behind
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Getter.
+     * @return true if no more frames will arrive
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops watching, waiting frames can still be taken
+     */
+    public void close() {
+        feed.unsubscribe(this);
+        closeQuietly();
+    }
+
+    /**
+     * Marks the spectator as closed and wakes up a waiting subscriber
+     */
+    synchronized void closeQuietly() {
+        closed = true;
+        notifyAll();
+    }
+}
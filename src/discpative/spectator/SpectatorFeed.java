@@ -0,0 +1,193 @@
+package discpative.spectator;
+
+import discpative.model.CellCodec;
+import discpative.model.ChangeSet;
+import discpative.model.LevelInterface;
+import discpative.model.LevelListenerInterface;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Streams the turns of one level to any number of {@link Spectator spectators}.
+ *
+ * Listens to the events of the level and encodes every turn as one frame: a delta with the cells that
+ * changed during the turn, or a keyframe with all cells. Every frame starts with its type, the number of
+ * the turn, the move count and the lost and won flags. A delta follows with the number of cells and the
+ * index and {@link CellCodec packed state} of each cell, two shorts per cell. A keyframe follows with the
+ * number of rows and columns and the state of every cell in reading order. All numbers are big endian.
+ * Frames are shared by all spectators and never change. Delivery never blocks the thread that runs the
+ * turns, see {@link Spectator} for what happens to a spectator that falls behind. Use a
+ * {@link SpectatorMirror} to rebuild the level from the frames.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class SpectatorFeed implements LevelListenerInterface, Closeable {
+    public static final byte KEYFRAME = 1; //frame with all cells
+    public static final byte DELTA = 2; //frame with the changed cells of one turn
+    static final int HEADER_SIZE = 10; //type, turn, move count and status
+    private static final Spectator[] NONE = {};
+
+    private final LevelInterface level; //the watched level
+    private final int rowCount; //total number of rows in the level
+    private final int colCount; //total number of columns in the level
+    private volatile Spectator[] spectators = NONE; //all subscribers, never changed once published
+    private int turn; //number of turns seen since the feed started
+    private long deltaBytes; //bytes of all encoded deltas
+    private long keyframes; //number of encoded keyframes
+
+    /**
+     * Constructor.
+     * Subscribes to the events of the level, create the feed on the thread that runs the turns.
+     * @param level the watched level, at most 65536 cells
+     */
+    public SpectatorFeed(LevelInterface level) {
+        this.level = level;
+        rowCount = level.getRowCount();
+        colCount = level.getColCount();
+        if (rowCount * colCount > 1 << 16)
+            throw new IllegalArgumentException("level too large to stream");
+        level.getEvents().subscribe(this);
+    }
+
+    /**
+     * Adds a spectator, it gets a keyframe of the current state first.
+     * Call on the thread that runs the turns, the keyframe reads the level.
+     * @param capacity frames that may wait before the spectator falls back to a keyframe
+     * @return the new spectator
+     */
+    public Spectator subscribe(int capacity) {
+        Spectator spectator = new Spectator(this, capacity);
+        synchronized (this) {
+            Spectator[] updated = Arrays.copyOf(spectators, spectators.length + 1);
+            updated[updated.length - 1] = spectator;
+            spectators = updated;
+        }
+        spectator.offerKeyframe(encodeKeyframe());
+        return spectator;
+    }
+
+    /**
+     * Removes a spectator, see {@link Spectator#close()}
+     * @param spectator the spectator to be removed
+     */
+    synchronized void unsubscribe(Spectator spectator) {
+        Spectator[] old = spectators;
+        for (int i = 0; i < old.length; i++) {
+            if (old[i] == spectator) {
+                Spectator[] updated = Arrays.copyOf(old, old.length - 1);
+                System.arraycopy(old, i + 1, updated, i, old.length - i - 1);
+                spectators = updated;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void turnEnded(ChangeSet changes) {
+        turn++;
+        Spectator[] current = spectators;
+        if (current.length == 0)
+            return;
+        byte[] delta = encodeDelta(changes);
+        Keyframe keyframe = new Keyframe();
+        for (Spectator spectator : current)
+            spectator.offer(delta, keyframe);
+    }
+
+    /**
+     * Encodes the changed cells of a turn
+     * @param changes the changes of the turn
+     * @return the delta frame
+     */
+    private byte[] encodeDelta(ChangeSet changes) {
+        ByteBuffer frame = header(DELTA, 2 + changes.size() * 4);
+        frame.putShort((short) changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            int row = changes.getRow(i);
+            int col = changes.getCol(i);
+            frame.putShort((short) (row * colCount + col));
+            frame.putShort((short) CellCodec.encode(level, row, col));
+        }
+        deltaBytes += frame.capacity();
+        return frame.array();
+    }
+
+    /**
+     * Encodes all cells of the level
+     * @return the keyframe
+     */
+    private byte[] encodeKeyframe() {
+        ByteBuffer frame = header(KEYFRAME, 4 + rowCount * colCount * 2);
+        frame.putShort((short) rowCount);
+        frame.putShort((short) colCount);
+        for (int row = 0; row < rowCount; row++)
+            for (int col = 0; col < colCount; col++)
+                frame.putShort((short) CellCodec.encode(level, row, col));
+        keyframes++;
+        return frame.array();
+    }
+
+    private ByteBuffer header(byte type, int bodySize) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + bodySize);
+        frame.put(type);
+        frame.putInt(turn);
+        frame.putInt(level.getMoveCount());
+        frame.put((byte) ((level.isLost() ? 2 : 0) | (level.isWon() ? 1 : 0)));
+        return frame;
+    }
+
+    /**
+     * Getter.
+     * @return number of subscribed spectators
+     */
+    public int size() {
+        return spectators.length;
+    }
+
+    /**
+     * Getter.
+     * @return bytes of all encoded deltas, read on the thread that runs the turns
+     */
+    public long getDeltaBytes() {
+        return deltaBytes;
+    }
+
+    /**
+     * Getter.
+     * @return number of encoded keyframes, read on the thread that runs the turns
+     */
+    public long getKeyframes() {
+        return keyframes;
+    }
+
+    /**
+     * Stops the feed and closes all spectators, frames already waiting can still be taken
+     */
+    @Override
+    public void close() {
+        level.getEvents().unsubscribe(this);
+        Spectator[] old;
+        synchronized (this) {
+            old = spectators;
+            spectators = NONE;
+        }
+        for (Spectator spectator : old)
+            spectator.closeQuietly();
+    }
+
+    /**
+     * Keyframe of the current turn, encoded once for all spectators that fell behind and only if one did
+     */
+    final class Keyframe {
+        private byte[] frame; //the encoded keyframe, null until a spectator needs it
+
+        byte[] get() {
+            if (frame == null)
+                frame = encodeKeyframe();
+            return frame;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package discpative.spectator;
+
+import discpative.model.CellCodec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Copy of a watched level rebuilt from the frames of a {@link SpectatorFeed}.
+ *
+ * Starts empty and takes its size from the first keyframe. A delta is applied only if it follows
+ * the last applied turn directly, otherwise the mirror waits for the next keyframe.
+ * Not thread safe, meant for the thread that takes the frames of one {@link Spectator}.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class SpectatorMirror {
+    private int rowCount; //total number of rows, 0 before the first keyframe
+    private int colCount; //total number of columns, 0 before the first keyframe
+    private int[] cells = new int[0]; //packed state of every cell in reading order
+    private int turn = -1; //turn of the last applied frame, -1 before the first keyframe
+    private int moveCount; //move count after the last applied frame
+    private boolean lost; //is the level lost
+    private boolean won; //is the level won
+    private long skipped; //deltas that did not follow the last applied turn
+
+    /**
+     * Applies a frame
+     * @param frame a keyframe or delta of the feed
+     * @return true if the frame was applied, false if a delta does not follow the last applied turn
+     * @throws IllegalArgumentException if the frame is broken
+     */
+    public boolean apply(byte[] frame) {
+        ByteBuffer in = ByteBuffer.wrap(frame);
+        byte type = in.get();
+        int frameTurn = in.getInt();
+        int frameMoves = in.getInt();
+        byte flags = in.get();
+        if (type == SpectatorFeed.KEYFRAME) {
+            int rows = in.getShort() & 0xFFFF;
+            int cols = in.getShort() & 0xFFFF;
+            if (frame.length != SpectatorFeed.HEADER_SIZE + 4 + rows * cols * 2)
+                throw new IllegalArgumentException("broken keyframe");
+            if (rows * cols != cells.length)
+                cells = new int[rows * cols];
+            rowCount = rows;
+            colCount = cols;
+            for (int cell = 0; cell < cells.length; cell++)
+                cells[cell] = in.getShort() & 0xFFFF;
+        } else if (type == SpectatorFeed.DELTA) {
+            int count = in.getShort() & 0xFFFF;
+            if (frame.length != SpectatorFeed.HEADER_SIZE + 2 + count * 4)
+                throw new IllegalArgumentException("broken delta");
+            if (turn < 0 || frameTurn != turn + 1) {
+                skipped++;
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                int cell = in.getShort() & 0xFFFF;
+                int state = in.getShort() & 0xFFFF;
+                if (cell >= cells.length)
+                    throw new IllegalArgumentException("broken delta");
+                cells[cell] = state;
+            }
+        } else
+            throw new IllegalArgumentException("unknown frame type " + type);
+        turn = frameTurn;
+        moveCount = frameMoves;
+        lost = (flags & 2) != 0;
+        won = (flags & 1) != 0;
+        return true;
+    }
+
+    /**
+     * Getter.
+     * @param row row of the cell
+     * @param col column of the cell
+     * @return the packed state of the cell, see {@link CellCodec}
+     */
+    public int getState(int row, int col) {
+        return cells[row * colCount + col];
+    }
+
+    /**
+     * Converts the mirror into the text format of the levels
+     * @return one line per row
+     */
+    public char[][] toChars() {
+        char[][] level = new char[rowCount][colCount];
+        for (int row = 0; row < rowCount; row++)
+            for (int col = 0; col < colCount; col++)
+                level[row][col] = CellCodec.toChar(getState(row, col));
+        return level;
+    }
+
+    /**
+     * Getter.
+     * @return total number of rows, 0 before the first keyframe
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Getter.
+     * @return total number of columns, 0 before the first keyframe
+     */
+    public int getColCount() {
+        return colCount;
+    }
+
+    /**
+     * Getter.
+     * @return turn of the last applied frame, -1 before the first keyframe
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Getter.
+     * @return move count after the last applied frame
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Getter.
+     * @return true if the level is lost
+     */
+    public boolean isLost() {
+        return lost;
+    }
+
+    /**
+     * Getter.
+     * @return true if the level is won
+     */
+    public boolean isWon() {
+        return won;
+    }
+
+    /**
+     * Getter.
+     * @return number of deltas that did not follow the last applied turn
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+}
@@ -0,0 +1,114 @@
+package discpative.spectator;
+
+import discpative.controller.Direction;
+import discpative.io.Out;
+import discpative.io.TextWriter;
+import discpative.model.CellCodec;
+import discpative.model.Level;
+import discpative.model.LevelCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Plays random games and checks that a {@link SpectatorMirror} always matches the level it watches.
+ *
+ * Every game runs on a {@link Level} with a {@link SpectatorFeed}, the mirror applies the frames after each
+ * input and is compared cell by cell with the level. Moves, undo and redo are picked at random.
+ * Prints the first diverging input of every game that diverged and a summary. Games that crash in the
+ * model itself are counted apart and do not say anything about the feed.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class VerifyFeed {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Plays one random game
+     * @param level the level, fresh from the template
+     * @param random picks the inputs
+     * @param inputs number of inputs of the game
+     * @return the first input after which the mirror diverged, -1 if it never did
+     */
+    static int play(Level level, Random random, int inputs) {
+        try (SpectatorFeed feed = new SpectatorFeed(level)) {
+            Spectator spectator = feed.subscribe(inputs + 1);
+            SpectatorMirror mirror = new SpectatorMirror();
+            for (int input = 0; input < inputs; input++) {
+                int pick = random.nextInt(6);
+                if (pick < DIRECTIONS.length) {
+                    if (level.canPlayerMoveTo(DIRECTIONS[pick]))
+                        level.movePlayerTo(DIRECTIONS[pick]);
+                } else if (pick == 4)
+                    level.undo();
+                else
+                    level.redo();
+                byte[] frame;
+                while ((frame = spectator.poll()) != null)
+                    mirror.apply(frame);
+                if (!matches(mirror, level))
+                    return input;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Compares the mirror with the level
+     * @param mirror the rebuilt level
+     * @param level the watched level
+     * @return true if every cell, the move count and the status are the same
+     */
+    static boolean matches(SpectatorMirror mirror, Level level) {
+        if (mirror.getMoveCount() != level.getMoveCount() || mirror.isWon() != level.isWon()
+                || mirror.isLost() != level.isLost())
+            return false;
+        for (int row = 0; row < level.getRowCount(); row++)
+            for (int col = 0; col < level.getColCount(); col++)
+                if (mirror.getState(row, col) != CellCodec.encode(level, row, col))
+                    return false;
+        return true;
+    }
+
+    /**
+     * Starts the check for all levels in resources/levels.
+     * @param args optional number of games per level, inputs per game and seed
+     * @throws IOException if a level cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int inputs = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Random random = new Random(args.length > 2 ? Long.parseLong(args[2]) : 1);
+        String[] names = new File("resources/levels").list((dir, name) -> name.matches("Level\\d+\\.txt"));
+        int[] levelNumbers = Arrays.stream(names == null ? new String[0] : names)
+                .mapToInt(name -> Integer.parseInt(name.substring(5, name.length() - 4)))
+                .sorted()
+                .toArray();
+        LevelCache cache = new LevelCache(levelNumbers.length);
+        int played = 0;
+        int diverged = 0;
+        int crashed = 0;
+        for (int levelNumber : levelNumbers) {
+            for (int game = 0; game < games; game++) {
+                Level level = new Level(cache.get(levelNumber));
+                level.setOutput(TextWriter.discard());
+                int input;
+                try {
+                    input = play(level, random, inputs);
+                } catch (RuntimeException | StackOverflowError e) { //a bug of the game, not of the feed
+                    crashed++;
+                    continue;
+                }
+                played++;
+                if (input >= 0) {
+                    diverged++;
+                    Out.println("Level" + levelNumber + " game " + game + ": diverged after input " + input);
+                }
+            }
+        }
+        Out.println(played + " games, " + diverged + " diverged, " + crashed + " crashed in the game");
+    }
+}
@@ -0,0 +1,301 @@
+package discpative.view;
+
+import discpative.controller.Direction;
+import discpative.controller.LevelController;
+import discpative.model.ChangeSet;
+import discpative.model.LevelInterface;
+import discpative.model.Movable;
+import discpative.model.Tile;
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+
+/**
+ * Visuals of the game drawn into a single {@link Canvas}.
+ *
+ * Looks and behaves like {@link View}, but needs no scene graph node per cell.
+ * Updates only mark cells as dirty, all dirty cells are repainted together once per pulse.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+public class CanvasView extends Region implements ViewInterface {
+    private static final int TILE_SIZE = 48; //width and height of a cell in pixels
+
+    private final LevelInterface levelInterface; //interface for the model
+    private final LevelController levelController; //interface for the controller
+    private final int rowCount, colCount; //number of rows and columns in the level
+    private final Canvas canvas; //drawing surface of the level
+    private final Text statusLine; //status line under the view of the level
+    private final boolean[][] dirty; //cells waiting for a repaint
+    private final int[] dirtyCells; //row * colCount + col of every dirty cell
+    private int dirtyCount; //number of dirty cells
+    private boolean repaintScheduled; //a repaint is already waiting for the next pulse
+    private Color playerFill = Color.CORNFLOWERBLUE; //changes when the level is complete
+    private long lastPaintTime; //nanoseconds the last repaint took
+
+    /**
+     * Constructor.
+     * @param levelInterface interface for the model
+     * @param levelController interface for the controller
+     */
+    public CanvasView(LevelInterface levelInterface, LevelController levelController) {
+        this.levelInterface = levelInterface;
+        this.levelController = levelController;
+        rowCount = levelInterface.getRowCount();
+        colCount = levelInterface.getColCount();
+        dirty = new boolean[rowCount][colCount];
+        dirtyCells = new int[rowCount * colCount];
+
+        canvas = new Canvas(colCount * TILE_SIZE, rowCount * TILE_SIZE);
+        statusLine = new Text("Los geht's...");
+        getChildren().addAll(canvas, statusLine);
+        for (int row = 0; row < rowCount; row++)
+            for (int col = 0; col < colCount; col++)
+                paintCell(canvas.getGraphicsContext2D(), row, col);
+
+        setOnKeyPressed(event -> {
+            Direction dir = View.key2dir(event.getCode());
+            if (dir != null) {
+                levelController.handleMove(this, dir);
+                event.consume();
+            } else if (event.getCode() == KeyCode.Z) {
+                levelController.handleUndo(this);
+                event.consume();
+            } else if (event.getCode() == KeyCode.Y) {
+                levelController.handleRedo(this);
+                event.consume();
+            }
+        });
+        setOnMouseClicked(event -> {
+            int row = ((int) event.getY()) / TILE_SIZE;
+            int col = ((int) event.getX()) / TILE_SIZE;
+            if (0 <= row && row < rowCount && 0 <= col && col < colCount)
+                levelController.handleClick(this, row, col);
+        });
+        levelInterface.registerView(this);
+    }
+
+    @Override
+    public void updateGuardPresence(int row, int col) {
+        if (View.deferToFxThread(() -> updateGuardPresence(row, col)))
+            return;
+        markDirty(row, col);
+    }
+
+    @Override
+    public void updatePlayerPresence(int row, int col) {
+        if (View.deferToFxThread(() -> updatePlayerPresence(row, col)))
+            return;
+        markDirty(row, col);
+    }
+
+    @Override
+    public void updateCratePresence(int row, int col) {
+        if (View.deferToFxThread(() -> updateCratePresence(row, col)))
+            return;
+        markDirty(row, col);
+    }
+
+    @Override
+    public void updateStatusLine() {
+        if (View.deferToFxThread(this::updateStatusLine))
+            return;
+        statusLine.setText("Anzahl Züge: " + levelInterface.getMoveCount());
+    }
+
+    @Override
+    public void updateTile(int row, int col) {
+        if (View.deferToFxThread(() -> updateTile(row, col)))
+            return;
+        markDirty(row, col);
+    }
+
+    @Override
+    public void applyChanges(ChangeSet changes) {
+        if (View.deferToFxThread(() -> applyChanges(changes)))
+            return;
+        for (int i = 0; i < changes.size(); i++)
+            markDirty(changes.getRow(i), changes.getCol(i));
+        repaint(); //the whole turn is one batch already, paint while the model is not changing
+        updateStatusLine();
+    }
+
+    @Override
+    public void announceLevelComplete() {
+        if (View.deferToFxThread(this::announceLevelComplete))
+            return;
+        statusLine.setText("Level gelöst in " + levelInterface.getMoveCount() + " Zügen!");
+        statusLine.setFill(Color.GREEN);
+        statusLine.setFont(Font.font("System", FontWeight.BOLD, 16));
+        playerFill = Color.MEDIUMSPRINGGREEN;
+        for (int row = 0; row < rowCount; row++)
+            for (int col = 0; col < colCount; col++)
+                if (levelInterface.isPlayerAt(row, col))
+                    markDirty(row, col);
+
+        levelController.handleComplete(this);
+    }
+
+    /**
+     * Getter.
+     * @return nanoseconds the last repaint of the dirty cells took
+     */
+    public long getLastPaintTime() {
+        return lastPaintTime;
+    }
+
+    /**
+     * Remembers a cell for the next repaint
+     * @param row row coordinate
+     * @param col column coordinate
+     */
+    private void markDirty(int row, int col) {
+        if (dirty[row][col])
+            return;
+        dirty[row][col] = true;
+        dirtyCells[dirtyCount++] = row * colCount + col;
+        if (!repaintScheduled) {
+            repaintScheduled = true;
+            Platform.runLater(this::repaint);
+        }
+    }
+
+    /**
+     * Repaints all dirty cells
+     */
+    private void repaint() {
+        long start = System.nanoTime();
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        for (int i = 0; i < dirtyCount; i++) {
+            int row = dirtyCells[i] / colCount;
+            int col = dirtyCells[i] % colCount;
+            dirty[row][col] = false;
+            paintCell(g, row, col);
+        }
+        dirtyCount = 0;
+        repaintScheduled = false;
+        lastPaintTime = System.nanoTime() - start;
+    }
+
+    /**
+     * Paints the tile and the movable of a cell, same shapes as {@link View}
+     * @param g graphics context of the canvas
+     * @param row row coordinate
+     * @param col column coordinate
+     */
+    private void paintCell(GraphicsContext g, int row, int col) {
+        double x = col * TILE_SIZE;
+        double y = row * TILE_SIZE;
+        Tile tile = levelInterface.getTileAt(row, col);
+        paintTile(g, tile, x, y);
+
+        Movable movable = tile.contains();
+        if (levelInterface.isPlayerAt(row, col))
+            paintFigure(g, x, y, playerFill);
+        else if (movable != null && movable.isGuard())
+            paintFigure(g, x, y, Color.RED);
+        else if (movable != null && movable.isCrate()) {
+            g.setFill(Color.BROWN);
+            g.fillRect(x + 6, y + 6, 36, 36);
+        }
+    }
+
+    private void paintTile(GraphicsContext g, Tile tile, double x, double y) {
+        if (tile.isPitfall()) {
+            fillCell(g, x, y, Color.WHITE);
+            g.setFill(tile.isFilled() ? Color.BROWN : Color.BLACK);
+            g.fillRect(x + 4, y + 4, 40, 40);
+            if (tile.isFilled()) {
+                g.setStroke(Color.BLACK);
+                g.setLineWidth(1);
+                g.strokeRect(x + 4.5, y + 4.5, 39, 39);
+            }
+        } else if (tile.isObjective())
+            fillCell(g, x, y, Color.GREEN);
+        else if (tile.isRotationPassage())
+            fillCell(g, x, y, Color.LIGHTPINK);
+        else if (tile.isWall())
+            fillCell(g, x, y, Color.DIMGRAY);
+        else if (tile.isIcyTile())
+            fillCell(g, x, y, Color.LIGHTCYAN);
+        else if (tile.isCurvedIcyTile())
+            paintCurvedIcyTile(g, tile.getDirection(), x, y);
+        else
+            fillCell(g, x, y, Color.WHITE);
+    }
+
+    /**
+     * Curved icy tile with walls on the two closed sides
+     * @param g graphics context of the canvas
+     * @param direction main direction of the curved icy tile
+     * @param x left border of the cell
+     * @param y upper border of the cell
+     */
+    private void paintCurvedIcyTile(GraphicsContext g, Direction direction, double x, double y) {
+        fillCell(g, x, y, Color.LIGHTCYAN);
+        g.setFill(Color.BLACK);
+        double left = x, right = x + TILE_SIZE - 6, top = y, bottom = y + TILE_SIZE - 6;
+        switch (direction) {
+            case RIGHT:
+                g.fillRect(x, top, TILE_SIZE, 6);
+                g.fillRect(left, y, 6, TILE_SIZE);
+                break;
+            case DOWN:
+                g.fillRect(right, y, 6, TILE_SIZE);
+                g.fillRect(x, top, TILE_SIZE, 6);
+                break;
+            case LEFT:
+                g.fillRect(x, bottom, TILE_SIZE, 6);
+                g.fillRect(right, y, 6, TILE_SIZE);
+                break;
+            default:
+                g.fillRect(left, y, 6, TILE_SIZE);
+                g.fillRect(x, bottom, TILE_SIZE, 6);
+                break;
+        }
+    }
+
+    private void fillCell(GraphicsContext g, double x, double y, Color fill) {
+        g.setFill(fill);
+        g.fillRect(x, y, TILE_SIZE, TILE_SIZE);
+    }
+
+    /**
+     * Circle of the player and the guards
+     * @param g graphics context of the canvas
+     * @param x left border of the cell
+     * @param y upper border of the cell
+     * @param fill color of the figure
+     */
+    private void paintFigure(GraphicsContext g, double x, double y, Color fill) {
+        g.setFill(fill);
+        g.fillOval(x + 6, y + 6, 36, 36);
+        g.setStroke(Color.DARKBLUE);
+        g.setLineWidth(1);
+        g.strokeOval(x + 6.5, y + 6.5, 35, 35);
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return colCount * TILE_SIZE;
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return rowCount * TILE_SIZE + 32;
+    }
+
+    @Override
+    protected void layoutChildren() {
+        super.layoutChildren();
+        canvas.relocate(0, 0);
+        statusLine.relocate(4, rowCount * TILE_SIZE);
+    }
+}
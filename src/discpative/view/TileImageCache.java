@@ -0,0 +1,89 @@
+package discpative.view;
+
+import discpative.model.Tile;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+
+/**
+ * Pre-rendered graphics of tiles and movables.
+ *
+ * Every distinct graphic is rendered once into an {@link Image} of one cell, centered like the shapes
+ * of {@link View}. Images never change, so all views and cells share them and updates only swap references.
+ * Only used on the JavaFX application thread.
+ *
+ * @author jpaus
+ * @version 1.0
+ */
+class TileImageCache {
+    static final int PASSAGE = 0;
+    static final int WALL = 1;
+    static final int OBJECTIVE = 2;
+    static final int PITFALL = 3;
+    static final int PITFALL_FILLED = 4;
+    static final int ROTATION = 5;
+    static final int ICY = 6;
+    static final int CURVED_ICY = 7; //+ ordinal of the main direction
+    static final int PLAYER = 11;
+    static final int PLAYER_DONE = 12;
+    static final int GUARD = 13;
+    static final int CRATE = 14;
+    private static final int KEY_COUNT = 15;
+
+    private final Image[] images = new Image[KEY_COUNT]; //rendered graphics by key, null until first use
+    private final SnapshotParameters parameters; //renders exactly one cell around the origin
+
+    /**
+     * Constructor.
+     * @param tileSize width and height of a cell in pixels
+     */
+    TileImageCache(int tileSize) {
+        parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        parameters.setViewport(new Rectangle2D(-tileSize / 2.0, -tileSize / 2.0, tileSize, tileSize));
+    }
+
+    /**
+     * Converts a tile into its key
+     * @param tile a tile
+     * @return key of the graphic of the tile
+     */
+    static int keyOf(Tile tile) {
+        if (tile.isPitfall())
+            return tile.isFilled() ? PITFALL_FILLED : PITFALL;
+        else if (tile.isObjective())
+            return OBJECTIVE;
+        else if (tile.isRotationPassage())
+            return ROTATION;
+        else if (tile.isWall())
+            return WALL;
+        else if (tile.isIcyTile())
+            return ICY;
+        else if (tile.isCurvedIcyTile())
+            return CURVED_ICY + tile.getDirection().ordinal();
+        else
+            return PASSAGE;
+    }
+
+    /**
+     * Getter.
+     * @param key key of the graphic
+     * @return the rendered graphic, null if it was not rendered yet
+     */
+    Image get(int key) {
+        return images[key];
+    }
+
+    /**
+     * Renders a graphic and keeps it
+     * @param key key of the graphic
+     * @param graphic the shapes, centered at the origin
+     * @return the rendered graphic
+     */
+    Image put(int key, Node graphic) {
+        images[key] = graphic.snapshot(parameters, null);
+        return images[key];
+    }
+}
@@ -2,12 +2,17 @@ package discpative.view;
 
 import discpative.controller.Direction;
 import discpative.controller.LevelController;
+import discpative.model.ChangeSet;
 import discpative.model.LevelInterface;
+import discpative.model.Movable;
 import discpative.model.Tile;
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.event.EventHandler;
 import javafx.scene.Group;
 import javafx.scene.Node;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
@@ -34,11 +39,11 @@ public class View extends Region implements ViewInterface {
     private LevelController levelController; //interface for the controller
 
     protected int rowCount, colCount; //number of rows and columns in the level
-    private Group[][] tileGraphic; //2d array of all tile graphics
+    private ImageView[][] tileGraphic; //2d array of all tile graphics
+    private ImageView[][] figureGraphic; //2d array of all movable graphics, above the tiles
     private Text statusLine; //status line under the view of the level
-    protected Shape playerGraphic; //graphic for the player
-    private static final int TILE_SHAPE_INDEX = 0; //index of tiles under movables
-    private static final int FIGURE_SHAPE_INDEX = 1; //index of movables, above tiles
+    private int playerKey = TileImageCache.PLAYER; //graphic of the player, changes when the level is complete
+    private static final TileImageCache IMAGES = new TileImageCache(48); //graphics shared by all views
 
     /**
      * Constructor.
@@ -53,23 +58,14 @@ public class View extends Region implements ViewInterface {
         this.levelInterface = levelInterface;
         rowCount = levelInterface.getRowCount();
         colCount = levelInterface.getColCount();
-        playerGraphic = makePlayerGraphic();
-        tileGraphic = new Group[rowCount][colCount];
+        tileGraphic = new ImageView[rowCount][colCount];
+        figureGraphic = new ImageView[rowCount][colCount];
         ObservableList<Node> myChildren = getChildren();
         for (int row = 0; row < rowCount; row++)
             for (int col = 0; col < colCount; col++) {
-                Tile t = levelInterface.getTileAt(row, col);
-                Group g = new Group(makeTileGraphic(t));
-                if (levelInterface.isPlayerAt(row, col))
-                    g.getChildren().add(playerGraphic);
-                if (levelInterface.getTileAt(row, col).contains() != null
-                        && levelInterface.getTileAt(row, col).contains().isGuard())
-                    g.getChildren().add(makeGuardGraphic());
-                if (levelInterface.getTileAt(row, col).contains() != null
-                        && levelInterface.getTileAt(row, col).contains().isCrate())
-                    g.getChildren().add(makeCrateGraphic());
-                tileGraphic[row][col] = g;
-                myChildren.add(g);
+                tileGraphic[row][col] = new ImageView(tileImage(levelInterface.getTileAt(row, col)));
+                figureGraphic[row][col] = new ImageView(figureImage(row, col));
+                myChildren.addAll(tileGraphic[row][col], figureGraphic[row][col]);
             }
         statusLine = new Text("Los geht's...");
         myChildren.add(statusLine);
@@ -85,15 +81,9 @@ public class View extends Region implements ViewInterface {
      * @param col column coordinate
      */
     public void updateGuardPresence(int row, int col) {
-        ObservableList<Node> layers = tileGraphic[row][col].getChildren();
-        if (levelInterface.getTileAt(row, col).contains() != null
-                && levelInterface.getTileAt(row, col).contains().isGuard()) {
-            if (layers.size() > 1)
-                layers.remove(FIGURE_SHAPE_INDEX);
-            layers.add(FIGURE_SHAPE_INDEX, makeGuardGraphic());
-        }
-        else
-            layers.remove(FIGURE_SHAPE_INDEX);
+        if (deferToFxThread(() -> updateGuardPresence(row, col)))
+            return;
+        figureGraphic[row][col].setImage(figureImage(row, col));
     }
 
     /**
@@ -102,11 +92,9 @@ public class View extends Region implements ViewInterface {
      * @param col column coordinate
      */
     public void updatePlayerPresence (int row, int col) {
-        ObservableList<Node> layers = tileGraphic[row][col].getChildren();
-        if (levelInterface.isPlayerAt(row, col))
-            layers.add(FIGURE_SHAPE_INDEX, playerGraphic);
-        else
-            layers.remove(FIGURE_SHAPE_INDEX);
+        if (deferToFxThread(() -> updatePlayerPresence(row, col)))
+            return;
+        figureGraphic[row][col].setImage(figureImage(row, col));
     }
     /**
      * Add/Remove crate graphic at coordinates
@@ -114,18 +102,17 @@ public class View extends Region implements ViewInterface {
      * @param col column coordinate
      */
     public void updateCratePresence(int row, int col) {
-        ObservableList<Node> layers = tileGraphic[row][col].getChildren();
-        if (levelInterface.getTileAt(row, col).contains() != null && levelInterface.getTileAt(row, col).contains().isCrate()) {
-            layers.add(FIGURE_SHAPE_INDEX, makeCrateGraphic());
-        }
-        else if (layers.size() > 1)
-            layers.remove(FIGURE_SHAPE_INDEX);
+        if (deferToFxThread(() -> updateCratePresence(row, col)))
+            return;
+        figureGraphic[row][col].setImage(figureImage(row, col));
     }
 
     /**
      * Show count of moves
      */
     public void updateStatusLine () {
+        if (deferToFxThread(this::updateStatusLine))
+            return;
         statusLine.setText("Anzahl Züge: " + levelInterface.getMoveCount ());
     }
 
@@ -135,19 +122,43 @@ public class View extends Region implements ViewInterface {
      * @param col column coordinate
      */
     public void updateTile(int row, int col) {
-        ObservableList<Node> layers = tileGraphic[row][col].getChildren();
-        Tile t = levelInterface.getTileAt(row, col);
-        layers.set(TILE_SHAPE_INDEX, makeTileGraphic(t));
+        if (deferToFxThread(() -> updateTile(row, col)))
+            return;
+        tileGraphic[row][col].setImage(tileImage(levelInterface.getTileAt(row, col)));
+    }
+
+    /**
+     * Redraws every changed cell once
+     * @param changes the changed cells of the turn
+     */
+    public void applyChanges(ChangeSet changes) {
+        if (deferToFxThread(() -> applyChanges(changes)))
+            return;
+        for (int i = 0; i < changes.size(); i++) {
+            int row = changes.getRow(i);
+            int col = changes.getCol(i);
+            if (changes.isTileChanged(i))
+                tileGraphic[row][col].setImage(tileImage(levelInterface.getTileAt(row, col)));
+            if (changes.isMovableChanged(i))
+                figureGraphic[row][col].setImage(figureImage(row, col));
+        }
+        updateStatusLine();
     }
 
     /**
      * complete the level
      */
     public void announceLevelComplete() {
+        if (deferToFxThread(this::announceLevelComplete))
+            return;
         statusLine.setText("Level gelöst in " + levelInterface.getMoveCount() + " Zügen!");
         statusLine.setFill(Color.GREEN);
         statusLine.setFont(Font.font("System", FontWeight.BOLD, 16));
-        playerGraphic.setFill(Color.MEDIUMSPRINGGREEN);
+        playerKey = TileImageCache.PLAYER_DONE;
+        for (int row = 0; row < rowCount; row++)
+            for (int col = 0; col < colCount; col++)
+                if (levelInterface.isPlayerAt(row, col))
+                    updatePlayerPresence(row, col);
 
         levelController.handleComplete(this);
     }
@@ -158,37 +169,102 @@ public class View extends Region implements ViewInterface {
      */
     private class KeyPressHandler implements EventHandler<KeyEvent> {
         public void handle(KeyEvent event) {
-            KeyCode key  = event.getCode();
-            Direction dir = null;
-            switch (key) {
-                case UP:
-                case KP_UP:
-                case W:
-                    dir = Direction.UP;
-                    break;
-                case DOWN:
-                case KP_DOWN:
-                case S:
-                    dir = Direction.DOWN;
-                    break;
-                case LEFT:
-                case KP_LEFT:
-                case A:
-                    dir = Direction.LEFT;
-                    break;
-                case RIGHT:
-                case KP_RIGHT:
-                case D:
-                    dir = Direction.RIGHT;
-                    break;
-            }
+            Direction dir = key2dir(event.getCode());
             if (dir != null) {
                 levelController.handleMove(View.this, dir);
                 event.consume();
+            } else if (event.getCode() == KeyCode.Z) {
+                levelController.handleUndo(View.this);
+                event.consume();
+            } else if (event.getCode() == KeyCode.Y) {
+                levelController.handleRedo(View.this);
+                event.consume();
             }
         }
     }
 
+    /**
+     * Graphic of a tile, rendered on first use
+     * @param tile a tile
+     * @return the shared image of the tile
+     */
+    private Image tileImage(Tile tile) {
+        int key = TileImageCache.keyOf(tile);
+        Image image = IMAGES.get(key);
+        return image != null ? image : IMAGES.put(key, makeTileGraphic(tile));
+    }
+
+    /**
+     * Graphic of the movable at coordinates, rendered on first use
+     * @param row row coordinate
+     * @param col column coordinate
+     * @return the shared image of the movable, null if there is none
+     */
+    private Image figureImage(int row, int col) {
+        Movable movable = levelInterface.getTileAt(row, col).contains();
+        int key;
+        if (levelInterface.isPlayerAt(row, col))
+            key = playerKey;
+        else if (movable != null && movable.isGuard())
+            key = TileImageCache.GUARD;
+        else if (movable != null && movable.isCrate())
+            key = TileImageCache.CRATE;
+        else
+            return null;
+        Image image = IMAGES.get(key);
+        if (image != null)
+            return image;
+        if (key == TileImageCache.GUARD)
+            return IMAGES.put(key, makeGuardGraphic());
+        if (key == TileImageCache.CRATE)
+            return IMAGES.put(key, makeCrateGraphic());
+        Shape player = makePlayerGraphic();
+        if (key == TileImageCache.PLAYER_DONE)
+            player.setFill(Color.MEDIUMSPRINGGREEN);
+        return IMAGES.put(key, player);
+    }
+
+    /**
+     * Moves a call of the model onto the JavaFX application thread.
+     * The model calls from the simulation thread of {@link discpative.controller.AsyncLevelController}.
+     * @param update the call to repeat on the JavaFX application thread
+     * @return true if the call was deferred, false if the caller already is on the JavaFX application thread
+     */
+    static boolean deferToFxThread(Runnable update) {
+        if (Platform.isFxApplicationThread())
+            return false;
+        Platform.runLater(update);
+        return true;
+    }
+
+    /**
+     * Converts a key into a direction
+     * @param key the pressed key
+     * @return the direction for arrow and WASD keys, otherwise null
+     */
+    static Direction key2dir(KeyCode key) {
+        switch (key) {
+            case UP:
+            case KP_UP:
+            case W:
+                return Direction.UP;
+            case DOWN:
+            case KP_DOWN:
+            case S:
+                return Direction.DOWN;
+            case LEFT:
+            case KP_LEFT:
+            case A:
+                return Direction.LEFT;
+            case RIGHT:
+            case KP_RIGHT:
+            case D:
+                return Direction.RIGHT;
+            default:
+                return null;
+        }
+    }
+
     /**
      * Class to handle mouse click inputs
      */
@@ -393,8 +469,8 @@ public class View extends Region implements ViewInterface {
         super.layoutChildren();
         for (int row = 0; row < rowCount; row++)
             for (int col = 0; col < colCount; col++) {
-                Group g = tileGraphic[row][col];
-                g.relocate(col * 48, row * 48);
+                tileGraphic[row][col].relocate(col * 48, row * 48);
+                figureGraphic[row][col].relocate(col * 48, row * 48);
             }
         statusLine.relocate(4, rowCount * 48);
     }
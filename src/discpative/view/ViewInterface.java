@@ -1,5 +1,7 @@
 package discpative.view;
 
+import discpative.model.ChangeSet;
+
 public interface ViewInterface {
 
     void updateGuardPresence(int row, int col);
@@ -9,4 +11,11 @@ public interface ViewInterface {
     void updateTile(int row, int col);
 
     void announceLevelComplete();
+
+    /**
+     * Applies all changes of one turn at once.
+     * Replaces the single updates while the model runs a turn.
+     * @param changes the changed cells of the turn
+     */
+    void applyChanges(ChangeSet changes);
 }
\ No newline at end of file